@@ -0,0 +1,21 @@
+package com.drivemode.media.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds an accessor of a {@link CursorRow} interface to a column.
+ * The accessor may return {@code long}, {@code int}, {@code short}, {@code double}, {@code float},
+ * {@code boolean}, {@code String} or {@code byte[]}.
+ * @author KeithYokoma
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Column {
+	/**
+	 * @return the column name.
+	 */
+	String value();
+}
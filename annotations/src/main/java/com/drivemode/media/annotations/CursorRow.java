@@ -0,0 +1,26 @@
+package com.drivemode.media.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a row of a query result as an interface whose methods are annotated with {@link Column}.
+ * The annotation processor generates a cursor class reading the columns at fixed indexes,
+ * the projection to query them with, and an immutable record type for the row.
+ * @author KeithYokoma
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CursorRow {
+	/**
+	 * @return the simple name of the generated cursor class. Defaults to the interface name followed by {@code Cursor}.
+	 */
+	String cursorName() default "";
+
+	/**
+	 * @return the simple name of the generated record class. Defaults to the interface name followed by {@code Record}.
+	 */
+	String recordName() default "";
+}
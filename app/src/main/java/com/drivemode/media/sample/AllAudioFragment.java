@@ -10,6 +10,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.drivemode.media.audio.AudioCursor;
 import com.drivemode.media.audio.AudioFacade;
 import com.drivemode.media.common.CursorUtils;
 import com.drivemode.media.sample.databinding.FragmentAudioAllBinding;
@@ -43,7 +44,7 @@ public class AllAudioFragment extends Fragment {
 				new int[] {android.R.id.text1, android.R.id.text2}, 0);
 		binding.list.setEmptyView(binding.empty);
 		binding.list.setAdapter(adapter);
-		Observable.fromCallable(() -> facade.media().fetch())
+		Observable.fromCallable(() -> facade.media().fetch(AudioCursor.LIST_ROW))
 				.subscribeOn(Schedulers.io()).observeOn(AndroidSchedulers.mainThread())
 				.subscribe(adapter::swapCursor, LogHelper::logError, this::applyEmptyContent);
 	}
@@ -47,10 +47,12 @@ public class AllImageFragment extends Fragment {
 		adapter = new SimpleCursorAdapter(getContext(), R.layout.list_item_image, null,
 				new String[] {MediaStore.Images.Media.BUCKET_DISPLAY_NAME},
 				new int[] {R.id.text}, 0) {
+			private final ImageCursor wrapper = new ImageCursor(null);
+
 			@Override
 			public void bindView(View view, Context context, Cursor cursor) {
 				super.bindView(view, context, cursor);
-				ImageCursor wrapper = new ImageCursor(cursor);
+				wrapper.rebind(cursor);
 				ImageView iv = (ImageView) view.findViewById(R.id.image);
 				long id = wrapper.id();
 				Picasso.with(context).load(ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id))
@@ -61,7 +63,7 @@ public class AllImageFragment extends Fragment {
 		};
 		binding.list.setEmptyView(binding.empty);
 		binding.list.setAdapter(adapter);
-		Observable.fromCallable(() -> facade.image().fetch())
+		Observable.fromCallable(() -> facade.image().fetch(ImageCursor.LIST_ROW))
 				.subscribeOn(Schedulers.io()).observeOn(AndroidSchedulers.mainThread())
 				.subscribe(adapter::swapCursor, LogHelper::logError, this::applyEmptyContent);
 	}
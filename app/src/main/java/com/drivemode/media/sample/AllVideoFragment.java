@@ -45,10 +45,12 @@ public class AllVideoFragment extends Fragment {
 		adapter = new SimpleCursorAdapter(getContext(), R.layout.list_item_image, null,
 				new String[] {MediaStore.Images.Media.BUCKET_DISPLAY_NAME},
 				new int[] {R.id.text}, 0) {
+			private final VideoCursor wrapper = new VideoCursor(null);
+
 			@Override
 			public void bindView(View view, Context context, Cursor cursor) {
 				super.bindView(view, context, cursor);
-				VideoCursor wrapper = new VideoCursor(cursor);
+				wrapper.rebind(cursor);
 				ImageView iv = (ImageView) view.findViewById(R.id.image);
 				iv.setImageBitmap(facade.thumbnail().fetch(wrapper.id(), MediaStore.Video.Thumbnails.MINI_KIND));
 			}
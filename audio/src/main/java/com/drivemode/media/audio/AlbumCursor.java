@@ -4,6 +4,7 @@ import android.database.Cursor;
 import android.provider.MediaStore;
 
 import com.drivemode.media.common.BaseCursor;
+import com.drivemode.media.common.Projection;
 
 /**
  * @author KeishinYokomaku
@@ -11,68 +12,91 @@ import com.drivemode.media.common.BaseCursor;
 @SuppressWarnings("unused") // public API
 public class AlbumCursor extends BaseCursor {
   public static final String TAG = AlbumCursor.class.getSimpleName();
+  /**
+   * Projection for a row in the album list.
+   */
+  public static final Projection LIST_ROW = Projection.of(
+      MediaStore.Audio.Albums._ID,
+      MediaStore.Audio.Albums.ALBUM,
+      MediaStore.Audio.Albums.ARTIST,
+      MediaStore.Audio.Albums.NUMBER_OF_SONGS,
+      MediaStore.Audio.Albums.ALBUM_ART);
+  /**
+   * Projection for the album detail, every column of the table.
+   */
+  public static final Projection DETAIL = Projection.ALL;
+
+  private static final int COL_ALBUM_ID = column(MediaStore.Audio.AlbumColumns.ALBUM_ID);
+  private static final int COL_ALBUM = column(MediaStore.Audio.Albums.ALBUM);
+  private static final int COL_ARTIST = column(MediaStore.Audio.Albums.ARTIST);
+  private static final int COL_NUMBER_OF_SONGS = column(MediaStore.Audio.Albums.NUMBER_OF_SONGS);
+  private static final int COL_NUMBER_OF_SONGS_FOR_ARTIST = column(MediaStore.Audio.Albums.NUMBER_OF_SONGS_FOR_ARTIST);
+  private static final int COL_FIRST_YEAR = column(MediaStore.Audio.Albums.FIRST_YEAR);
+  private static final int COL_LAST_YEAR = column(MediaStore.Audio.Albums.LAST_YEAR);
+  private static final int COL_ALBUM_KEY = column(MediaStore.Audio.Albums.ALBUM_KEY);
+  private static final int COL_ALBUM_ART = column(MediaStore.Audio.Albums.ALBUM_ART);
 
   public AlbumCursor(Cursor cursor) {
     super(cursor);
   }
 
   public int albumId() {
-    return getInt(MediaStore.Audio.AlbumColumns.ALBUM_ID);
+    return getIntAt(COL_ALBUM_ID);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#ALBUM}
    */
   public String displayName() {
-    return getString(MediaStore.Audio.Albums.ALBUM);
+    return getStringAt(COL_ALBUM);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#ARTIST}
    */
   public String artistName() {
-    return getString(MediaStore.Audio.Albums.ARTIST);
+    return getStringAt(COL_ARTIST);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#NUMBER_OF_SONGS}
    */
   public int songsCount() {
-    return getInt(MediaStore.Audio.Albums.NUMBER_OF_SONGS);
+    return getIntAt(COL_NUMBER_OF_SONGS);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#NUMBER_OF_SONGS_FOR_ARTIST}
    */
   public int songsCountForArtist() {
-    return getInt(MediaStore.Audio.Albums.NUMBER_OF_SONGS_FOR_ARTIST);
+    return getIntAt(COL_NUMBER_OF_SONGS_FOR_ARTIST);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#FIRST_YEAR}
    */
   public long firstYear() {
-    return getLong(MediaStore.Audio.Albums.FIRST_YEAR);
+    return getLongAt(COL_FIRST_YEAR);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#LAST_YEAR}
    */
   public long lastYear() {
-    return getLong(MediaStore.Audio.Albums.LAST_YEAR);
+    return getLongAt(COL_LAST_YEAR);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#ALBUM_KEY}
    */
   public String key() {
-    return getString(MediaStore.Audio.Albums.ALBUM_KEY);
+    return getStringAt(COL_ALBUM_KEY);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Albums#ALBUM_ART}
    */
   public String albumArtPath() {
-    return getString(MediaStore.Audio.Albums.ALBUM_ART);
+    return getStringAt(COL_ALBUM_ART);
   }
 }
@@ -9,12 +9,13 @@ import com.drivemode.media.common.MediaCursor;
 @SuppressWarnings("unused") // public API
 public class AlbumMembersCursor extends MediaCursor {
 	public static final String TAG = AlbumMembersCursor.class.getSimpleName();
+	private static final int COL_IS_DRM = column("is_drm");
 
 	public AlbumMembersCursor(Cursor cursor) {
 		super(cursor);
 	}
 
 	public boolean drmProtected() {
-		return getInt("is_drm") != 0;
+		return getIntAt(COL_IS_DRM) != 0;
 	}
 }
@@ -11,6 +11,10 @@ import com.drivemode.media.common.BaseCursor;
 @SuppressWarnings("unused")
 public class ArtistCursor extends BaseCursor {
 	public static final String TAG = ArtistCursor.class.getSimpleName();
+	private static final int COL_ARTIST = column(MediaStore.Audio.Artists.ARTIST);
+	private static final int COL_ARTIST_KEY = column(MediaStore.Audio.Artists.ARTIST_KEY);
+	private static final int COL_NUMBER_OF_ALBUMS = column(MediaStore.Audio.Artists.NUMBER_OF_ALBUMS);
+	private static final int COL_NUMBER_OF_TRACKS = column(MediaStore.Audio.Artists.NUMBER_OF_TRACKS);
 
 	public ArtistCursor(Cursor cursor) {
 		super(cursor);
@@ -20,27 +24,27 @@ public class ArtistCursor extends BaseCursor {
 	 * @return Data for {@link android.provider.MediaStore.Audio.Artists#ARTIST}
 	 */
 	public String displayName() {
-		return getString(MediaStore.Audio.Artists.ARTIST);
+		return getStringAt(COL_ARTIST);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Artists#ARTIST_KEY}
 	 */
 	public String key() {
-		return getString(MediaStore.Audio.Artists.ARTIST_KEY);
+		return getStringAt(COL_ARTIST_KEY);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Artists#NUMBER_OF_ALBUMS}
 	 */
 	public int albumsCount() {
-		return getInt(MediaStore.Audio.Artists.NUMBER_OF_ALBUMS);
+		return getIntAt(COL_NUMBER_OF_ALBUMS);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Artists#NUMBER_OF_TRACKS}
 	 */
 	public int tracksCount() {
-		return getInt(MediaStore.Audio.Artists.NUMBER_OF_TRACKS);
+		return getIntAt(COL_NUMBER_OF_TRACKS);
 	}
 }
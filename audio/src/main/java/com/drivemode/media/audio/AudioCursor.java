@@ -3,6 +3,7 @@ package com.drivemode.media.audio;
 import android.database.Cursor;
 import android.provider.MediaStore;
 import com.drivemode.media.common.MediaCursor;
+import com.drivemode.media.common.Projection;
 
 /**
  * Project ID：400YF17051<br/>
@@ -14,6 +15,43 @@ import com.drivemode.media.common.MediaCursor;
  * @since 2017/5/16 汪波 first commit
  */
 public class AudioCursor extends MediaCursor {
+  /**
+   * Projection for a row in the track list.
+   */
+  public static final Projection LIST_ROW = Projection.of(
+      MediaStore.Audio.AudioColumns._ID,
+      MediaStore.Audio.AudioColumns.TITLE,
+      MediaStore.Audio.AudioColumns.DISPLAY_NAME,
+      MediaStore.Audio.AudioColumns.ARTIST,
+      MediaStore.Audio.AudioColumns.ALBUM,
+      MediaStore.Audio.AudioColumns.ALBUM_ID,
+      MediaStore.Audio.AudioColumns.DURATION);
+  /**
+   * Projection for the track detail, every column of the table.
+   */
+  public static final Projection DETAIL = Projection.ALL;
+
+  private static final int COL_TITLE_KEY = column(MediaStore.Audio.AudioColumns.TITLE_KEY);
+  private static final int COL_DURATION = column(MediaStore.Audio.AudioColumns.DURATION);
+  private static final int COL_BOOKMARK = column(MediaStore.Audio.AudioColumns.BOOKMARK);
+  private static final int COL_ARTIST_ID = column(MediaStore.Audio.AudioColumns.ARTIST_ID);
+  private static final int COL_ARTIST = column(MediaStore.Audio.AudioColumns.ARTIST);
+  private static final int COL_ALBUM_ARTIST = column("album_artist");
+  private static final int COL_COMPILATION = column("compilation");
+  private static final int COL_ARTIST_KEY = column(MediaStore.Audio.AudioColumns.ARTIST_KEY);
+  private static final int COL_COMPOSER = column(MediaStore.Audio.AudioColumns.COMPOSER);
+  private static final int COL_ALBUM_ID = column(MediaStore.Audio.AudioColumns.ALBUM_ID);
+  private static final int COL_ALBUM = column(MediaStore.Audio.AudioColumns.ALBUM);
+  private static final int COL_ALBUM_KEY = column(MediaStore.Audio.AudioColumns.ALBUM_KEY);
+  private static final int COL_TRACK = column(MediaStore.Audio.AudioColumns.TRACK);
+  private static final int COL_YEAR = column(MediaStore.Audio.AudioColumns.YEAR);
+  private static final int COL_IS_MUSIC = column(MediaStore.Audio.AudioColumns.IS_MUSIC);
+  private static final int COL_IS_PODCAST = column(MediaStore.Audio.AudioColumns.IS_PODCAST);
+  private static final int COL_IS_RINGTONE = column(MediaStore.Audio.AudioColumns.IS_RINGTONE);
+  private static final int COL_IS_ALARM = column(MediaStore.Audio.AudioColumns.IS_ALARM);
+  private static final int COL_IS_NOTIFICATION = column(MediaStore.Audio.AudioColumns.IS_NOTIFICATION);
+  private static final int COL_GENRE = column("genre");
+
   public AudioCursor(Cursor cursor) {
     super(cursor);
   }
@@ -22,130 +60,133 @@ public class AudioCursor extends MediaCursor {
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#TITLE_KEY}
    */
   public String titleKey() {
-    return getString(MediaStore.Audio.AudioColumns.TITLE_KEY);
+    return getStringAt(COL_TITLE_KEY);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#DURATION}
    */
   public long duration() {
-    return getLong(MediaStore.Audio.AudioColumns.DURATION);
+    return getLongAt(COL_DURATION);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#BOOKMARK}
    */
   public long bookmarkedPosition() {
-    return getLong(MediaStore.Audio.AudioColumns.BOOKMARK);
+    return getLongAt(COL_BOOKMARK);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#ARTIST_ID}
    */
   public long artistId() {
-    return getLong(MediaStore.Audio.AudioColumns.ARTIST_ID);
+    return getLongAt(COL_ARTIST_ID);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#ARTIST}
    */
   public String artistName() {
-    return getString(MediaStore.Audio.AudioColumns.ARTIST);
+    return getStringAt(COL_ARTIST);
   }
 
   public String albumArtist() {
-    return getString("album_artist");
+    return getStringAt(COL_ALBUM_ARTIST);
   }
 
   public String compilation() {
-    return getString("compilation");
+    return getStringAt(COL_COMPILATION);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#ARTIST_KEY}
    */
   public String artistKey() {
-    return getString(MediaStore.Audio.AudioColumns.ARTIST_KEY);
+    return getStringAt(COL_ARTIST_KEY);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#COMPOSER}
    */
   public String composer() {
-    return getString(MediaStore.Audio.AudioColumns.COMPOSER);
+    return getStringAt(COL_COMPOSER);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#ALBUM_ID}
    */
   public long albumId() {
-    return getLong(MediaStore.Audio.AudioColumns.ALBUM_ID);
+    return getLongAt(COL_ALBUM_ID);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#ALBUM}
    */
   public String albumName() {
-    return getString(MediaStore.Audio.AudioColumns.ALBUM);
+    return getStringAt(COL_ALBUM);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#ALBUM_KEY}
    */
   public String albumKey() {
-    return getString(MediaStore.Audio.AudioColumns.ALBUM_KEY);
+    return getStringAt(COL_ALBUM_KEY);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#TRACK}
    */
   public int tracksCount() {
-    return getInt(MediaStore.Audio.AudioColumns.TRACK);
+    return getIntAt(COL_TRACK);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#YEAR}
    */
   public int year() {
-    return getInt(MediaStore.Audio.AudioColumns.YEAR);
+    return getIntAt(COL_YEAR);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#IS_MUSIC}
    */
   public boolean isMusic() {
-    return getInt(MediaStore.Audio.AudioColumns.IS_MUSIC) != 0;
+    return getIntAt(COL_IS_MUSIC) != 0;
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#IS_PODCAST}
    */
   public boolean isPodcast() {
-    return getInt(MediaStore.Audio.AudioColumns.IS_PODCAST) != 0;
+    return getIntAt(COL_IS_PODCAST) != 0;
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#IS_RINGTONE}
    */
   public boolean isRingtone() {
-    return getInt(MediaStore.Audio.AudioColumns.IS_RINGTONE) != 0;
+    return getIntAt(COL_IS_RINGTONE) != 0;
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#IS_ALARM}
    */
   public boolean isAlarm() {
-    return getInt(MediaStore.Audio.AudioColumns.IS_ALARM) != 0;
+    return getIntAt(COL_IS_ALARM) != 0;
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.AudioColumns#IS_NOTIFICATION}
    */
   public boolean isNotification() {
-    return getInt(MediaStore.Audio.AudioColumns.IS_NOTIFICATION) != 0;
+    return getIntAt(COL_IS_NOTIFICATION) != 0;
   }
 
+  /**
+   * Most {@link MediaStore} versions do not populate this column, resolve the genres with {@link GenreResolver} instead.
+   */
   public String genre() {
-    return getString("genre");
+    return getStringAt(COL_GENRE);
   }
 }
@@ -1,54 +1,76 @@
 package com.drivemode.media.audio;
 
-import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.RemoteException;
 import android.provider.MediaStore;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
 import com.drivemode.media.common.CursorUtils;
+import com.drivemode.media.common.LongIterator;
+import com.drivemode.media.common.PageRequest;
+import com.drivemode.media.common.Projection;
+import com.drivemode.media.common.QueryCache;
+import com.drivemode.media.common.QueryExecutor;
+import com.drivemode.media.common.QueryFuture;
+import com.drivemode.media.common.SharedProviderClient;
 import com.drivemode.media.common.SortOrder;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
 /**
  * Facade object to the modularized {@link Media}, {@link Playlist}, {@link Genre}, {@link Album}, and {@link Artist} database.
  * @author KeithYokoma
  */
 @SuppressWarnings("unused") // public API
 public class AudioFacade {
-	private static AudioFacade instance;
-	private final Media media;
-	private final Playlist playlist;
-	private final Album album;
-	private final Genre genre;
-	private final Artist artist;
+	private static volatile AudioFacade instance;
+	private final Context context;
+	private volatile Media media;
+	private volatile Playlist playlist;
+	private volatile Album album;
+	private volatile Genre genre;
+	private volatile Artist artist;
 
 	/**
 	 * Initialize the facade with the application context.
+	 * Modular classes are created on their first access.
 	 * Do not call this method directly.
 	 *
 	 * @param context the application context
 	 */
 	protected AudioFacade(@NonNull Context context) {
-		this(new Media(context), new Playlist(context), new Album(context), new Genre(context), new Artist(context));
+		this.context = context;
 	}
 
 	/**
 	 * Convenient constructor to inject each modular class, especially for testing purpose.
+	 * A module given as null is created on demand with the context of the injected ones.
 	 * @param media the media class
 	 * @param playlist the playlist class
 	 * @param album the album class
 	 * @param artist the artist class
 	 * @param genre the genre class
+	 * @throws IllegalArgumentException if no module is given.
 	 */
-	protected AudioFacade(@NonNull Media media,
-						  @NonNull Playlist playlist,
-						  @NonNull Album album,
-						  @NonNull Genre genre,
-						  @NonNull Artist artist) {
+	protected AudioFacade(@Nullable Media media,
+						  @Nullable Playlist playlist,
+						  @Nullable Album album,
+						  @Nullable Genre genre,
+						  @Nullable Artist artist) {
+		this.context = contextOf(media, playlist, album, genre, artist);
 		this.media = media;
 		this.playlist = playlist;
 		this.album = album;
@@ -56,50 +78,110 @@ public class AudioFacade {
 		this.artist = artist;
 	}
 
+	private static Context contextOf(Media media, Playlist playlist, Album album, Genre genre, Artist artist) {
+		if (media != null)
+			return media.context;
+		if (playlist != null)
+			return playlist.context;
+		if (album != null)
+			return album.context;
+		if (genre != null)
+			return genre.context;
+		if (artist != null)
+			return artist.context;
+		throw new IllegalArgumentException("at least one module is required to take the context from");
+	}
+
 	/**
 	 * Get an singleton object of {@link AudioFacade}.
 	 * @param context the context.
 	 * @return the singleton object of {@link AudioFacade}.
 	 */
 	public static AudioFacade getInstance(Context context) {
-		if (instance == null)
-			instance = new AudioFacade(context.getApplicationContext());
-		return instance;
+		AudioFacade result = instance;
+		if (result == null) {
+			synchronized (AudioFacade.class) {
+				result = instance;
+				if (result == null)
+					instance = result = new AudioFacade(context.getApplicationContext());
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Playlist}.
 	 */
 	public @NonNull Playlist playlist() {
-		return playlist;
+		Playlist result = playlist;
+		if (result == null) {
+			synchronized (this) {
+				result = playlist;
+				if (result == null)
+					playlist = result = new Playlist(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Album}.
 	 */
 	public @NonNull Album album() {
-		return album;
+		Album result = album;
+		if (result == null) {
+			synchronized (this) {
+				result = album;
+				if (result == null)
+					album = result = new Album(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Genre}.
 	 */
 	public @NonNull Genre genre() {
-		return genre;
+		Genre result = genre;
+		if (result == null) {
+			synchronized (this) {
+				result = genre;
+				if (result == null)
+					genre = result = new Genre(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Artist}.
 	 */
 	public @NonNull Artist artist() {
-		return artist;
+		Artist result = artist;
+		if (result == null) {
+			synchronized (this) {
+				result = artist;
+				if (result == null)
+					artist = result = new Artist(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Media}.
 	 */
 	public @NonNull Media media() {
-		return media;
+		Media result = media;
+		if (result == null) {
+			synchronized (this) {
+				result = media;
+				if (result == null)
+					media = result = new Media(context);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -107,11 +189,12 @@ public class AudioFacade {
 	 */
 	public static class Media {
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
+		private volatile boolean libraryGraphBaseOnly; // the provider rejected the optional columns of the library graph
 
 		protected Media(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -125,7 +208,134 @@ public class AudioFacade {
 		 * Fetch all audio metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable AudioCursor fetch(SortOrder order) {
-			return new AudioCursor(resolver.query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetch(Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected audio metadata from {@link MediaStore}.
+		 * @see AudioCursor#LIST_ROW
+		 */
+		public @Nullable AudioCursor fetch(Projection projection) {
+			return fetch(projection, SortOrder.UNSPECIFIED);
+		}
+
+		/**
+		 * Fetch the projected audio metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see AudioCursor#LIST_ROW
+		 */
+		public @Nullable AudioCursor fetch(Projection projection, SortOrder order) {
+			return fetch(projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected audio metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see AudioCursor#LIST_ROW
+		 */
+		public @Nullable AudioCursor fetch(Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new AudioCursor(QueryCache.query(client, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, projection.toArray(), null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected audio metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<AudioCursor> fetchAsync(final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<AudioCursor>() {
+				@Override
+				public AudioCursor run(@Nullable CancellationSignal signal) {
+					return fetch(projection, order, signal);
+				}
+			}, signal);
+		}
+
+		/**
+		 * Fetch a page of audio metadata from {@link MediaStore}.
+		 * @see PageRequest
+		 */
+		public @Nullable AudioCursor fetchPage(PageRequest page) {
+			return fetchPage(page, Projection.ALL);
+		}
+
+		/**
+		 * Fetch a page of the projected audio metadata from {@link MediaStore}.
+		 * The projection is extended with the columns required to request the next page.
+		 * @see PageRequest
+		 */
+		public @Nullable AudioCursor fetchPage(PageRequest page, Projection projection) {
+			return fetchPage(page, projection, null);
+		}
+
+		/**
+		 * Fetch a page of the projected audio metadata from {@link MediaStore}.
+		 * The projection is extended with the columns required to request the next page.
+		 * The query is aborted when the signal is cancelled.
+		 * @see PageRequest
+		 */
+		public @Nullable AudioCursor fetchPage(PageRequest page, Projection projection, @Nullable CancellationSignal signal) {
+			return new AudioCursor(QueryCache.query(client, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, page.projection(projection).toArray(),
+					page.selection(null), page.selectionArgs(null), page.sortOrder(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch a page of the projected audio metadata from {@link MediaStore}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<AudioCursor> fetchPageAsync(final PageRequest page, final Projection projection, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<AudioCursor>() {
+				@Override
+				public AudioCursor run(@Nullable CancellationSignal signal) {
+					return fetchPage(page, projection, signal);
+				}
+			}, signal);
+		}
+
+		/**
+		 * Build the artist, album and track hierarchy of all audio media from a single query,
+		 * instead of fetching the albums of each artist and the tracks of each album.
+		 * @see LibraryGraph
+		 */
+		@WorkerThread
+		public @NonNull LibraryGraph fetchLibraryGraph() {
+			return fetchLibraryGraph(null);
+		}
+
+		/**
+		 * Build the artist, album and track hierarchy of all audio media from a single query.
+		 * The query is aborted when the signal is cancelled.
+		 * @see LibraryGraph
+		 */
+		@WorkerThread
+		public @NonNull LibraryGraph fetchLibraryGraph(@Nullable CancellationSignal signal) {
+			Cursor cursor = null;
+			if (!libraryGraphBaseOnly) {
+				try {
+					cursor = QueryCache.query(client, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, LibraryGraph.PROJECTION.toArray(), null, null, null, signal);
+				} catch (SQLiteException | IllegalArgumentException e) {
+					// no album artist or compilation column in this provider, group the albums by the track artists
+					libraryGraphBaseOnly = true;
+				}
+			}
+			if (libraryGraphBaseOnly)
+				cursor = QueryCache.query(client, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, LibraryGraph.BASE_PROJECTION.toArray(), null, null, null, signal);
+			try {
+				return LibraryGraph.of(cursor != null ? cursor : new MatrixCursor(LibraryGraph.PROJECTION.toArray()));
+			} finally {
+				CursorUtils.close(cursor);
+			}
+		}
+
+		/**
+		 * Asynchronously build the artist, album and track hierarchy of all audio media from a single query.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<LibraryGraph> fetchLibraryGraphAsync(@Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<LibraryGraph>() {
+				@Override
+				public LibraryGraph run(@Nullable CancellationSignal signal) {
+					return fetchLibraryGraph(signal);
+				}
+			}, signal);
 		}
 	}
 
@@ -133,12 +343,18 @@ public class AudioFacade {
 	 * {@link Playlist} provides access to the all playlist metadata.
 	 */
 	public static class Playlist {
+		private static final String[] LAST_PLAY_ORDER_PROJECTION = {MediaStore.Audio.Playlists.Members.PLAY_ORDER};
+		private static final String[] MEMBER_ORDER_PROJECTION = {
+				MediaStore.Audio.Playlists.Members._ID,
+				MediaStore.Audio.Playlists.Members.AUDIO_ID,
+				MediaStore.Audio.Playlists.Members.PLAY_ORDER
+		};
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
 
 		protected Playlist(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -152,8 +368,28 @@ public class AudioFacade {
 		 * Fetch all playlist metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable PlaylistCursor fetchLists(SortOrder order) {
-			return new PlaylistCursor(resolver.query(
-					MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetchLists(order, null);
+		}
+
+		/**
+		 * Fetch all playlist metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable PlaylistCursor fetchLists(SortOrder order, @Nullable CancellationSignal signal) {
+			return new PlaylistCursor(QueryCache.query(client, MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, null, null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch all playlist metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<PlaylistCursor> fetchListsAsync(final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<PlaylistCursor>() {
+				@Override
+				public PlaylistCursor run(@Nullable CancellationSignal signal) {
+					return fetchLists(order, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -167,8 +403,35 @@ public class AudioFacade {
 		 * Fetch all audio metadata belong to the playlist from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable PlaylistMembersCursor fetchPlayableItems(long playlistId, SortOrder order) {
-			return new PlaylistMembersCursor(resolver.query(
-					MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), null, null, null, order.toSql()));
+			return fetchPlayableItems(playlistId, Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected audio metadata belong to the playlist from {@link MediaStore} in the specified {@link SortOrder}.
+		 */
+		public @Nullable PlaylistMembersCursor fetchPlayableItems(long playlistId, Projection projection, SortOrder order) {
+			return fetchPlayableItems(playlistId, projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected audio metadata belong to the playlist from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable PlaylistMembersCursor fetchPlayableItems(long playlistId, Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new PlaylistMembersCursor(QueryCache.query(client, MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), projection.toArray(), null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected audio metadata belong to the playlist from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<PlaylistMembersCursor> fetchPlayableItemsAsync(final long playlistId, final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<PlaylistMembersCursor>() {
+				@Override
+				public PlaylistMembersCursor run(@Nullable CancellationSignal signal) {
+					return fetchPlayableItems(playlistId, projection, order, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -179,7 +442,7 @@ public class AudioFacade {
 		public @Nullable Uri createNew(String name) {
 			ContentValues value = new ContentValues();
 			value.put(MediaStore.Audio.Playlists.NAME, name);
-			return resolver.insert(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, value);
+			return client.insert(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, value);
 		}
 
 		/**
@@ -188,12 +451,84 @@ public class AudioFacade {
 		 * @return the last order number in the playlist.
 		 */
 		public int getLastPlayOrder(long playlistId) {
+			return Math.max(queryLastPlayOrder(playlistId), 0);
+		}
+
+		/**
+		 * Put the audio at the end of the playlist.
+		 * Costs a single row query for the last order number regardless of the playlist size.
+		 * @param playlistId the playlist.
+		 * @param audioId the audio id to be included to the playlist.
+		 * @return playlist item {@link Uri}.
+		 */
+		public @Nullable Uri appendItemTo(long playlistId, long audioId) {
+			return insertItemTo(playlistId, audioId, queryLastPlayOrder(playlistId) + 1);
+		}
+
+		/**
+		 * Put multiple audio at the end of the playlist in the order of the audio ids.
+		 * Costs a single row query for the last order number and a bulk insert per {@link PlaylistImport#DEFAULT_CHUNK_SIZE} items.
+		 * @param playlistId the playlist.
+		 * @param audioIds the audio id to be included to the playlist.
+		 * @return the number of inserted items.
+		 */
+		public int appendItemsTo(long playlistId, @NonNull long[] audioIds) {
+			return importItemsTo(playlistId, audioIds, null).getInserted();
+		}
+
+		/**
+		 * Stream the audio ids to the end of the playlist in chunks.
+		 * @param playlistId the playlist.
+		 * @param audioIds the audio id to be included to the playlist.
+		 * @param listener the listener to receive the progress, may be null.
+		 * @return the outcome of the import.
+		 * @see PlaylistImport
+		 */
+		@WorkerThread
+		public @NonNull PlaylistImport.Result importItemsTo(long playlistId, @NonNull final long[] audioIds, @Nullable PlaylistImport.Listener listener) {
+			return importItemsTo(playlistId, new LongIterator() {
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return index < audioIds.length;
+				}
+
+				@Override
+				public long nextLong() {
+					if (index >= audioIds.length)
+						throw new NoSuchElementException();
+					return audioIds[index++];
+				}
+			}, PlaylistImport.DEFAULT_CHUNK_SIZE, listener);
+		}
+
+		/**
+		 * Stream the audio ids of any number to the end of the playlist in chunks.
+		 * @param playlistId the playlist.
+		 * @param audioIds the source of the audio ids.
+		 * @param chunkSize the number of items sent in a single bulk insert.
+		 * @param listener the listener to receive the progress, may be null.
+		 * @return the outcome of the import.
+		 * @see PlaylistImport
+		 */
+		@WorkerThread
+		public @NonNull PlaylistImport.Result importItemsTo(long playlistId, @NonNull LongIterator audioIds, int chunkSize, @Nullable PlaylistImport.Listener listener) {
+			return new PlaylistImport(client, chunkSize).run(playlistId, queryLastPlayOrder(playlistId) + 1, audioIds, listener);
+		}
+
+		/**
+		 * @return the largest order number in the playlist, or -1 if the playlist is empty.
+		 */
+		private int queryLastPlayOrder(long playlistId) {
 			Cursor cursor = null;
 			try {
-				cursor = fetchPlayableItems(playlistId, new SortOrder(MediaStore.Audio.Playlists.Members.PLAY_ORDER, SortOrder.Order.ASCENDING));
-				if (cursor == null || !cursor.moveToLast())
-					return 0;
-				return cursor.getInt(cursor.getColumnIndex(MediaStore.Audio.Playlists.Members.PLAY_ORDER));
+				// not through the query cache, a stale order number would put the appended items at taken positions
+				cursor = client.query(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), LAST_PLAY_ORDER_PROJECTION,
+						null, null, MediaStore.Audio.Playlists.Members.PLAY_ORDER + " DESC LIMIT 1", null);
+				if (cursor == null || !cursor.moveToFirst())
+					return -1;
+				return cursor.getInt(0);
 			} finally {
 				CursorUtils.close(cursor);
 			}
@@ -208,7 +543,7 @@ public class AudioFacade {
 		public int updateName(long playlistId, String name) {
 			ContentValues value = new ContentValues();
 			value.put(MediaStore.Audio.Playlists.NAME, name);
-			return resolver.update(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, value,
+			return client.update(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, value,
 					MediaStore.Audio.Playlists._ID + " = ?", new String[] {String.valueOf(playlistId)});
 		}
 
@@ -218,7 +553,7 @@ public class AudioFacade {
 		 * @return 0 if not deleted.
 		 */
 		public int remove(long playlistId) {
-			return resolver.delete(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI,
+			return client.delete(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI,
 					MediaStore.Audio.Playlists._ID + " = ?", new String[]{String.valueOf(playlistId)});
 		}
 
@@ -233,7 +568,7 @@ public class AudioFacade {
 			ContentValues value = new ContentValues();
 			value.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, audioId);
 			value.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, position);
-			return resolver.insert(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), value);
+			return client.insert(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), value);
 		}
 
 		/**
@@ -267,7 +602,7 @@ public class AudioFacade {
 				value.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, positions[i]);
 				values[i] = value;
 			}
-			return resolver.bulkInsert(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), values);
+			return client.bulkInsert(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), values);
 		}
 
 		/**
@@ -277,9 +612,141 @@ public class AudioFacade {
 		 * @return 0 if not removed.
 		 */
 		public int removeItemFrom(long playlistId, long audioId) {
-			return resolver.delete(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId),
+			return client.delete(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId),
 					MediaStore.Audio.Playlists.Members.AUDIO_ID + " = ?", new String[]{String.valueOf(audioId)});
 		}
+
+		/**
+		 * Move the item in the playlist, shifting the items in between.
+		 * Only the moved item is written as long as its new neighbours leave a gap in their order numbers, see {@link #setOrder(long, long[])}.
+		 * @param playlistId the playlist.
+		 * @param from the current position of the item.
+		 * @param to the new position of the item.
+		 * @return the number of member rows written.
+		 * @throws RemoteException if the provider has died.
+		 * @throws OperationApplicationException if an update failed.
+		 */
+		@WorkerThread
+		public int move(long playlistId, int from, int to) throws RemoteException, OperationApplicationException {
+			Members members = queryMembers(playlistId);
+			int count = members.ids.length;
+			if (from < 0 || from >= count || to < 0 || to >= count)
+				throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + count);
+			int[] sequence = new int[count];
+			for (int i = 0, j = 0; i < count; i++) {
+				if (i == to)
+					sequence[i] = from;
+				else {
+					if (j == from)
+						j++;
+					sequence[i] = j++;
+				}
+			}
+			return writeOrder(playlistId, members, sequence);
+		}
+
+		/**
+		 * Reorder the playlist. The members whose current order numbers already increase along the new order,
+		 * the longest increasing subsequence, keep their numbers, and the others get numbers in the gaps between them,
+		 * so a few moves in a long playlist write a few rows instead of renumbering every member.
+		 * @param playlistId the playlist.
+		 * @param audioIds every audio id in the playlist in the new order, an id appearing as many times as it does in the playlist.
+		 * @return the number of member rows written.
+		 * @throws IllegalArgumentException if the ids are not a permutation of the playlist members.
+		 * @throws RemoteException if the provider has died.
+		 * @throws OperationApplicationException if an update failed.
+		 */
+		@WorkerThread
+		public int setOrder(long playlistId, @NonNull long[] audioIds) throws RemoteException, OperationApplicationException {
+			Members members = queryMembers(playlistId);
+			int count = members.ids.length;
+			if (audioIds.length != count)
+				throw new IllegalArgumentException("expected " + count + " audio ids but was " + audioIds.length);
+			Map<Long, ArrayDeque<Integer>> positions = new HashMap<Long, ArrayDeque<Integer>>();
+			for (int i = 0; i < count; i++) {
+				ArrayDeque<Integer> queue = positions.get(members.audioIds[i]);
+				if (queue == null) {
+					queue = new ArrayDeque<Integer>();
+					positions.put(members.audioIds[i], queue);
+				}
+				queue.add(i);
+			}
+			int[] sequence = new int[count];
+			for (int i = 0; i < count; i++) {
+				ArrayDeque<Integer> queue = positions.get(audioIds[i]);
+				if (queue == null || queue.isEmpty())
+					throw new IllegalArgumentException("audio " + audioIds[i] + " is not in the playlist or appears too many times");
+				sequence[i] = queue.poll();
+			}
+			return writeOrder(playlistId, members, sequence);
+		}
+
+		private int writeOrder(long playlistId, Members members, int[] sequence) throws RemoteException, OperationApplicationException {
+			int[] current = new int[sequence.length];
+			for (int i = 0; i < sequence.length; i++) {
+				current[i] = members.orders[sequence[i]];
+			}
+			int[] updated = PlayOrders.reorder(current);
+			PlaylistEditor editor = edit();
+			for (int i = 0; i < sequence.length; i++) {
+				if (updated[i] != current[i])
+					editor.setPlayOrder(playlistId, members.ids[sequence[i]], updated[i]);
+			}
+			int written = editor.size();
+			editor.commit();
+			return written;
+		}
+
+		private Members queryMembers(long playlistId) {
+			Cursor cursor = null;
+			try {
+				// not through the query cache, the order numbers must be current
+				cursor = client.query(MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId), MEMBER_ORDER_PROJECTION,
+						null, null, MediaStore.Audio.Playlists.Members.PLAY_ORDER + " ASC, " + MediaStore.Audio.Playlists.Members._ID + " ASC", null);
+				int count = cursor != null ? cursor.getCount() : 0;
+				Members members = new Members(count);
+				for (int i = 0; i < count && cursor.moveToNext(); i++) {
+					members.ids[i] = cursor.getLong(0);
+					members.audioIds[i] = cursor.getLong(1);
+					members.orders[i] = cursor.getInt(2);
+				}
+				return members;
+			} finally {
+				CursorUtils.close(cursor);
+			}
+		}
+
+		/**
+		 * Start an editing session which commits many edits across playlists in batches.
+		 * @return the editor.
+		 */
+		public @NonNull PlaylistEditor edit() {
+			return edit(PlaylistEditor.DEFAULT_BATCH_SIZE);
+		}
+
+		/**
+		 * Start an editing session which commits many edits across playlists in batches.
+		 * @param batchSize the number of operations applied in a single batch.
+		 * @return the editor.
+		 */
+		public @NonNull PlaylistEditor edit(int batchSize) {
+			return new PlaylistEditor(client, batchSize);
+		}
+
+		/**
+		 * Member rows of a playlist in the order of the play order.
+		 */
+		private static final class Members {
+			private final long[] ids;
+			private final long[] audioIds;
+			private final int[] orders;
+
+			Members(int count) {
+				ids = new long[count];
+				audioIds = new long[count];
+				orders = new int[count];
+			}
+		}
 	}
 
 	/**
@@ -288,11 +755,11 @@ public class AudioFacade {
 	public static class Album {
 		private static final Uri ALBUM_ART_URI_BASE = Uri.parse("content://media/external/audio/albumart");
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
 
 		protected Album(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -306,7 +773,37 @@ public class AudioFacade {
 		 * Fetch all album metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable AlbumCursor fetchAlbums(SortOrder order) {
-			return new AlbumCursor(resolver.query(MediaStore.Audio.Albums.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetchAlbums(Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected album metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see AlbumCursor#LIST_ROW
+		 */
+		public @Nullable AlbumCursor fetchAlbums(Projection projection, SortOrder order) {
+			return fetchAlbums(projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected album metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see AlbumCursor#LIST_ROW
+		 */
+		public @Nullable AlbumCursor fetchAlbums(Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new AlbumCursor(QueryCache.query(client, MediaStore.Audio.Albums.EXTERNAL_CONTENT_URI, projection.toArray(), null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected album metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<AlbumCursor> fetchAlbumsAsync(final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<AlbumCursor>() {
+				@Override
+				public AlbumCursor run(@Nullable CancellationSignal signal) {
+					return fetchAlbums(projection, order, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -320,7 +817,37 @@ public class AudioFacade {
 		 * Fetch all audio metadata belong to the playlist from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable AlbumMembersCursor fetchPlayableItems(long albumId, SortOrder order) {
-			return new AlbumMembersCursor(resolver.query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, null, MediaStore.Audio.Media.ALBUM_ID + " = ?", new String[]{String.valueOf(albumId)}, order.toSql()));
+			return fetchPlayableItems(albumId, Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected audio metadata belong to the album from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see AudioCursor#LIST_ROW
+		 */
+		public @Nullable AlbumMembersCursor fetchPlayableItems(long albumId, Projection projection, SortOrder order) {
+			return fetchPlayableItems(albumId, projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected audio metadata belong to the album from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see AudioCursor#LIST_ROW
+		 */
+		public @Nullable AlbumMembersCursor fetchPlayableItems(long albumId, Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new AlbumMembersCursor(QueryCache.query(client, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, projection.toArray(), MediaStore.Audio.Media.ALBUM_ID + " = ?", new String[]{String.valueOf(albumId)}, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected audio metadata belong to the album from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<AlbumMembersCursor> fetchPlayableItemsAsync(final long albumId, final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<AlbumMembersCursor>() {
+				@Override
+				public AlbumMembersCursor run(@Nullable CancellationSignal signal) {
+					return fetchPlayableItems(albumId, projection, order, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -338,11 +865,11 @@ public class AudioFacade {
 	 */
 	public static class Genre {
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
 
 		protected Genre(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -356,7 +883,28 @@ public class AudioFacade {
 		 * Fetch all genre metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable GenreCursor fetchGenres(SortOrder order) {
-			return new GenreCursor(resolver.query(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetchGenres(order, null);
+		}
+
+		/**
+		 * Fetch all genre metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable GenreCursor fetchGenres(SortOrder order, @Nullable CancellationSignal signal) {
+			return new GenreCursor(QueryCache.query(client, MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI, null, null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch all genre metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<GenreCursor> fetchGenresAsync(final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<GenreCursor>() {
+				@Override
+				public GenreCursor run(@Nullable CancellationSignal signal) {
+					return fetchGenres(order, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -370,7 +918,35 @@ public class AudioFacade {
 		 * Fetch all audio metadata belong to the genre from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable GenreMembersCursor fetchPlayableItems(long genreId, SortOrder order) {
-			return new GenreMembersCursor(resolver.query(MediaStore.Audio.Genres.Members.getContentUri("external", genreId), null, null, null, order.toSql()));
+			return fetchPlayableItems(genreId, Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected audio metadata belong to the genre from {@link MediaStore} in the specified {@link SortOrder}.
+		 */
+		public @Nullable GenreMembersCursor fetchPlayableItems(long genreId, Projection projection, SortOrder order) {
+			return fetchPlayableItems(genreId, projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected audio metadata belong to the genre from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable GenreMembersCursor fetchPlayableItems(long genreId, Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new GenreMembersCursor(QueryCache.query(client, MediaStore.Audio.Genres.Members.getContentUri("external", genreId), projection.toArray(), null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected audio metadata belong to the genre from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<GenreMembersCursor> fetchPlayableItemsAsync(final long genreId, final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<GenreMembersCursor>() {
+				@Override
+				public GenreMembersCursor run(@Nullable CancellationSignal signal) {
+					return fetchPlayableItems(genreId, projection, order, signal);
+				}
+			}, signal);
 		}
 	}
 
@@ -379,11 +955,11 @@ public class AudioFacade {
 	 */
 	public static class Artist {
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
 
 		protected Artist(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -397,7 +973,28 @@ public class AudioFacade {
 		 * Fetch all artist metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable ArtistCursor fetchArtists(SortOrder order) {
-			return new ArtistCursor(resolver.query(MediaStore.Audio.Artists.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetchArtists(order, null);
+		}
+
+		/**
+		 * Fetch all artist metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable ArtistCursor fetchArtists(SortOrder order, @Nullable CancellationSignal signal) {
+			return new ArtistCursor(QueryCache.query(client, MediaStore.Audio.Artists.EXTERNAL_CONTENT_URI, null, null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch all artist metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<ArtistCursor> fetchArtistsAsync(final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<ArtistCursor>() {
+				@Override
+				public ArtistCursor run(@Nullable CancellationSignal signal) {
+					return fetchArtists(order, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -411,7 +1008,28 @@ public class AudioFacade {
 		 * Fetch all audio metadata belong to the artist from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable ArtistMembersCursor fetchAlbums(long artistId, SortOrder order) {
-			return new ArtistMembersCursor(resolver.query(MediaStore.Audio.Artists.Albums.getContentUri("external", artistId), null, null, null, order.toSql()));
+			return fetchAlbums(artistId, order, null);
+		}
+
+		/**
+		 * Fetch all audio metadata belong to the artist from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable ArtistMembersCursor fetchAlbums(long artistId, SortOrder order, @Nullable CancellationSignal signal) {
+			return new ArtistMembersCursor(QueryCache.query(client, MediaStore.Audio.Artists.Albums.getContentUri("external", artistId), null, null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch all audio metadata belong to the artist from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<ArtistMembersCursor> fetchAlbumsAsync(final long artistId, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<ArtistMembersCursor>() {
+				@Override
+				public ArtistMembersCursor run(@Nullable CancellationSignal signal) {
+					return fetchAlbums(artistId, order, signal);
+				}
+			}, signal);
 		}
 	}
 }
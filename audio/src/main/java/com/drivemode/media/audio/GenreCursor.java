@@ -10,6 +10,8 @@ import com.drivemode.media.common.BaseCursor;
  */
 @SuppressWarnings("unused") // public API
 public class GenreCursor extends BaseCursor {
+	private static final int COL_NAME = column(MediaStore.Audio.Genres.NAME);
+
 	public GenreCursor(Cursor cursor) {
 		super(cursor);
 	}
@@ -18,6 +20,6 @@ public class GenreCursor extends BaseCursor {
 	 * @return Data for {@link android.provider.MediaStore.Audio.Genres#NAME}
 	 */
 	public String displayName() {
-		return getString(MediaStore.Audio.Genres.NAME);
+		return getStringAt(COL_NAME);
 	}
 }
@@ -8,6 +8,9 @@ import android.provider.MediaStore;
  */
 @SuppressWarnings("unused") // public API
 public class GenreMembersCursor extends AudioCursor {
+	private static final int COL_AUDIO_ID = column(MediaStore.Audio.Genres.Members.AUDIO_ID);
+	private static final int COL_GENRE_ID = column(MediaStore.Audio.Genres.Members.GENRE_ID);
+
 	public GenreMembersCursor(Cursor cursor) {
 		super(cursor);
 	}
@@ -16,14 +19,14 @@ public class GenreMembersCursor extends AudioCursor {
 	 * @return Data for {@link android.provider.MediaStore.Audio.Genres.Members#AUDIO_ID}
 	 */
 	public long audioId() {
-		return getLong(MediaStore.Audio.Genres.Members.AUDIO_ID);
+		return getLongAt(COL_AUDIO_ID);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Genres.Members#GENRE_ID}
 	 */
 	public long genreId() {
-		return getLong(MediaStore.Audio.Genres.Members.GENRE_ID);
+		return getLongAt(COL_GENRE_ID);
 	}
 
 }
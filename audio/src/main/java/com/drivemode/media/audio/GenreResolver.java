@@ -0,0 +1,182 @@
+package com.drivemode.media.audio;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.drivemode.media.common.CursorUtils;
+import com.drivemode.media.common.LongMultimap;
+import com.drivemode.media.common.QueryExecutor;
+import com.drivemode.media.common.QueryFuture;
+import com.drivemode.media.common.SharedProviderClient;
+
+/**
+ * Resolves the genres of many audio at once, since {@link AudioCursor#genre()} is not populated by most {@link MediaStore} versions
+ * and the genres of an audio are otherwise found by fetching the members of every genre.
+ * The audio to genre map comes from a {@link MembershipIndex}, which fetches the members of all genres once
+ * and re-fetches only the genres whose members changed. The genre names are fetched along with it.
+ * <pre>
+ * GenreResolver resolver = new GenreResolver(context);
+ * resolver.start();
+ * resolver.prepareAsync(null);
+ * // later, on a worker thread
+ * String[] names = resolver.resolveNames(audioIds);
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class GenreResolver {
+	private static final String[] NAME_PROJECTION = {MediaStore.Audio.Genres._ID, MediaStore.Audio.Genres.NAME};
+	private final MembershipIndex index;
+	private final SharedProviderClient client;
+	private final boolean ownsIndex;
+	private Names names; // guarded by this
+
+	public GenreResolver(@NonNull Context context) {
+		this(context, new MembershipIndex(context), true);
+	}
+
+	/**
+	 * @param context the context.
+	 * @param index the index to share with the other consumers. Its observation is started and stopped by its owner.
+	 */
+	public GenreResolver(@NonNull Context context, @NonNull MembershipIndex index) {
+		this(context, index, false);
+	}
+
+	private GenreResolver(Context context, MembershipIndex index, boolean ownsIndex) {
+		this.index = index;
+		this.client = SharedProviderClient.acquire(context.getApplicationContext(), MediaStore.AUTHORITY);
+		this.ownsIndex = ownsIndex;
+	}
+
+	/**
+	 * Start observing the genres, if the resolver owns its index.
+	 */
+	public void start() {
+		if (ownsIndex)
+			index.start();
+	}
+
+	/**
+	 * Stop observing the genres, if the resolver owns its index.
+	 */
+	public void stop() {
+		if (ownsIndex)
+			index.stop();
+	}
+
+	/**
+	 * Build the audio to genre map and fetch the genre names on a background thread, so that the later reads return immediately.
+	 * Cancel the returned future or the signal to abandon the result. The running queries are not aborted.
+	 */
+	public @NonNull QueryFuture<Void> prepareAsync(@Nullable CancellationSignal signal) {
+		return QueryExecutor.getDefault().submit(new QueryExecutor.Query<Void>() {
+			@Override
+			public Void run(@Nullable CancellationSignal signal) {
+				names();
+				return null;
+			}
+		}, signal);
+	}
+
+	/**
+	 * @return the map from an audio id to the ids of its genres.
+	 */
+	@WorkerThread
+	public @NonNull LongMultimap genresByAudio() {
+		return index.genresByAudio();
+	}
+
+	/**
+	 * @return the ids of the genres of the audio, in ascending order.
+	 */
+	@WorkerThread
+	public @NonNull long[] resolveIds(long audioId) {
+		return index.genresOf(audioId);
+	}
+
+	/**
+	 * @return the name of the genre of the audio, the one with the smallest id if the audio has several, or null if it has none.
+	 */
+	@WorkerThread
+	public @Nullable String resolveName(long audioId) {
+		Names current = names();
+		int position = current.byAudio.indexOfKey(audioId);
+		return position < 0 ? null : current.nameOf(current.byAudio.valueAt(position, 0));
+	}
+
+	/**
+	 * @param audioIds the audio ids.
+	 * @return the name of the genre of each audio in the same order, as {@link #resolveName(long)} gives it.
+	 */
+	@WorkerThread
+	public @NonNull String[] resolveNames(@NonNull long[] audioIds) {
+		Names current = names();
+		String[] result = new String[audioIds.length];
+		for (int i = 0; i < audioIds.length; i++) {
+			int position = current.byAudio.indexOfKey(audioIds[i]);
+			if (position >= 0)
+				result[i] = current.nameOf(current.byAudio.valueAt(position, 0));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the name of the genre, or null if the genre has no member.
+	 */
+	@WorkerThread
+	public @Nullable String getGenreName(long genreId) {
+		return names().nameOf(genreId);
+	}
+
+	/**
+	 * @return the names matching the current members, re-fetched after the members changed.
+	 */
+	private synchronized Names names() {
+		// both maps from the same refresh, so that the names match the genres of the audio
+		MembershipIndex.Memberships memberships = index.genreMemberships();
+		LongMultimap byGenre = memberships.byGroup;
+		LongMultimap byAudio = memberships.byMember;
+		if (names == null || names.byGenre != byGenre) {
+			String[] values = new String[byGenre.keyCount()];
+			// bypass the query cache and the mirror, the names must match the members
+			Cursor cursor = client.query(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI, NAME_PROJECTION, null, null, null, null);
+			try {
+				while (cursor != null && cursor.moveToNext()) {
+					int position = byGenre.indexOfKey(cursor.getLong(0));
+					if (position >= 0)
+						values[position] = cursor.getString(1);
+				}
+			} finally {
+				CursorUtils.close(cursor);
+			}
+			names = new Names(byGenre, byAudio, values);
+		}
+		return names;
+	}
+
+	/**
+	 * The genre names in the order of the genre ids of the members they were fetched for.
+	 */
+	private static final class Names {
+		private final LongMultimap byGenre;
+		private final LongMultimap byAudio;
+		private final String[] values;
+
+		Names(LongMultimap byGenre, LongMultimap byAudio, String[] values) {
+			this.byGenre = byGenre;
+			this.byAudio = byAudio;
+			this.values = values;
+		}
+
+		String nameOf(long genreId) {
+			int position = byGenre.indexOfKey(genreId);
+			return position < 0 ? null : values[position];
+		}
+	}
+}
@@ -0,0 +1,509 @@
+package com.drivemode.media.audio;
+
+import android.database.Cursor;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.drivemode.media.common.LongMultimap;
+import com.drivemode.media.common.Projection;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable artist, album and track hierarchy built from a single scan of the audio table,
+ * instead of fetching the albums of each artist and the tracks of each album.
+ * <p>
+ * Each album is listed under a single artist: its album artist when tagged, {@link #VARIOUS_ARTISTS_ID} for an untagged compilation,
+ * and otherwise the artist of most of its tracks. An album artist matching no track artist by name gets a negative id of its own.
+ * Artists are ordered by name, albums by name within their artist, and tracks by track number within their album,
+ * so that the albums of an artist and the tracks of an album are contiguous ranges of indexes.
+ * <pre>
+ * LibraryGraph graph = facade.media().fetchLibraryGraph();
+ * for (int artist = 0; artist &lt; graph.getArtistCount(); artist++) {
+ *     for (int album = graph.getFirstAlbum(artist); album &lt; graph.getFirstAlbum(artist + 1); album++) {
+ *         // graph.getAlbumName(album), graph.getAlbumTrackCount(album), graph.getAlbumDuration(album)
+ *     }
+ * }
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class LibraryGraph {
+	/**
+	 * The id of the artist grouping the compilations without an album artist.
+	 */
+	public static final long VARIOUS_ARTISTS_ID = -1;
+	/**
+	 * The columns read by {@link #of(Cursor)} which every version of {@link MediaStore} has.
+	 */
+	public static final Projection BASE_PROJECTION = Projection.of(
+			MediaStore.Audio.AudioColumns._ID,
+			MediaStore.Audio.AudioColumns.TITLE,
+			MediaStore.Audio.AudioColumns.DURATION,
+			MediaStore.Audio.AudioColumns.TRACK,
+			MediaStore.Audio.AudioColumns.ARTIST_ID,
+			MediaStore.Audio.AudioColumns.ARTIST,
+			MediaStore.Audio.AudioColumns.ALBUM_ID,
+			MediaStore.Audio.AudioColumns.ALBUM);
+	/**
+	 * The columns read by {@link #of(Cursor)}.
+	 * The album artist and the compilation columns are optional, and the albums are grouped by the track artists without them.
+	 * A provider lacking them rejects this projection, so query {@link #BASE_PROJECTION} then.
+	 */
+	public static final Projection PROJECTION = BASE_PROJECTION.plus("album_artist", "compilation");
+	private static final Comparator<String> NAME_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String l, String r) {
+			if (l == null)
+				return r == null ? 0 : 1;
+			if (r == null)
+				return -1;
+			return l.compareToIgnoreCase(r);
+		}
+	};
+	// artists
+	private final long[] artistIds;
+	private final String[] artistNames;
+	private final int[] firstAlbums; // artist count + 1
+	private final int[] artistTrackCounts;
+	private final long[] artistDurations;
+	// albums, grouped by artist
+	private final long[] albumIds;
+	private final String[] albumNames;
+	private final int[] albumArtists;
+	private final boolean[] compilations;
+	private final int[] firstTracks; // album count + 1
+	private final long[] albumDurations;
+	// tracks, grouped by album
+	private final long[] trackIds;
+	private final String[] trackTitles;
+	private final long[] trackDurations;
+	private final int[] trackNumbers;
+	private final long[] trackArtistIds;
+	private final int[] trackAlbums;
+	// id to index
+	private final LongMultimap artistIndexes;
+	private final LongMultimap albumIndexes;
+	private final LongMultimap trackIndexes;
+
+	private LibraryGraph(final Tracks tracks) {
+		int trackCount = tracks.ids.length;
+		// group the tracks by album
+		LongMultimap.Builder byAlbum = new LongMultimap.Builder(trackCount);
+		for (int i = 0; i < trackCount; i++) {
+			byAlbum.put(tracks.albumIds[i], i);
+		}
+		final LongMultimap albums = byAlbum.build();
+		int albumCount = albums.keyCount();
+
+		// pick the artist of each album
+		Map<String, Long> artistIdsByName = new HashMap<String, Long>();
+		Map<Long, String> artistNamesById = new HashMap<Long, String>();
+		for (int i = 0; i < trackCount; i++) {
+			if (!artistNamesById.containsKey(tracks.artistIds[i]))
+				artistNamesById.put(tracks.artistIds[i], tracks.artistNames[i]);
+			if (tracks.artistNames[i] != null && !artistIdsByName.containsKey(tracks.artistNames[i]))
+				artistIdsByName.put(tracks.artistNames[i], tracks.artistIds[i]);
+		}
+		long nextOwnId = VARIOUS_ARTISTS_ID - 1;
+		boolean[] albumCompilations = new boolean[albumCount];
+		LongMultimap.Builder byArtist = new LongMultimap.Builder(albumCount);
+		for (int a = 0; a < albumCount; a++) {
+			String albumArtist = null;
+			boolean compilation = false;
+			for (int k = 0, n = albums.countAt(a); k < n; k++) {
+				int track = (int) albums.valueAt(a, k);
+				if (albumArtist == null && !TextUtils.isEmpty(tracks.albumArtists[track]))
+					albumArtist = tracks.albumArtists[track];
+				compilation |= tracks.compilations[track];
+			}
+			long artistId;
+			if (albumArtist != null) {
+				Long known = artistIdsByName.get(albumArtist);
+				if (known == null) {
+					known = nextOwnId--;
+					artistIdsByName.put(albumArtist, known);
+					artistNamesById.put(known, albumArtist);
+				}
+				artistId = known;
+			} else if (compilation) {
+				artistId = VARIOUS_ARTISTS_ID;
+			} else {
+				artistId = mostFrequentArtist(albums, a, tracks.artistIds);
+			}
+			albumCompilations[a] = compilation;
+			byArtist.put(artistId, a);
+		}
+		LongMultimap artists = byArtist.build();
+		int artistCount = artists.keyCount();
+
+		// order the artists by name
+		final String[] namesByArtist = new String[artistCount];
+		for (int r = 0; r < artistCount; r++) {
+			namesByArtist[r] = artistNamesById.get(artists.keyAt(r));
+		}
+		Integer[] artistOrder = identity(artistCount);
+		Arrays.sort(artistOrder, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer l, Integer r) {
+				return NAME_ORDER.compare(namesByArtist[l], namesByArtist[r]);
+			}
+		});
+
+		artistIds = new long[artistCount];
+		artistNames = new String[artistCount];
+		firstAlbums = new int[artistCount + 1];
+		artistTrackCounts = new int[artistCount];
+		artistDurations = new long[artistCount];
+		albumIds = new long[albumCount];
+		albumNames = new String[albumCount];
+		albumArtists = new int[albumCount];
+		compilations = new boolean[albumCount];
+		firstTracks = new int[albumCount + 1];
+		albumDurations = new long[albumCount];
+		trackIds = new long[trackCount];
+		trackTitles = new String[trackCount];
+		trackDurations = new long[trackCount];
+		trackNumbers = new int[trackCount];
+		trackArtistIds = new long[trackCount];
+		trackAlbums = new int[trackCount];
+		int album = 0;
+		int track = 0;
+		for (int artist = 0; artist < artistCount; artist++) {
+			int r = artistOrder[artist];
+			artistIds[artist] = artists.keyAt(r);
+			artistNames[artist] = namesByArtist[r];
+			firstAlbums[artist] = album;
+			// order the albums of the artist by name
+			Integer[] albumOrder = new Integer[artists.countAt(r)];
+			for (int k = 0; k < albumOrder.length; k++) {
+				albumOrder[k] = (int) artists.valueAt(r, k);
+			}
+			Arrays.sort(albumOrder, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer l, Integer r) {
+					return NAME_ORDER.compare(albumName(l), albumName(r));
+				}
+
+				private String albumName(int a) {
+					return tracks.albumNames[(int) albums.valueAt(a, 0)];
+				}
+			});
+			for (int a : albumOrder) {
+				albumIds[album] = albums.keyAt(a);
+				albumNames[album] = tracks.albumNames[(int) albums.valueAt(a, 0)];
+				albumArtists[album] = artist;
+				compilations[album] = albumCompilations[a];
+				firstTracks[album] = track;
+				// order the tracks of the album by track number
+				Integer[] trackOrder = new Integer[albums.countAt(a)];
+				for (int k = 0; k < trackOrder.length; k++) {
+					trackOrder[k] = (int) albums.valueAt(a, k);
+				}
+				Arrays.sort(trackOrder, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer l, Integer r) {
+						int diff = tracks.trackNumbers[l] - tracks.trackNumbers[r];
+						return diff != 0 ? diff : NAME_ORDER.compare(tracks.titles[l], tracks.titles[r]);
+					}
+				});
+				for (int t : trackOrder) {
+					trackIds[track] = tracks.ids[t];
+					trackTitles[track] = tracks.titles[t];
+					trackDurations[track] = tracks.durations[t];
+					trackNumbers[track] = tracks.trackNumbers[t];
+					trackArtistIds[track] = tracks.artistIds[t];
+					trackAlbums[track] = album;
+					albumDurations[album] += tracks.durations[t];
+					track++;
+				}
+				artistTrackCounts[artist] += trackOrder.length;
+				artistDurations[artist] += albumDurations[album];
+				album++;
+			}
+		}
+		firstAlbums[artistCount] = album;
+		firstTracks[albumCount] = track;
+		artistIndexes = buildLookup(artistIds);
+		albumIndexes = buildLookup(albumIds);
+		trackIndexes = buildLookup(trackIds);
+	}
+
+	/**
+	 * Build the graph from the audio rows.
+	 * The cursor is read from the first row to the last, and is neither moved back nor closed.
+	 * @param cursor the audio rows with the columns of {@link #PROJECTION}.
+	 * @return the graph.
+	 * @throws IllegalArgumentException if the id, the artist id, or the album id column is missing.
+	 */
+	public static @NonNull LibraryGraph of(@NonNull Cursor cursor) {
+		int id = cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns._ID);
+		int artistId = cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.ARTIST_ID);
+		int albumId = cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.ALBUM_ID);
+		int title = cursor.getColumnIndex(MediaStore.Audio.AudioColumns.TITLE);
+		int duration = cursor.getColumnIndex(MediaStore.Audio.AudioColumns.DURATION);
+		int trackNumber = cursor.getColumnIndex(MediaStore.Audio.AudioColumns.TRACK);
+		int artist = cursor.getColumnIndex(MediaStore.Audio.AudioColumns.ARTIST);
+		int album = cursor.getColumnIndex(MediaStore.Audio.AudioColumns.ALBUM);
+		int albumArtist = cursor.getColumnIndex("album_artist");
+		int compilation = cursor.getColumnIndex("compilation");
+		Tracks tracks = new Tracks(cursor.getCount());
+		int count = 0;
+		cursor.moveToPosition(-1);
+		while (count < tracks.ids.length && cursor.moveToNext()) {
+			tracks.ids[count] = cursor.getLong(id);
+			tracks.artistIds[count] = cursor.getLong(artistId);
+			tracks.albumIds[count] = cursor.getLong(albumId);
+			tracks.titles[count] = title < 0 ? null : cursor.getString(title);
+			tracks.durations[count] = duration < 0 ? 0 : cursor.getLong(duration);
+			tracks.trackNumbers[count] = trackNumber < 0 ? 0 : cursor.getInt(trackNumber);
+			tracks.artistNames[count] = artist < 0 ? null : cursor.getString(artist);
+			tracks.albumNames[count] = album < 0 ? null : cursor.getString(album);
+			tracks.albumArtists[count] = albumArtist < 0 ? null : cursor.getString(albumArtist);
+			tracks.compilations[count] = compilation >= 0 && cursor.getInt(compilation) != 0;
+			count++;
+		}
+		return new LibraryGraph(count == tracks.ids.length ? tracks : tracks.truncate(count));
+	}
+
+	public int getArtistCount() {
+		return artistIds.length;
+	}
+
+	public int getAlbumCount() {
+		return albumIds.length;
+	}
+
+	public int getTrackCount() {
+		return trackIds.length;
+	}
+
+	/**
+	 * @return the index of the artist, or -1 if no album is listed under the artist.
+	 */
+	public int indexOfArtist(long artistId) {
+		return lookup(artistIndexes, artistId);
+	}
+
+	/**
+	 * @return the index of the album, or -1 if the album has no track.
+	 */
+	public int indexOfAlbum(long albumId) {
+		return lookup(albumIndexes, albumId);
+	}
+
+	/**
+	 * @return the index of the track, or -1 if the graph does not contain the track.
+	 */
+	public int indexOfTrack(long audioId) {
+		return lookup(trackIndexes, audioId);
+	}
+
+	/**
+	 * @return the artist id, or a negative id for {@link #VARIOUS_ARTISTS_ID} and for an album artist matching no track artist.
+	 */
+	public long getArtistId(int artist) {
+		return artistIds[artist];
+	}
+
+	/**
+	 * @return the artist name, or null for {@link #VARIOUS_ARTISTS_ID}.
+	 */
+	public @Nullable String getArtistName(int artist) {
+		return artistNames[artist];
+	}
+
+	/**
+	 * @param artist the artist index, from 0 to {@link #getArtistCount()}, the count giving the end of the last range.
+	 * @return the index of the first album of the artist.
+	 */
+	public int getFirstAlbum(int artist) {
+		return firstAlbums[artist];
+	}
+
+	public int getArtistAlbumCount(int artist) {
+		return firstAlbums[artist + 1] - firstAlbums[artist];
+	}
+
+	public int getArtistTrackCount(int artist) {
+		return artistTrackCounts[artist];
+	}
+
+	/**
+	 * @return the total duration of the tracks of the artist's albums in milliseconds.
+	 */
+	public long getArtistDuration(int artist) {
+		return artistDurations[artist];
+	}
+
+	public long getAlbumId(int album) {
+		return albumIds[album];
+	}
+
+	public @Nullable String getAlbumName(int album) {
+		return albumNames[album];
+	}
+
+	/**
+	 * @return the index of the artist the album is listed under.
+	 */
+	public int getAlbumArtist(int album) {
+		return albumArtists[album];
+	}
+
+	public boolean isCompilation(int album) {
+		return compilations[album];
+	}
+
+	/**
+	 * @param album the album index, from 0 to {@link #getAlbumCount()}, the count giving the end of the last range.
+	 * @return the index of the first track of the album.
+	 */
+	public int getFirstTrack(int album) {
+		return firstTracks[album];
+	}
+
+	public int getAlbumTrackCount(int album) {
+		return firstTracks[album + 1] - firstTracks[album];
+	}
+
+	/**
+	 * @return the total duration of the tracks of the album in milliseconds.
+	 */
+	public long getAlbumDuration(int album) {
+		return albumDurations[album];
+	}
+
+	public long getTrackId(int track) {
+		return trackIds[track];
+	}
+
+	public @Nullable String getTrackTitle(int track) {
+		return trackTitles[track];
+	}
+
+	public long getTrackDuration(int track) {
+		return trackDurations[track];
+	}
+
+	public int getTrackNumber(int track) {
+		return trackNumbers[track];
+	}
+
+	/**
+	 * @return the id of the track artist, which may differ from the artist the album is listed under.
+	 */
+	public long getTrackArtistId(int track) {
+		return trackArtistIds[track];
+	}
+
+	/**
+	 * @return the index of the album of the track.
+	 */
+	public int getTrackAlbum(int track) {
+		return trackAlbums[track];
+	}
+
+	@Override
+	public String toString() {
+		return "LibraryGraph{" +
+				"artists=" + artistIds.length +
+				", albums=" + albumIds.length +
+				", tracks=" + trackIds.length +
+				'}';
+	}
+
+	private static LongMultimap buildLookup(long[] ids) {
+		LongMultimap.Builder builder = new LongMultimap.Builder(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			builder.put(ids[i], i);
+		}
+		return builder.build();
+	}
+
+	private static int lookup(LongMultimap indexes, long id) {
+		int index = indexes.indexOfKey(id);
+		return index < 0 ? -1 : (int) indexes.valueAt(index, 0);
+	}
+
+	private static long mostFrequentArtist(LongMultimap albums, int album, long[] artistIds) {
+		int n = albums.countAt(album);
+		long[] candidates = new long[n];
+		for (int k = 0; k < n; k++) {
+			candidates[k] = artistIds[(int) albums.valueAt(album, k)];
+		}
+		long first = candidates[0];
+		Arrays.sort(candidates);
+		long best = first;
+		int bestRun = 0;
+		for (int start = 0; start < n; ) {
+			int end = start + 1;
+			while (end < n && candidates[end] == candidates[start]) {
+				end++;
+			}
+			if (end - start > bestRun || (end - start == bestRun && candidates[start] == first)) {
+				best = candidates[start];
+				bestRun = end - start;
+			}
+			start = end;
+		}
+		return best;
+	}
+
+	private static Integer[] identity(int size) {
+		Integer[] indexes = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			indexes[i] = i;
+		}
+		return indexes;
+	}
+
+	/**
+	 * The columns of the scanned rows.
+	 */
+	private static final class Tracks {
+		private final long[] ids;
+		private final long[] artistIds;
+		private final long[] albumIds;
+		private final String[] titles;
+		private final long[] durations;
+		private final int[] trackNumbers;
+		private final String[] artistNames;
+		private final String[] albumNames;
+		private final String[] albumArtists;
+		private final boolean[] compilations;
+
+		Tracks(int count) {
+			ids = new long[count];
+			artistIds = new long[count];
+			albumIds = new long[count];
+			titles = new String[count];
+			durations = new long[count];
+			trackNumbers = new int[count];
+			artistNames = new String[count];
+			albumNames = new String[count];
+			albumArtists = new String[count];
+			compilations = new boolean[count];
+		}
+
+		Tracks truncate(int count) {
+			Tracks result = new Tracks(count);
+			System.arraycopy(ids, 0, result.ids, 0, count);
+			System.arraycopy(artistIds, 0, result.artistIds, 0, count);
+			System.arraycopy(albumIds, 0, result.albumIds, 0, count);
+			System.arraycopy(titles, 0, result.titles, 0, count);
+			System.arraycopy(durations, 0, result.durations, 0, count);
+			System.arraycopy(trackNumbers, 0, result.trackNumbers, 0, count);
+			System.arraycopy(artistNames, 0, result.artistNames, 0, count);
+			System.arraycopy(albumNames, 0, result.albumNames, 0, count);
+			System.arraycopy(albumArtists, 0, result.albumArtists, 0, count);
+			System.arraycopy(compilations, 0, result.compilations, 0, count);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,332 @@
+package com.drivemode.media.audio;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.drivemode.media.common.CursorUtils;
+import com.drivemode.media.common.LongMultimap;
+import com.drivemode.media.common.SharedProviderClient;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reverse index from an audio to the playlists and the genres containing it,
+ * instead of one {@code fetchPlayableItems} query per playlist or per genre to find them.
+ * The index is built in a single pass over all playlists and genres, and kept in {@link LongMultimap}s of primitive ids.
+ * <p>
+ * While started, the index observes the playlists and the genres and marks the changed ones stale.
+ * The stale parts are refreshed on the next read, re-fetching the members of a single playlist or genre when the notification tells which one changed.
+ * Changes to the audio media mark the whole index stale, since the media scanner assigns genres
+ * and deleting an audio removes it from its playlists without notifying them.
+ * Reads may query {@link MediaStore}, so call them on a worker thread, or call {@link #refresh()} there beforehand.
+ * <pre>
+ * MembershipIndex index = new MembershipIndex(context);
+ * index.start();
+ * long[] playlistIds = index.playlistsOf(audioId);
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class MembershipIndex {
+	private final Context context;
+	private final SharedProviderClient client;
+	private final Group playlists = new Group(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI);
+	private final Group genres = new Group(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI);
+	private ContentObserver observer; // guarded by this
+
+	public MembershipIndex(@NonNull Context context) {
+		this.context = context.getApplicationContext();
+		this.client = SharedProviderClient.acquire(this.context, MediaStore.AUTHORITY);
+	}
+
+	/**
+	 * Start observing the playlists, the genres, and the audio media. Does nothing if already started.
+	 */
+	public synchronized void start() {
+		if (observer != null)
+			return;
+		observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				onChange(selfChange, null);
+			}
+
+			@Override
+			public void onChange(boolean selfChange, @Nullable Uri uri) {
+				if (uri == null) {
+					playlists.invalidate();
+					genres.invalidate();
+				} else if (!playlists.invalidate(uri) && !genres.invalidate(uri)) {
+					// audio media
+					playlists.invalidate();
+					genres.invalidate();
+				}
+			}
+		};
+		context.getContentResolver().registerContentObserver(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, true, observer);
+		context.getContentResolver().registerContentObserver(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI, true, observer);
+		context.getContentResolver().registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, observer);
+		// changes made while stopped were not observed
+		playlists.invalidate();
+		genres.invalidate();
+	}
+
+	/**
+	 * Stop observing. The index is rebuilt on the first read after the next {@link #start()}.
+	 */
+	public synchronized void stop() {
+		if (observer == null)
+			return;
+		context.getContentResolver().unregisterContentObserver(observer);
+		observer = null;
+	}
+
+	/**
+	 * Bring the stale parts of the index up to date.
+	 */
+	@WorkerThread
+	public void refresh() {
+		playlists.refresh(client, MediaStore.Audio.Playlists.Members.AUDIO_ID);
+		genres.refresh(client, MediaStore.Audio.Genres.Members.AUDIO_ID);
+	}
+
+	/**
+	 * Mark the whole index stale, so that it is rebuilt on the next read.
+	 */
+	public void invalidate() {
+		playlists.invalidate();
+		genres.invalidate();
+	}
+
+	/**
+	 * @return the ids of the playlists containing the audio, in ascending order.
+	 */
+	@WorkerThread
+	public @NonNull long[] playlistsOf(long audioId) {
+		return playlistsByAudio().get(audioId);
+	}
+
+	/**
+	 * @return the ids of the genres of the audio, in ascending order.
+	 */
+	@WorkerThread
+	public @NonNull long[] genresOf(long audioId) {
+		return genresByAudio().get(audioId);
+	}
+
+	/**
+	 * @return true if the playlist contains the audio.
+	 */
+	@WorkerThread
+	public boolean isInPlaylist(long audioId, long playlistId) {
+		return playlistsByAudio().containsEntry(audioId, playlistId);
+	}
+
+	/**
+	 * @return true if the audio has the genre.
+	 */
+	@WorkerThread
+	public boolean hasGenre(long audioId, long genreId) {
+		return genresByAudio().containsEntry(audioId, genreId);
+	}
+
+	/**
+	 * @return the map from an audio id to the ids of the playlists containing it.
+	 */
+	@WorkerThread
+	public @NonNull LongMultimap playlistsByAudio() {
+		return playlists.snapshot(client, MediaStore.Audio.Playlists.Members.AUDIO_ID).byMember;
+	}
+
+	/**
+	 * @return the map from an audio id to the ids of its genres.
+	 */
+	@WorkerThread
+	public @NonNull LongMultimap genresByAudio() {
+		return genres.snapshot(client, MediaStore.Audio.Genres.Members.AUDIO_ID).byMember;
+	}
+
+	/**
+	 * @return the map from a playlist id to the audio ids in it.
+	 */
+	@WorkerThread
+	public @NonNull LongMultimap audioByPlaylist() {
+		return playlists.snapshot(client, MediaStore.Audio.Playlists.Members.AUDIO_ID).byGroup;
+	}
+
+	/**
+	 * @return the map from a genre id to the audio ids of the genre.
+	 */
+	@WorkerThread
+	public @NonNull LongMultimap audioByGenre() {
+		return genres.snapshot(client, MediaStore.Audio.Genres.Members.AUDIO_ID).byGroup;
+	}
+
+	/**
+	 * @return both maps of the genre members, from the same refresh.
+	 */
+	@WorkerThread
+	/* package */ @NonNull Memberships genreMemberships() {
+		return genres.snapshot(client, MediaStore.Audio.Genres.Members.AUDIO_ID);
+	}
+
+	/**
+	 * The maps of the same members of the playlists or of the genres, in both directions.
+	 */
+	/* package */ static final class Memberships {
+		/* package */ static final Memberships EMPTY = new Memberships(LongMultimap.EMPTY_MAP, LongMultimap.EMPTY_MAP);
+		/* package */ final LongMultimap byGroup;
+		/* package */ final LongMultimap byMember;
+
+		/* package */ Memberships(LongMultimap byGroup, LongMultimap byMember) {
+			this.byGroup = byGroup;
+			this.byMember = byMember;
+		}
+	}
+
+	/**
+	 * Members of the playlists or of the genres, with the ids of the groups changed since the last refresh.
+	 */
+	private static final class Group {
+		private static final String[] ID_PROJECTION = {BaseColumns._ID};
+		/**
+		 * Above this number of changed groups, the members of all groups are fetched again.
+		 */
+		private static final int MAX_PARTIAL_REFRESH = 16;
+		private final Uri uri;
+		private final List<String> segments;
+		// the pending changes are guarded by pendingLock, which is never held across a query so that notifications do not wait
+		private final Object pendingLock = new Object();
+		private boolean stale = true;
+		private long[] pending = new long[4];
+		private int pendingCount;
+		// replaced under the lock of the group, both maps at once
+		private volatile Memberships memberships = Memberships.EMPTY;
+
+		Group(Uri uri) {
+			this.uri = uri;
+			this.segments = uri.getPathSegments();
+		}
+
+		void invalidate() {
+			synchronized (pendingLock) {
+				stale = true;
+				pendingCount = 0;
+			}
+		}
+
+		/**
+		 * @return false if the uri is not of this group.
+		 */
+		boolean invalidate(Uri changed) {
+			List<String> path = changed.getPathSegments();
+			if (path.size() < segments.size() || !path.subList(0, segments.size()).equals(segments))
+				return false;
+			long groupId = -1;
+			if (path.size() > segments.size()) {
+				try {
+					groupId = Long.parseLong(path.get(segments.size()));
+				} catch (NumberFormatException e) {
+					groupId = -1;
+				}
+			}
+			synchronized (pendingLock) {
+				if (groupId < 0 || pendingCount == MAX_PARTIAL_REFRESH) {
+					// a group was added, or too many changed
+					stale = true;
+					pendingCount = 0;
+				} else if (!stale) {
+					for (int i = 0; i < pendingCount; i++) {
+						if (pending[i] == groupId)
+							return true;
+					}
+					if (pendingCount == pending.length)
+						pending = Arrays.copyOf(pending, pendingCount * 2);
+					pending[pendingCount++] = groupId;
+				}
+			}
+			return true;
+		}
+
+		@NonNull Memberships snapshot(SharedProviderClient client, String memberColumn) {
+			refresh(client, memberColumn);
+			return memberships;
+		}
+
+		synchronized void refresh(SharedProviderClient client, String memberColumn) {
+			boolean all;
+			long[] changed;
+			synchronized (pendingLock) {
+				all = stale;
+				changed = Arrays.copyOf(pending, pendingCount);
+				stale = false;
+				pendingCount = 0;
+			}
+			if (!all && changed.length == 0)
+				return;
+			boolean done = false;
+			try {
+				LongMultimap result;
+				if (all) {
+					result = fetchAll(client, memberColumn);
+				} else {
+					result = memberships.byGroup;
+					for (long groupId : changed) {
+						result = result.with(groupId, fetchMembers(client, groupId, memberColumn));
+					}
+				}
+				memberships = new Memberships(result, result.inverse());
+				done = true;
+			} finally {
+				if (!done)
+					invalidate(); // try again on the next read
+			}
+		}
+
+		private LongMultimap fetchAll(SharedProviderClient client, String memberColumn) {
+			// bypass the query cache and the mirror, the index must see the current members
+			Cursor cursor = client.query(uri, ID_PROJECTION, null, null, null, null);
+			long[] groupIds;
+			try {
+				if (cursor == null)
+					return LongMultimap.EMPTY_MAP;
+				groupIds = new long[cursor.getCount()];
+				for (int i = 0; i < groupIds.length && cursor.moveToNext(); i++) {
+					groupIds[i] = cursor.getLong(0);
+				}
+			} finally {
+				CursorUtils.close(cursor);
+			}
+			LongMultimap.Builder builder = new LongMultimap.Builder(groupIds.length * 16);
+			for (long groupId : groupIds) {
+				builder.putAll(groupId, fetchMembers(client, groupId, memberColumn));
+			}
+			return builder.build();
+		}
+
+		private long[] fetchMembers(SharedProviderClient client, long groupId, String memberColumn) {
+			Uri members = uri.buildUpon().appendEncodedPath(groupId + "/members").build();
+			Cursor cursor = client.query(members, new String[] {memberColumn}, null, null, null, null);
+			try {
+				if (cursor == null)
+					return new long[0];
+				long[] ids = new long[cursor.getCount()];
+				int count = 0;
+				while (count < ids.length && cursor.moveToNext()) {
+					ids[count++] = cursor.getLong(0);
+				}
+				return count == ids.length ? ids : Arrays.copyOf(ids, count);
+			} finally {
+				CursorUtils.close(cursor);
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.drivemode.media.audio;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Computes play order numbers for a reordered playlist so that as few member rows as possible are written.
+ * The members whose current order numbers form the longest increasing subsequence of the new sequence keep their numbers,
+ * and the others are spread evenly in the gaps between them.
+ * When a gap is too narrow, it is widened by renumbering the following members too until the gap is at most half full,
+ * and the numbers given at the end of the list are {@link #GAP} apart, so that later moves find room.
+ * When the numbers up to {@link Integer#MAX_VALUE} run out at the end of the list, the members before it are renumbered too.
+ * The first move in a densely numbered playlist may renumber its tail, and the following moves write a few rows.
+ * @author KeithYokoma
+ */
+/* package */ final class PlayOrders {
+	/**
+	 * The distance between the order numbers given at the end of the list.
+	 */
+	/* package */ static final int GAP = 1024;
+
+	private PlayOrders() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * @param orders the current order numbers of the members, in the new sequence.
+	 * @return the new order numbers of the members, strictly increasing and not negative.
+	 */
+	/* package */ static @NonNull int[] reorder(@NonNull int[] orders) {
+		int n = orders.length;
+		boolean[] keep = longestIncreasing(orders);
+		int[] result = orders.clone();
+		int start = 0;
+		while (start < n) {
+			if (keep[start]) {
+				start++;
+				continue;
+			}
+			int end = start;
+			while (end < n && !keep[end]) {
+				end++;
+			}
+			long low = start > 0 ? result[start - 1] : -1;
+			if (end < n && orders[end] - low <= end - start) {
+				// widen the run over the following members until the members fill at most half of the gap,
+				// so that the renumbered range leaves room for the next moves
+				do {
+					end++;
+					while (end < n && !keep[end]) {
+						end++;
+					}
+				} while (end < n && orders[end] - low <= 2L * (end - start));
+			}
+			if (end == n) {
+				// widen the tail run back over the preceding members until the numbers up to the maximum are enough
+				while (start > 0 && Integer.MAX_VALUE - low < end - start) {
+					start--;
+					low = start > 0 ? result[start - 1] : -1;
+				}
+			}
+			int count = end - start;
+			long step;
+			if (end < n)
+				step = (orders[end] - low) / (count + 1);
+			else
+				step = Math.max(1, Math.min(GAP, (Integer.MAX_VALUE - low) / (count + 1)));
+			for (int i = 0; i < count; i++) {
+				result[start + i] = (int) (low + step * (i + 1));
+			}
+			start = end;
+		}
+		return result;
+	}
+
+	/**
+	 * Patience sorting in O(n log n).
+	 * @return the flags of the members in a longest strictly increasing subsequence of non negative numbers.
+	 */
+	private static boolean[] longestIncreasing(int[] values) {
+		int n = values.length;
+		int[] tails = new int[n]; // index of the smallest tail of the subsequence of each length
+		int[] previous = new int[n];
+		int length = 0;
+		for (int i = 0; i < n; i++) {
+			if (values[i] < 0) {
+				previous[i] = -1;
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (values[tails[mid]] < values[i])
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			previous[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length)
+				length++;
+		}
+		boolean[] keep = new boolean[n];
+		for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+			keep[i] = true;
+		}
+		return keep;
+	}
+}
@@ -10,6 +10,11 @@ import com.drivemode.media.common.BaseCursor;
  */
 @SuppressWarnings("unused") // public API
 public class PlaylistCursor extends BaseCursor {
+	private static final int COL_NAME = column(MediaStore.Audio.Playlists.NAME);
+	private static final int COL_DATA = column(MediaStore.Audio.Playlists.DATA);
+	private static final int COL_DATE_ADDED = column(MediaStore.Audio.Playlists.DATE_ADDED);
+	private static final int COL_DATE_MODIFIED = column(MediaStore.Audio.Playlists.DATE_MODIFIED);
+
 	public PlaylistCursor(Cursor cursor) {
 		super(cursor);
 	}
@@ -18,27 +23,27 @@ public class PlaylistCursor extends BaseCursor {
 	 * @return Data for {@link android.provider.MediaStore.Audio.Playlists#NAME}
 	 */
 	public String name() {
-		return getString(MediaStore.Audio.Playlists.NAME);
+		return getStringAt(COL_NAME);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Playlists#DATA}
 	 */
 	public String data() {
-		return getString(MediaStore.Audio.Playlists.DATA);
+		return getStringAt(COL_DATA);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Playlists#DATE_ADDED}
 	 */
 	public long createdAt() {
-		return getLong(MediaStore.Audio.Playlists.DATE_ADDED);
+		return getLongAt(COL_DATE_ADDED);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Audio.Playlists#DATE_MODIFIED}
 	 */
 	public long updatedAt() {
-		return getLong(MediaStore.Audio.Playlists.DATE_MODIFIED);
+		return getLongAt(COL_DATE_MODIFIED);
 	}
 }
@@ -0,0 +1,177 @@
+package com.drivemode.media.audio;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.OperationApplicationException;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import com.drivemode.media.common.SharedProviderClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Editing session collecting playlist edits and committing them in batches,
+ * instead of one provider call per edit.
+ * Only the number of provider calls goes down: {@link MediaStore} still applies each operation of a batch one by one,
+ * and sends a change notification for each of them.
+ * Edits are applied in the order they are added, {@link #DEFAULT_BATCH_SIZE} operations per {@code applyBatch} call.
+ * {@link MediaStore} applies each batch in a single transaction, so a failure rolls back the failing batch only.
+ * <pre>
+ * facade.playlist().edit()
+ *         .rename(playlistId, "Road trip")
+ *         .insertItem(playlistId, audioId, 10)
+ *         .removeItem(otherPlaylistId, audioId)
+ *         .commit();
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class PlaylistEditor {
+	/**
+	 * The default number of operations applied in a single batch.
+	 * Keeps each batch well below the Binder transaction limit.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	private final SharedProviderClient client;
+	private final int batchSize;
+	private final ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+
+	/* package */ PlaylistEditor(@NonNull SharedProviderClient client, int batchSize) {
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+		this.client = client;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Rename the playlist.
+	 * @param playlistId the playlist.
+	 * @param name new name for the playlist.
+	 * @return this editor.
+	 */
+	public @NonNull PlaylistEditor rename(long playlistId, @NonNull String name) {
+		operations.add(ContentProviderOperation.newUpdate(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI)
+				.withSelection(MediaStore.Audio.Playlists._ID + " = ?", new String[] {String.valueOf(playlistId)})
+				.withValue(MediaStore.Audio.Playlists.NAME, name)
+				.build());
+		return this;
+	}
+
+	/**
+	 * Delete the playlist.
+	 * @param playlistId the playlist.
+	 * @return this editor.
+	 */
+	public @NonNull PlaylistEditor remove(long playlistId) {
+		operations.add(ContentProviderOperation.newDelete(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI)
+				.withSelection(MediaStore.Audio.Playlists._ID + " = ?", new String[] {String.valueOf(playlistId)})
+				.build());
+		return this;
+	}
+
+	/**
+	 * Put the audio to the playlist.
+	 * @param playlistId the playlist.
+	 * @param audioId the audio id to be included to the playlist.
+	 * @param playOrder where to put the audio.
+	 * @return this editor.
+	 */
+	public @NonNull PlaylistEditor insertItem(long playlistId, long audioId, int playOrder) {
+		operations.add(ContentProviderOperation.newInsert(membersUri(playlistId))
+				.withValue(MediaStore.Audio.Playlists.Members.AUDIO_ID, audioId)
+				.withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, playOrder)
+				.build());
+		return this;
+	}
+
+	/**
+	 * Remove the audio from the playlist.
+	 * @param playlistId the playlist.
+	 * @param audioId the audio id to be excluded from the playlist.
+	 * @return this editor.
+	 */
+	public @NonNull PlaylistEditor removeItem(long playlistId, long audioId) {
+		operations.add(ContentProviderOperation.newDelete(membersUri(playlistId))
+				.withSelection(MediaStore.Audio.Playlists.Members.AUDIO_ID + " = ?", new String[] {String.valueOf(audioId)})
+				.build());
+		return this;
+	}
+
+	/**
+	 * Move the item in the playlist, shifting the items in between, the same way as {@link MediaStore.Audio.Playlists.Members#moveItem}.
+	 * @param playlistId the playlist.
+	 * @param from the current position of the item.
+	 * @param to the new position of the item.
+	 * @return this editor.
+	 */
+	public @NonNull PlaylistEditor moveItem(long playlistId, int from, int to) {
+		Uri uri = membersUri(playlistId).buildUpon()
+				.appendEncodedPath(String.valueOf(from))
+				.appendQueryParameter("move", "true")
+				.build();
+		operations.add(ContentProviderOperation.newUpdate(uri)
+				.withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, to)
+				.build());
+		return this;
+	}
+
+	/**
+	 * Set the play order of the member row.
+	 * @param playlistId the playlist.
+	 * @param memberId the {@link MediaStore.Audio.Playlists.Members#_ID} of the member row.
+	 * @param playOrder the new play order.
+	 * @return this editor.
+	 */
+	public @NonNull PlaylistEditor setPlayOrder(long playlistId, long memberId, int playOrder) {
+		operations.add(ContentProviderOperation.newUpdate(membersUri(playlistId))
+				.withSelection(MediaStore.Audio.Playlists.Members._ID + " = ?", new String[] {String.valueOf(memberId)})
+				.withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, playOrder)
+				.build());
+		return this;
+	}
+
+	/**
+	 * @return the number of pending operations.
+	 */
+	public int size() {
+		return operations.size();
+	}
+
+	/**
+	 * Drop the pending operations.
+	 */
+	public void clear() {
+		operations.clear();
+	}
+
+	/**
+	 * Apply the pending operations. The editor is empty afterwards and can be reused.
+	 * When a batch fails, the operations of the preceding batches stay applied and every pending operation is dropped.
+	 * @return the results in the order of the operations.
+	 * @throws RemoteException if the provider has died.
+	 * @throws OperationApplicationException if an operation failed.
+	 */
+	@WorkerThread
+	public @NonNull ContentProviderResult[] commit() throws RemoteException, OperationApplicationException {
+		ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+		try {
+			for (int start = 0, size = operations.size(); start < size; start += batchSize) {
+				List<ContentProviderOperation> batch = operations.subList(start, Math.min(start + batchSize, size));
+				ContentProviderResult[] applied = client.applyBatch(new ArrayList<ContentProviderOperation>(batch));
+				System.arraycopy(applied, 0, results, start, applied.length);
+			}
+		} finally {
+			operations.clear();
+		}
+		return results;
+	}
+
+	private static Uri membersUri(long playlistId) {
+		return MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId);
+	}
+}
@@ -0,0 +1,144 @@
+package com.drivemode.media.audio;
+
+import android.content.ContentValues;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.drivemode.media.common.LongIterator;
+import com.drivemode.media.common.SharedProviderClient;
+
+import java.util.Arrays;
+
+/**
+ * Streams audio ids of any number into a playlist in chunks small enough for a single Binder transaction.
+ * The items are appended after the current tail of the playlist, and the {@link ContentValues} are reused across chunks.
+ * A failed chunk is reported and skipped, leaving a gap in the order numbers, and the import goes on with the next chunk.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class PlaylistImport {
+	/**
+	 * The default number of items in a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	private final SharedProviderClient client;
+	private final int chunkSize;
+
+	/* package */ PlaylistImport(@NonNull SharedProviderClient client, int chunkSize) {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+		this.client = client;
+		this.chunkSize = chunkSize;
+	}
+
+	/* package */ @WorkerThread @NonNull Result run(long playlistId, int firstPlayOrder, @NonNull LongIterator audioIds, @Nullable Listener listener) {
+		Uri uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId);
+		ContentValues[] values = new ContentValues[chunkSize];
+		for (int i = 0; i < chunkSize; i++) {
+			values[i] = new ContentValues(2);
+		}
+		int processed = 0;
+		int inserted = 0;
+		int failed = 0;
+		int playOrder = firstPlayOrder;
+		while (audioIds.hasNext()) {
+			int count = 0;
+			while (count < chunkSize && audioIds.hasNext()) {
+				ContentValues value = values[count++];
+				value.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, audioIds.nextLong());
+				value.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, playOrder++);
+			}
+			ContentValues[] chunk = count == chunkSize ? values : Arrays.copyOf(values, count);
+			int offset = processed;
+			processed += count;
+			try {
+				int chunkInserted = client.bulkInsert(uri, chunk);
+				inserted += chunkInserted;
+				failed += count - chunkInserted;
+				if (listener != null)
+					listener.onChunk(offset, count, chunkInserted);
+			} catch (RuntimeException e) {
+				failed += count;
+				if (listener != null)
+					listener.onChunkFailed(offset, count, e);
+			}
+		}
+		return new Result(processed, inserted, failed);
+	}
+
+	/**
+	 * Receives the progress of the import. Called on the importing thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called after each chunk is sent.
+		 * @param offset the index of the first item of the chunk in the id source.
+		 * @param count the number of items in the chunk.
+		 * @param inserted the number of items the provider inserted, less than the count if some were rejected.
+		 */
+		void onChunk(int offset, int count, int inserted);
+
+		/**
+		 * Called when the provider failed to insert the chunk.
+		 * @param offset the index of the first item of the chunk in the id source.
+		 * @param count the number of items in the chunk.
+		 * @param error the error.
+		 */
+		void onChunkFailed(int offset, int count, @NonNull RuntimeException error);
+	}
+
+	/**
+	 * The outcome of an import.
+	 */
+	public static final class Result {
+		private final int processed;
+		private final int inserted;
+		private final int failed;
+
+		/* package */ Result(int processed, int inserted, int failed) {
+			this.processed = processed;
+			this.inserted = inserted;
+			this.failed = failed;
+		}
+
+		/**
+		 * @return the number of ids read from the source.
+		 */
+		public int getProcessed() {
+			return processed;
+		}
+
+		/**
+		 * @return the number of items inserted into the playlist.
+		 */
+		public int getInserted() {
+			return inserted;
+		}
+
+		/**
+		 * @return the number of items not inserted.
+		 */
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return true if every item was inserted.
+		 */
+		public boolean isComplete() {
+			return failed == 0;
+		}
+
+		@Override
+		public String toString() {
+			return "Result{" +
+					"processed=" + processed +
+					", inserted=" + inserted +
+					", failed=" + failed +
+					'}';
+		}
+	}
+}
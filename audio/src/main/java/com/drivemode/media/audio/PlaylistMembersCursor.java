@@ -8,6 +8,11 @@ import android.provider.MediaStore;
  */
 @SuppressWarnings("unused") // public API
 public class PlaylistMembersCursor extends AudioCursor {
+  private static final int COL_MEMBERS_ID = column(MediaStore.Audio.Playlists.Members._ID);
+  private static final int COL_AUDIO_ID = column(MediaStore.Audio.Playlists.Members.AUDIO_ID);
+  private static final int COL_PLAYLIST_ID = column(MediaStore.Audio.Playlists.Members.PLAYLIST_ID);
+  private static final int COL_PLAY_ORDER = column(MediaStore.Audio.Playlists.Members.PLAY_ORDER);
+
   public PlaylistMembersCursor(Cursor cursor) {
     super(cursor);
   }
@@ -16,27 +21,27 @@ public class PlaylistMembersCursor extends AudioCursor {
    * @return Data for {@link android.provider.MediaStore.Audio.Playlists.Members#_ID}
    */
   public long mebersId() {
-    return getLong(MediaStore.Audio.Playlists.Members._ID);
+    return getLongAt(COL_MEMBERS_ID);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Playlists.Members#AUDIO_ID}
    */
   public long audioId() {
-    return getLong(MediaStore.Audio.Playlists.Members.AUDIO_ID);
+    return getLongAt(COL_AUDIO_ID);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Playlists.Members#PLAYLIST_ID}
    */
   public long playlistId() {
-    return getLong(MediaStore.Audio.Playlists.Members.PLAYLIST_ID);
+    return getLongAt(COL_PLAYLIST_ID);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.Audio.Playlists.Members#PLAY_ORDER}
    */
   public int playOrder() {
-    return getInt(MediaStore.Audio.Playlists.Members.PLAY_ORDER);
+    return getIntAt(COL_PLAY_ORDER);
   }
 }
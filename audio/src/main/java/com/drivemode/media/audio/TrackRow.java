@@ -0,0 +1,37 @@
+package com.drivemode.media.audio;
+
+import android.provider.MediaStore;
+
+import com.drivemode.media.annotations.Column;
+import com.drivemode.media.annotations.CursorRow;
+
+/**
+ * Row of the track list. {@link TrackRowCursor} and {@link TrackRowRecord} are generated from this declaration.
+ * <pre>
+ * TrackRowCursor cursor = new TrackRowCursor(facade.media().fetch(TrackRowCursor.PROJECTION, order));
+ * </pre>
+ * @author KeithYokoma
+ */
+@CursorRow
+public interface TrackRow {
+	@Column(MediaStore.Audio.Media._ID)
+	long id();
+
+	@Column(MediaStore.Audio.Media.TITLE)
+	String title();
+
+	@Column(MediaStore.Audio.Media.ARTIST_ID)
+	long artistId();
+
+	@Column(MediaStore.Audio.Media.ARTIST)
+	String artistName();
+
+	@Column(MediaStore.Audio.Media.ALBUM_ID)
+	long albumId();
+
+	@Column(MediaStore.Audio.Media.ALBUM)
+	String albumName();
+
+	@Column(MediaStore.Audio.Media.DURATION)
+	long duration();
+}
@@ -0,0 +1,146 @@
+package com.drivemode.media.audio;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author KeithYokoma
+ */
+public class PlayOrdersTest {
+	@Test
+	public void reorder_keepsIncreasingOrders() throws Exception {
+		int[] orders = {0, 10, 20, 30};
+		assertArrayEquals(orders, PlayOrders.reorder(orders));
+	}
+
+	@Test
+	public void reorder_movesIntoGap() throws Exception {
+		// the last member moved to the second position
+		int[] updated = PlayOrders.reorder(new int[] {0, 30, 10, 20});
+		assertIncreasing(updated);
+		assertEquals(1, changes(new int[] {0, 30, 10, 20}, updated));
+	}
+
+	@Test
+	public void reorder_denseList() throws Exception {
+		int n = 3000;
+		int[] orders = new int[n];
+		for (int i = 0; i < n; i++) {
+			orders[i] = i;
+		}
+		// the first move in a dense list renumbers the tail
+		int[] moved = move(orders, n - 1, 10);
+		int[] first = PlayOrders.reorder(moved);
+		assertIncreasing(first);
+		assertEquals(2990, changes(moved, first));
+		// the next moves find room in the widened gaps
+		moved = move(first, n - 1, 20);
+		int[] second = PlayOrders.reorder(moved);
+		assertIncreasing(second);
+		assertEquals(1, changes(moved, second));
+	}
+
+	@Test
+	public void reorder_duplicateOrders() throws Exception {
+		int[] orders = {5, 5, 5, 6, 6};
+		int[] updated = PlayOrders.reorder(orders);
+		assertIncreasing(updated);
+		// equal numbers are not increasing, but some member keeps its number
+		assertTrue(changes(orders, updated) < orders.length);
+	}
+
+	@Test
+	public void reorder_negativeOrders() throws Exception {
+		int[] orders = {-1, -5, 3, 4, -2};
+		int[] updated = PlayOrders.reorder(orders);
+		assertIncreasing(updated);
+		assertEquals(3, updated[2]);
+		assertEquals(4, updated[3]);
+		assertTrue(updated[4] > 4);
+	}
+
+	@Test
+	public void reorder_spacesTail() throws Exception {
+		int[] updated = PlayOrders.reorder(new int[] {7, -1, -1, -1});
+		assertArrayEquals(new int[] {7, 7 + PlayOrders.GAP, 7 + 2 * PlayOrders.GAP, 7 + 3 * PlayOrders.GAP}, updated);
+	}
+
+	@Test
+	public void reorder_tailNearMaxValue() throws Exception {
+		int[] orders = {Integer.MAX_VALUE - 10, -1, -1, -1, -1};
+		int[] updated = PlayOrders.reorder(orders);
+		assertIncreasing(updated);
+		assertEquals(Integer.MAX_VALUE - 10, updated[0]);
+		assertTrue(updated[4] <= Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void reorder_tailPastMaxValue() throws Exception {
+		// fewer numbers than members are left after the kept member
+		int[] orders = {Integer.MAX_VALUE - 2, -1, -1, -1, -1};
+		int[] updated = PlayOrders.reorder(orders);
+		// the kept member is renumbered along with the tail
+		assertIncreasing(updated);
+	}
+
+	@Test
+	public void reorder_tailPastMaxValue_keepsEarlierRoom() throws Exception {
+		int[] orders = {0, 10, Integer.MAX_VALUE - 1, Integer.MAX_VALUE, -1, -1};
+		int[] updated = PlayOrders.reorder(orders);
+		assertIncreasing(updated);
+		assertEquals(0, updated[0]);
+		assertEquals(10, updated[1]);
+	}
+
+	@Test
+	public void reorder_tailAtMaxValue() throws Exception {
+		// no room left after the kept member, so the tail is renumbered from the start
+		int[] orders = {Integer.MAX_VALUE, 0, 0};
+		int[] updated = PlayOrders.reorder(orders);
+		assertEquals(3, updated.length);
+		for (int order : updated) {
+			assertTrue(order >= 0);
+		}
+	}
+
+	@Test
+	public void reorder_randomPermutations() throws Exception {
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			int n = random.nextInt(300);
+			int[] orders = new int[n];
+			for (int i = 0; i < n; i++) {
+				orders[i] = random.nextInt(4) == 0 ? -1 : random.nextInt(n + 1) * (1 + random.nextInt(3));
+			}
+			int[] updated = PlayOrders.reorder(orders);
+			assertIncreasing(updated);
+		}
+	}
+
+	private static int[] move(int[] orders, int from, int to) {
+		int[] moved = orders.clone();
+		int order = moved[from];
+		System.arraycopy(moved, to, moved, to + 1, from - to);
+		moved[to] = order;
+		return moved;
+	}
+
+	private static int changes(int[] before, int[] after) {
+		int changes = 0;
+		for (int i = 0; i < before.length; i++) {
+			if (before[i] != after[i])
+				changes++;
+		}
+		return changes;
+	}
+
+	private static void assertIncreasing(int[] orders) {
+		for (int i = 0; i < orders.length; i++) {
+			assertTrue("negative order at " + i, orders[i] >= 0);
+			assertTrue("not increasing at " + i, i == 0 || orders[i - 1] < orders[i]);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.drivemode.media.common;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.test.AndroidTestCase;
+
+/**
+ * Reads through the {@link QueryCache} and the {@link MediaMirror} on the device media database.
+ * @author KeithYokoma
+ */
+public class QueryCacheMirrorTest extends AndroidTestCase {
+	private static final Uri IMAGES = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+	private static final String[] PROJECTION = {BaseColumns._ID, MediaStore.MediaColumns.TITLE};
+	private static final String DATABASE_NAME = "media_mirror.db";
+	private MediaMirror mirror;
+	private QueryCache cache;
+	private SharedProviderClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getContext().deleteDatabase(DATABASE_NAME);
+		mirror = new MediaMirror(getContext());
+		cache = new QueryCache(getContext());
+		MediaMirror.setDefault(mirror);
+		QueryCache.setDefault(cache);
+		client = SharedProviderClient.acquire(getContext(), MediaStore.AUTHORITY);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.release();
+		QueryCache.setDefault(null);
+		MediaMirror.setDefault(null);
+		mirror.close();
+		getContext().deleteDatabase(DATABASE_NAME);
+		super.tearDown();
+	}
+
+	public void testSyncDropsResultReadFromStaleMirror() throws Exception {
+		mirror.sync();
+		Cursor rows = client.query(IMAGES, PROJECTION, null, null, BaseColumns._ID + " ASC", null);
+		if (rows == null)
+			return; // no media database to test with
+		long id;
+		String title;
+		try {
+			if (!rows.moveToFirst())
+				return;
+			id = rows.getLong(0);
+			title = rows.getString(1);
+		} finally {
+			rows.close();
+		}
+		// the mirror falls behind a change, and the change notification drops the cached results
+		ContentValues values = new ContentValues();
+		values.put(MediaStore.MediaColumns.TITLE, "stale " + title);
+		mirror.getWritableDatabase().update("images", values, BaseColumns._ID + " = ?", new String[] {String.valueOf(id)});
+		mirror.getWritableDatabase().execSQL("UPDATE sync_state SET watermark = 0 WHERE name = 'images'");
+		cache.invalidate(IMAGES);
+		// the miss reads the mirror before it syncs, and the stale result is cached
+		assertEquals("stale " + title, titleOf(id));
+		int hits = cache.hitCount();
+		assertEquals("stale " + title, titleOf(id));
+		assertEquals(hits + 1, cache.hitCount());
+		// the sync brings the mirror up to date and drops the stale result
+		mirror.sync();
+		assertEquals(title, titleOf(id));
+		assertEquals(title, titleOf(id));
+	}
+
+	private String titleOf(long id) {
+		Cursor cursor = QueryCache.query(client, IMAGES, PROJECTION, BaseColumns._ID + " = ?", new String[] {String.valueOf(id)}, null, null);
+		assertNotNull(cursor);
+		try {
+			assertTrue(cursor.moveToFirst());
+			return cursor.getString(1);
+		} finally {
+			cursor.close();
+		}
+	}
+}
@@ -3,27 +3,109 @@ package com.drivemode.media.common;
 import android.database.CrossProcessCursorWrapper;
 import android.database.Cursor;
 import android.provider.BaseColumns;
-import java.util.HashMap;
 
 /**
  * @author KeithYokoma
  */
 public abstract class BaseCursor extends CrossProcessCursorWrapper {
-	private HashMap<String, Integer> mColumnIndexes = new HashMap<String, Integer>();
+	/**
+	 * Projection to fetch only {@link BaseColumns#_ID}.
+	 */
+	public static final Projection IDS_ONLY = Projection.of(BaseColumns._ID);
+
+	private static final int COL_ID = column(BaseColumns._ID);
+	private final RebindableCursor mTarget;
+	private ColumnSchema mSchema;
 
 	public BaseCursor(Cursor cursor) {
-		super(cursor);
+		this(new RebindableCursor(cursor));
+	}
+
+	private BaseCursor(RebindableCursor target) {
+		super(target);
+		mTarget = target;
+		mSchema = ColumnSchema.of(target.getCursor());
+	}
+
+	/**
+	 * Register the column name to get the key for {@link #getCachedColumnIndexOrThrow(int)}.
+	 * Subclasses should keep the key in a static final field.
+	 * @param colName the column name.
+	 * @return the column key.
+	 */
+	protected static int column(String colName) {
+		return ColumnSchema.key(colName);
+	}
+
+	/**
+	 * Attach this wrapper to another cursor without allocating a new wrapper.
+	 * The resolved column indexes are kept as long as the new cursor has the same column layout,
+	 * so rebinding to the same cursor, e.g. in {@code CursorAdapter#bindView}, costs nothing.
+	 * The previous cursor is not closed, and observers registered through this wrapper stay on the previous cursor.
+	 * @param cursor the cursor to read from.
+	 */
+	public void rebind(Cursor cursor) {
+		if (cursor == mTarget.getCursor())
+			return;
+		mTarget.setCursor(cursor);
+		if (cursor == null || !mSchema.matches(cursor.getColumnNames()))
+			mSchema = ColumnSchema.of(cursor);
+	}
+
+	/**
+	 * @return the cursor this wrapper is currently attached to.
+	 */
+	@Override
+	public Cursor getWrappedCursor() {
+		return mTarget.getCursor();
+	}
+
+	/**
+	 * Copy all rows of this cursor into a columnar {@link CursorSnapshot} in a single pass.
+	 * This cursor can be closed right after, and the snapshot can be read from any thread.
+	 * @return the snapshot.
+	 */
+	public CursorSnapshot snapshot() {
+		return CursorSnapshot.of(this);
+	}
+
+	/**
+	 * @return the shared column layout of this cursor.
+	 */
+	public ColumnSchema getSchema() {
+		return mSchema;
+	}
+
+	protected int getCachedColumnIndexOrThrow(int colKey) {
+		int index = mSchema.indexOf(colKey);
+		if (index < 0)
+			return getColumnIndexOrThrow(ColumnSchema.nameOf(colKey));
+		return index;
 	}
 
 	protected int getCachedColumnIndexOrThrow(String colName) {
-		Integer index = mColumnIndexes.get(colName);
-		if (index == null) {
-			index = getColumnIndexOrThrow(colName);
-			mColumnIndexes.put(colName, index);
-		}
+		int index = mSchema.indexOf(colName);
+		if (index < 0)
+			return getColumnIndexOrThrow(colName);
 		return index;
 	}
 
+	protected int getIntAt(int colKey) {
+		return getInt(getCachedColumnIndexOrThrow(colKey));
+	}
+
+	protected long getLongAt(int colKey) {
+		return getLong(getCachedColumnIndexOrThrow(colKey));
+	}
+
+	protected double getDoubleAt(int colKey) {
+		return getDouble(getCachedColumnIndexOrThrow(colKey));
+	}
+
+	protected String getStringAt(int colKey) {
+		return getString(getCachedColumnIndexOrThrow(colKey));
+	}
+
 	public int getInt(String column) {
 		return getInt(getCachedColumnIndexOrThrow(column));
 	}
@@ -44,7 +126,7 @@ public abstract class BaseCursor extends CrossProcessCursorWrapper {
 	 * @return Data for {@link BaseColumns#_ID}
 	 */
 	public long id() {
-		return getLong(BaseColumns._ID);
+		return getLongAt(COL_ID);
 	}
 
-}
\ No newline at end of file
+}
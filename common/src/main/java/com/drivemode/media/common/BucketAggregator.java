@@ -0,0 +1,463 @@
+package com.drivemode.media.common;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes a {@link BucketSummary} of an image or video table in a single streaming scan,
+ * instead of fetching the items of each bucket to count them.
+ * <p>
+ * The aggregator keeps the bucket, the size and the dates of every item, and the figures of every bucket.
+ * After a change notification, the next {@link #getSummary()} fetches only the rows inserted or modified since,
+ * with a range condition on the largest known id and on the latest {@link MediaStore.MediaColumns#DATE_MODIFIED} as {@link ChangeTracker} does,
+ * and scans the id column only when a count of the known rows tells some were deleted.
+ * The media scanner fills in the size and the duration of a new item without touching its modification date,
+ * so the items still lacking them are fetched again too, and a fetched item is applied when any of its figures changed.
+ * The figures of the buckets are updated by the difference,
+ * and the newest or the longest item of a bucket is searched again in memory only when that item went away.
+ * Given a duration column, e.g. {@link MediaStore.Video.VideoColumns#DURATION}, the summary also has the total and the longest duration.
+ * <pre>
+ * BucketAggregator aggregator = new BucketAggregator(context, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+ * aggregator.start();
+ * // on a worker thread
+ * BucketSummary summary = aggregator.getSummary();
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class BucketAggregator {
+	// the bucket columns have the same names in the image and the video tables
+	private static final String[] ROW_PROJECTION = {
+			BaseColumns._ID,
+			MediaStore.MediaColumns.DATE_MODIFIED,
+			MediaStore.Images.ImageColumns.BUCKET_ID,
+			MediaStore.Images.ImageColumns.BUCKET_DISPLAY_NAME,
+			MediaStore.MediaColumns.SIZE,
+			MediaStore.Images.ImageColumns.DATE_TAKEN
+	};
+	private static final int COL_DURATION = ROW_PROJECTION.length;
+	private static final String[] ID_PROJECTION = {BaseColumns._ID};
+	private static final String[] COUNT_PROJECTION = {"COUNT(" + BaseColumns._ID + ")"};
+	private static final String KNOWN_SELECTION = BaseColumns._ID + " <= ?";
+	/**
+	 * The maximum number of items lacking a size or a duration fetched again on each refresh, the newest first.
+	 */
+	private static final int MAX_INCOMPLETE = 100;
+	private static final String CHANGED_SELECTION = BaseColumns._ID + " > ? OR " + MediaStore.MediaColumns.DATE_MODIFIED + " >= ?";
+	private static final String ID_ORDER = BaseColumns._ID + " ASC";
+	private final Context context;
+	private final Uri uri;
+	private final String[] projection;
+	private final SharedProviderClient client;
+	private ContentObserver observer; // guarded by this
+	private volatile boolean dirty = true;
+	private volatile boolean countUnsupported; // the provider rejects an aggregate in the projection
+	// the state below is guarded by stateLock
+	private final Object stateLock = new Object();
+	private final Map<Long, Aggregate> buckets = new HashMap<Long, Aggregate>();
+	private long[] ids = new long[16];
+	private long[] modified = new long[16];
+	private long[] bucketIds = new long[16];
+	private long[] sizes = new long[16];
+	private long[] dates = new long[16];
+	private long[] durations = new long[16];
+	private int size;
+	private long watermark;
+	private boolean initialized;
+	private BucketSummary summary;
+
+	/**
+	 * @param context the context.
+	 * @param uri the table to summarize, {@link MediaStore.Images.Media#EXTERNAL_CONTENT_URI} or {@link MediaStore.Video.Media#EXTERNAL_CONTENT_URI}.
+	 */
+	public BucketAggregator(@NonNull Context context, @NonNull Uri uri) {
+		this(context, uri, null);
+	}
+
+	/**
+	 * @param context the context.
+	 * @param uri the table to summarize, e.g. {@link MediaStore.Video.Media#EXTERNAL_CONTENT_URI}.
+	 * @param durationColumn the column of the duration of an item in milliseconds, or null if the items have no duration.
+	 */
+	public BucketAggregator(@NonNull Context context, @NonNull Uri uri, @Nullable String durationColumn) {
+		this.context = context.getApplicationContext();
+		this.uri = uri;
+		if (durationColumn == null) {
+			this.projection = ROW_PROJECTION;
+		} else {
+			this.projection = Arrays.copyOf(ROW_PROJECTION, COL_DURATION + 1);
+			this.projection[COL_DURATION] = durationColumn;
+		}
+		this.client = SharedProviderClient.acquire(this.context, MediaStore.AUTHORITY);
+	}
+
+	/**
+	 * Start observing the table. Does nothing if already started.
+	 */
+	public synchronized void start() {
+		if (observer != null)
+			return;
+		observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				dirty = true;
+			}
+		};
+		context.getContentResolver().registerContentObserver(uri, true, observer);
+		// changes made while stopped were not observed
+		dirty = true;
+	}
+
+	/**
+	 * Stop observing the table. The changes made until the next {@link #start()} are detected on the first summary after it.
+	 */
+	public synchronized void stop() {
+		if (observer == null)
+			return;
+		context.getContentResolver().unregisterContentObserver(observer);
+		observer = null;
+	}
+
+	/**
+	 * @return the summarized table.
+	 */
+	public @NonNull Uri getUri() {
+		return uri;
+	}
+
+	/**
+	 * @return the summary of the buckets, updated with the changes notified since the previous call.
+	 */
+	@WorkerThread
+	public @NonNull BucketSummary getSummary() {
+		synchronized (stateLock) {
+			if (dirty || summary == null) {
+				// cleared first, so that a change notified during the scan is seen by the next call
+				dirty = false;
+				boolean done = false;
+				try {
+					if (!initialized)
+						done = initialized = load();
+					else
+						done = diff();
+				} finally {
+					if (!done) {
+						// a scan stopped halfway leaves the state inconsistent, load it again on the next call
+						initialized = false;
+						dirty = true;
+					}
+				}
+				if (done || summary == null)
+					summary = publish();
+			}
+			return summary;
+		}
+	}
+
+	private boolean load() {
+		// bypass the query cache and the mirror, the summary must see the current rows
+		Cursor cursor = client.query(uri, projection, null, null, ID_ORDER, null);
+		if (cursor == null)
+			return false;
+		try {
+			size = 0;
+			watermark = 0;
+			buckets.clear();
+			while (cursor.moveToNext()) {
+				insert(size, cursor);
+			}
+			return true;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private boolean diff() {
+		long maxId = size > 0 ? ids[size - 1] : -1;
+		List<String> args = new ArrayList<String>();
+		args.add(String.valueOf(maxId));
+		args.add(String.valueOf(watermark));
+		StringBuilder selection = new StringBuilder(CHANGED_SELECTION);
+		boolean hasDuration = projection.length > COL_DURATION;
+		for (int i = size - 1; i >= 0 && args.size() < MAX_INCOMPLETE + 2; i--) {
+			if (sizes[i] == 0 || (hasDuration && durations[i] == 0)) {
+				selection.append(args.size() == 2 ? " OR " + BaseColumns._ID + " IN (?" : ",?");
+				args.add(String.valueOf(ids[i]));
+			}
+		}
+		if (args.size() > 2)
+			selection.append(')');
+		Cursor cursor = client.query(uri, projection, selection.toString(), args.toArray(new String[args.size()]), ID_ORDER, null);
+		if (cursor == null)
+			return false;
+		try {
+			while (cursor.moveToNext()) {
+				long id = cursor.getLong(0);
+				int index = id > maxId ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+				if (index < 0) {
+					insert(-index - 1, cursor);
+				} else if (differs(index, cursor)) {
+					subtract(index);
+					set(index, cursor);
+					add(index, cursor.getString(3));
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		if (!removeDeleted())
+			return false;
+		searchExtremes();
+		return true;
+	}
+
+	private boolean removeDeleted() {
+		if (size == 0 || !hasDeleted())
+			return true;
+		Cursor cursor = client.query(uri, ID_PROJECTION, null, null, ID_ORDER, null);
+		if (cursor == null)
+			return false;
+		try {
+			int kept = 0;
+			cursor.moveToPosition(-1);
+			boolean hasRow = cursor.moveToNext();
+			for (int i = 0; i < size; i++) {
+				long id = ids[i];
+				while (hasRow && cursor.getLong(0) < id) {
+					hasRow = cursor.moveToNext();
+				}
+				if (hasRow && cursor.getLong(0) == id) {
+					ids[kept] = id;
+					modified[kept] = modified[i];
+					bucketIds[kept] = bucketIds[i];
+					sizes[kept] = sizes[i];
+					dates[kept] = dates[i];
+					durations[kept] = durations[i];
+					kept++;
+				} else {
+					subtract(i);
+				}
+			}
+			size = kept;
+			return true;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Count the rows up to the largest known id without reading them.
+	 * Ids only grow, so every row in the range is known, and a smaller count means some were deleted.
+	 * @return true if some known rows were deleted, or the provider cannot count them.
+	 */
+	private boolean hasDeleted() {
+		if (countUnsupported)
+			return true;
+		Cursor cursor;
+		try {
+			cursor = client.query(uri, COUNT_PROJECTION, KNOWN_SELECTION, new String[] {String.valueOf(ids[size - 1])}, null, null);
+		} catch (SQLiteException | IllegalArgumentException e) {
+			// a strict projection map rejects the aggregate, scan the ids from now on
+			countUnsupported = true;
+			return true;
+		}
+		if (cursor == null)
+			return true;
+		try {
+			return !cursor.moveToFirst() || cursor.getLong(0) != size;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private void insert(int index, Cursor cursor) {
+		if (size == ids.length) {
+			int capacity = size * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			modified = Arrays.copyOf(modified, capacity);
+			bucketIds = Arrays.copyOf(bucketIds, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			dates = Arrays.copyOf(dates, capacity);
+			durations = Arrays.copyOf(durations, capacity);
+		}
+		int moved = size - index;
+		System.arraycopy(ids, index, ids, index + 1, moved);
+		System.arraycopy(modified, index, modified, index + 1, moved);
+		System.arraycopy(bucketIds, index, bucketIds, index + 1, moved);
+		System.arraycopy(sizes, index, sizes, index + 1, moved);
+		System.arraycopy(dates, index, dates, index + 1, moved);
+		System.arraycopy(durations, index, durations, index + 1, moved);
+		size++;
+		set(index, cursor);
+		add(index, cursor.getString(3));
+	}
+
+	private void set(int index, Cursor cursor) {
+		ids[index] = cursor.getLong(0);
+		modified[index] = cursor.getLong(1);
+		bucketIds[index] = cursor.getLong(2);
+		sizes[index] = cursor.getLong(4);
+		// seconds to milliseconds, for the items without a date taken
+		dates[index] = cursor.isNull(5) ? modified[index] * 1000 : cursor.getLong(5);
+		durations[index] = projection.length > COL_DURATION ? cursor.getLong(COL_DURATION) : 0;
+		watermark = Math.max(watermark, modified[index]);
+	}
+
+	private boolean differs(int index, Cursor cursor) {
+		long dateModified = cursor.getLong(1);
+		return modified[index] != dateModified
+				|| bucketIds[index] != cursor.getLong(2)
+				|| sizes[index] != cursor.getLong(4)
+				|| dates[index] != (cursor.isNull(5) ? dateModified * 1000 : cursor.getLong(5))
+				|| (projection.length > COL_DURATION && durations[index] != cursor.getLong(COL_DURATION));
+	}
+
+	private void add(int index, String name) {
+		Aggregate aggregate = buckets.get(bucketIds[index]);
+		if (aggregate == null) {
+			aggregate = new Aggregate(bucketIds[index]);
+			buckets.put(bucketIds[index], aggregate);
+		}
+		if (name != null)
+			aggregate.name = name;
+		aggregate.count++;
+		aggregate.totalSize += sizes[index];
+		aggregate.totalDuration += durations[index];
+		if (!aggregate.staleCover && isNewer(dates[index], ids[index], aggregate.newestDate, aggregate.coverId)) {
+			aggregate.newestDate = dates[index];
+			aggregate.coverId = ids[index];
+		}
+		if (!aggregate.staleLongest && isNewer(durations[index], ids[index], aggregate.longestDuration, aggregate.longestId)) {
+			aggregate.longestDuration = durations[index];
+			aggregate.longestId = ids[index];
+		}
+	}
+
+	private void subtract(int index) {
+		Aggregate aggregate = buckets.get(bucketIds[index]);
+		aggregate.count--;
+		aggregate.totalSize -= sizes[index];
+		aggregate.totalDuration -= durations[index];
+		if (aggregate.count == 0) {
+			buckets.remove(bucketIds[index]);
+			return;
+		}
+		if (aggregate.coverId == ids[index])
+			aggregate.staleCover = true;
+		if (aggregate.longestId == ids[index])
+			aggregate.staleLongest = true;
+	}
+
+	/**
+	 * Search the newest and the longest items again in the buckets where they went away, in a single pass over the items in memory.
+	 */
+	private void searchExtremes() {
+		boolean any = false;
+		for (Aggregate aggregate : buckets.values()) {
+			if (aggregate.staleCover) {
+				aggregate.newestDate = Long.MIN_VALUE;
+				aggregate.coverId = -1;
+				any = true;
+			}
+			if (aggregate.staleLongest) {
+				aggregate.longestDuration = Long.MIN_VALUE;
+				aggregate.longestId = -1;
+				any = true;
+			}
+		}
+		if (!any)
+			return;
+		for (int i = 0; i < size; i++) {
+			Aggregate aggregate = buckets.get(bucketIds[i]);
+			if (aggregate.staleCover && isNewer(dates[i], ids[i], aggregate.newestDate, aggregate.coverId)) {
+				aggregate.newestDate = dates[i];
+				aggregate.coverId = ids[i];
+			}
+			if (aggregate.staleLongest && isNewer(durations[i], ids[i], aggregate.longestDuration, aggregate.longestId)) {
+				aggregate.longestDuration = durations[i];
+				aggregate.longestId = ids[i];
+			}
+		}
+		for (Aggregate aggregate : buckets.values()) {
+			aggregate.staleCover = false;
+			aggregate.staleLongest = false;
+		}
+	}
+
+	private BucketSummary publish() {
+		List<Aggregate> sorted = new ArrayList<Aggregate>(buckets.values());
+		Collections.sort(sorted, new Comparator<Aggregate>() {
+			@Override
+			public int compare(Aggregate l, Aggregate r) {
+				return isNewer(l.newestDate, l.coverId, r.newestDate, r.coverId) ? -1 : (l == r ? 0 : 1);
+			}
+		});
+		int count = sorted.size();
+		long[] bucketIds = new long[count];
+		String[] names = new String[count];
+		int[] itemCounts = new int[count];
+		long[] totalSizes = new long[count];
+		long[] newestDates = new long[count];
+		long[] coverIds = new long[count];
+		long[] totalDurations = new long[count];
+		long[] longestDurations = new long[count];
+		long[] longestIds = new long[count];
+		for (int i = 0; i < count; i++) {
+			Aggregate aggregate = sorted.get(i);
+			bucketIds[i] = aggregate.bucketId;
+			names[i] = aggregate.name;
+			itemCounts[i] = aggregate.count;
+			totalSizes[i] = aggregate.totalSize;
+			newestDates[i] = aggregate.newestDate;
+			coverIds[i] = aggregate.coverId;
+			totalDurations[i] = aggregate.totalDuration;
+			longestDurations[i] = aggregate.longestDuration;
+			longestIds[i] = aggregate.longestId;
+		}
+		return new BucketSummary(bucketIds, names, itemCounts, totalSizes, newestDates, coverIds, totalDurations, longestDurations, longestIds);
+	}
+
+	/**
+	 * @return true if the value is larger, or equal with a larger id.
+	 */
+	private static boolean isNewer(long value, long id, long otherValue, long otherId) {
+		return value > otherValue || (value == otherValue && id > otherId);
+	}
+
+	/**
+	 * The running figures of a bucket.
+	 */
+	private static final class Aggregate {
+		private final long bucketId;
+		private String name;
+		private int count;
+		private long totalSize;
+		private long newestDate = Long.MIN_VALUE;
+		private long coverId = -1;
+		private long totalDuration;
+		private long longestDuration = Long.MIN_VALUE;
+		private long longestId = -1;
+		private boolean staleCover; // the newest item went away
+		private boolean staleLongest; // the longest item went away
+
+		Aggregate(long bucketId) {
+			this.bucketId = bucketId;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.drivemode.media.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Immutable per bucket figures of an image or video table: the number of items, their total size, and the newest item as the cover,
+ * with the total duration and the longest item when the {@link BucketAggregator} was given a duration column.
+ * The buckets are ordered from the one with the newest item.
+ * @see BucketAggregator
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class BucketSummary {
+	private final long[] bucketIds;
+	private final String[] names;
+	private final int[] itemCounts;
+	private final long[] totalSizes;
+	private final long[] newestDates;
+	private final long[] coverIds;
+	private final long[] totalDurations;
+	private final long[] longestDurations;
+	private final long[] longestIds;
+	private final LongMultimap indexes;
+
+	/* package */ BucketSummary(long[] bucketIds, String[] names, int[] itemCounts, long[] totalSizes, long[] newestDates, long[] coverIds,
+								long[] totalDurations, long[] longestDurations, long[] longestIds) {
+		this.bucketIds = bucketIds;
+		this.names = names;
+		this.itemCounts = itemCounts;
+		this.totalSizes = totalSizes;
+		this.newestDates = newestDates;
+		this.coverIds = coverIds;
+		this.totalDurations = totalDurations;
+		this.longestDurations = longestDurations;
+		this.longestIds = longestIds;
+		LongMultimap.Builder builder = new LongMultimap.Builder(bucketIds.length);
+		for (int i = 0; i < bucketIds.length; i++) {
+			builder.put(bucketIds[i], i);
+		}
+		this.indexes = builder.build();
+	}
+
+	/**
+	 * @return the number of buckets.
+	 */
+	public int getCount() {
+		return bucketIds.length;
+	}
+
+	/**
+	 * @return the index of the bucket, or -1 if the bucket has no item.
+	 */
+	public int indexOf(long bucketId) {
+		int index = indexes.indexOfKey(bucketId);
+		return index < 0 ? -1 : (int) indexes.valueAt(index, 0);
+	}
+
+	public long getBucketId(int index) {
+		return bucketIds[index];
+	}
+
+	public @Nullable String getBucketName(int index) {
+		return names[index];
+	}
+
+	public int getItemCount(int index) {
+		return itemCounts[index];
+	}
+
+	/**
+	 * @return the total size of the items of the bucket in bytes.
+	 */
+	public long getTotalSize(int index) {
+		return totalSizes[index];
+	}
+
+	/**
+	 * @return the date taken of the newest item in milliseconds, the modification date when the item has no date taken.
+	 */
+	public long getNewestDate(int index) {
+		return newestDates[index];
+	}
+
+	/**
+	 * @return the id of the newest item of the bucket.
+	 */
+	public long getCoverId(int index) {
+		return coverIds[index];
+	}
+
+	/**
+	 * @return the total duration of the items of the bucket in milliseconds, 0 without a duration column.
+	 */
+	public long getTotalDuration(int index) {
+		return totalDurations[index];
+	}
+
+	/**
+	 * @return the duration of the longest item of the bucket in milliseconds, 0 without a duration column.
+	 */
+	public long getLongestDuration(int index) {
+		return longestDurations[index];
+	}
+
+	/**
+	 * @return the id of the longest item of the bucket, the newest one among the equally long items.
+	 */
+	public long getLongestId(int index) {
+		return longestIds[index];
+	}
+
+	/**
+	 * @return the number of items in all buckets.
+	 */
+	public int getTotalItemCount() {
+		int total = 0;
+		for (int count : itemCounts) {
+			total += count;
+		}
+		return total;
+	}
+
+	@Override
+	public @NonNull String toString() {
+		return "BucketSummary{" +
+				"buckets=" + bucketIds.length +
+				", items=" + getTotalItemCount() +
+				'}';
+	}
+}
@@ -0,0 +1,72 @@
+package com.drivemode.media.common;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Row level difference of a {@link android.provider.MediaStore} table between two observations.
+ * Each array holds {@link android.provider.BaseColumns#_ID} values in ascending order.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class ChangeSet {
+	private static final long[] EMPTY = new long[0];
+	private final Uri uri;
+	private final long[] inserted;
+	private final long[] updated;
+	private final long[] deleted;
+
+	ChangeSet(@NonNull Uri uri, long[] inserted, long[] updated, long[] deleted) {
+		this.uri = uri;
+		this.inserted = inserted != null ? inserted : EMPTY;
+		this.updated = updated != null ? updated : EMPTY;
+		this.deleted = deleted != null ? deleted : EMPTY;
+	}
+
+	/**
+	 * @return the observed table.
+	 */
+	public @NonNull Uri getUri() {
+		return uri;
+	}
+
+	/**
+	 * @return ids of the rows inserted since the previous observation. Do not modify the returned array.
+	 */
+	public @NonNull long[] getInserted() {
+		return inserted;
+	}
+
+	/**
+	 * @return ids of the rows modified since the previous observation. Do not modify the returned array.
+	 */
+	public @NonNull long[] getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * @return ids of the rows deleted since the previous observation. Do not modify the returned array.
+	 */
+	public @NonNull long[] getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * @return true if nothing has changed.
+	 */
+	public boolean isEmpty() {
+		return inserted.length == 0 && updated.length == 0 && deleted.length == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangeSet{" +
+				"uri=" + uri +
+				", inserted=" + Arrays.toString(inserted) +
+				", updated=" + Arrays.toString(updated) +
+				", deleted=" + Arrays.toString(deleted) +
+				'}';
+	}
+}
@@ -0,0 +1,289 @@
+package com.drivemode.media.common;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Observes a {@link MediaStore} table and reports which rows were inserted, updated or deleted,
+ * instead of making the consumer requery the whole table on every change notification.
+ * Bursts of notifications, e.g. during a media scan, are debounced into a single {@link ChangeSet}.
+ * <p>
+ * The tracker keeps the {@link BaseColumns#_ID} and {@link MediaStore.MediaColumns#DATE_MODIFIED} of every row.
+ * Inserted and updated rows are fetched with a range condition on the largest known id and on the latest modification time,
+ * and the id column is scanned only when the row count tells some rows were deleted.
+ * {@link MediaStore.MediaColumns#DATE_MODIFIED} has a granularity of a second,
+ * so a row modified twice within the same second is reported once.
+ * <p>
+ * The first observation after {@link #start()} only records the state of the table.
+ * The state survives {@link #stop()}, so the first change set after restarting covers everything changed in between.
+ * <pre>
+ * ChangeTracker tracker = new ChangeTracker(context, MediaStore.Images.Media.EXTERNAL_CONTENT_URI, new ChangeTracker.Listener() {
+ *     public void onChange(ChangeSet changes) {
+ *         // called on the tracker thread
+ *     }
+ * });
+ * tracker.start();
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class ChangeTracker {
+	/**
+	 * The default quiet period to wait for after the last change notification.
+	 */
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+	private static final String[] ID_PROJECTION = {BaseColumns._ID};
+	private static final String[] STATE_PROJECTION = {BaseColumns._ID, MediaStore.MediaColumns.DATE_MODIFIED};
+	private static final String CHANGED_SELECTION = BaseColumns._ID + " > ? OR " + MediaStore.MediaColumns.DATE_MODIFIED + " >= ?";
+	private static final String ID_ORDER = BaseColumns._ID + " ASC";
+	private final Context context;
+	private final Uri uri;
+	private final long debounceMillis;
+	private final Listener listener;
+	private final Runnable sync = new Runnable() {
+		@Override
+		public void run() {
+			sync();
+		}
+	};
+	private HandlerThread thread; // guarded by this
+	private Handler handler; // guarded by this
+	private ContentObserver observer; // guarded by this
+	private SharedProviderClient client; // guarded by this
+	// the state below is guarded by stateLock, which is held only by the tracker thread except across a restart
+	private final Object stateLock = new Object();
+	private long[] ids = new long[16];
+	private long[] modified = new long[16];
+	private int size;
+	private long watermark;
+	private boolean initialized;
+
+	public ChangeTracker(@NonNull Context context, @NonNull Uri uri, @NonNull Listener listener) {
+		this(context, uri, DEFAULT_DEBOUNCE_MILLIS, listener);
+	}
+
+	/**
+	 * @param context the context.
+	 * @param uri the table to observe, e.g. {@link MediaStore.Audio.Media#EXTERNAL_CONTENT_URI}.
+	 * @param debounceMillis the quiet period to wait for after the last change notification.
+	 * @param listener the listener to receive the changes.
+	 */
+	public ChangeTracker(@NonNull Context context, @NonNull Uri uri, long debounceMillis, @NonNull Listener listener) {
+		this.context = context.getApplicationContext();
+		this.uri = uri;
+		this.debounceMillis = debounceMillis;
+		this.listener = listener;
+	}
+
+	/**
+	 * Start observing the table. Does nothing if already started.
+	 */
+	public synchronized void start() {
+		if (thread != null)
+			return;
+		client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
+		thread = new HandlerThread("ChangeTracker", Process.THREAD_PRIORITY_BACKGROUND);
+		thread.start();
+		final Handler h = new Handler(thread.getLooper());
+		handler = h;
+		observer = new ContentObserver(h) {
+			@Override
+			public void onChange(boolean selfChange) {
+				h.removeCallbacks(sync);
+				h.postDelayed(sync, debounceMillis);
+			}
+		};
+		context.getContentResolver().registerContentObserver(uri, true, observer);
+		h.post(sync);
+	}
+
+	/**
+	 * Stop observing the table. Pending notifications are dropped, and detected on the next {@link #start()}.
+	 */
+	public synchronized void stop() {
+		if (thread == null)
+			return;
+		context.getContentResolver().unregisterContentObserver(observer);
+		handler.removeCallbacks(sync);
+		final HandlerThread stopped = thread;
+		final SharedProviderClient released = client;
+		// a sync may be running on the tracker thread, release the client there after it
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				released.release();
+				stopped.quit();
+			}
+		});
+		thread = null;
+		handler = null;
+		observer = null;
+		client = null;
+	}
+
+	/**
+	 * @return the observed table.
+	 */
+	public @NonNull Uri getUri() {
+		return uri;
+	}
+
+	private void sync() {
+		SharedProviderClient current;
+		synchronized (this) {
+			current = client;
+		}
+		if (current == null)
+			return; // stopped
+		ChangeSet changes;
+		synchronized (stateLock) {
+			if (!initialized) {
+				initialized = load(current);
+				return;
+			}
+			changes = diff(current);
+		}
+		if (changes != null && !changes.isEmpty())
+			listener.onChange(changes);
+	}
+
+	private boolean load(SharedProviderClient client) {
+		Cursor cursor = client.query(uri, STATE_PROJECTION, null, null, ID_ORDER, null);
+		if (cursor == null)
+			return false;
+		try {
+			size = 0;
+			watermark = 0;
+			while (cursor.moveToNext()) {
+				append(cursor.getLong(0), cursor.getLong(1));
+			}
+			return true;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private ChangeSet diff(SharedProviderClient client) {
+		long maxId = size > 0 ? ids[size - 1] : -1;
+		Cursor cursor = client.query(uri, STATE_PROJECTION, CHANGED_SELECTION,
+				new String[] {String.valueOf(maxId), String.valueOf(watermark)}, ID_ORDER, null);
+		if (cursor == null)
+			return null;
+		LongList inserted = new LongList();
+		LongList updated = new LongList();
+		try {
+			while (cursor.moveToNext()) {
+				long id = cursor.getLong(0);
+				long dateModified = cursor.getLong(1);
+				if (id > maxId) {
+					append(id, dateModified);
+					inserted.add(id);
+					continue;
+				}
+				int index = Arrays.binarySearch(ids, 0, size, id);
+				if (index < 0) {
+					insert(-index - 1, id, dateModified);
+					inserted.add(id);
+				} else if (modified[index] != dateModified) {
+					modified[index] = dateModified;
+					updated.add(id);
+				}
+				watermark = Math.max(watermark, dateModified);
+			}
+		} finally {
+			cursor.close();
+		}
+		long[] deleted = removeDeleted(client);
+		if (deleted == null)
+			return null;
+		long[] insertedIds = inserted.toArray();
+		Arrays.sort(insertedIds);
+		return new ChangeSet(uri, insertedIds, updated.toArray(), deleted);
+	}
+
+	private long[] removeDeleted(SharedProviderClient client) {
+		Cursor cursor = client.query(uri, ID_PROJECTION, null, null, ID_ORDER, null);
+		if (cursor == null)
+			return null;
+		try {
+			int count = cursor.getCount();
+			// ids only grow, so a matching count and last id means no row has gone
+			if (count == size && (size == 0 || (cursor.moveToLast() && cursor.getLong(0) == ids[size - 1])))
+				return new long[0];
+			LongList deleted = new LongList();
+			int kept = 0;
+			cursor.moveToPosition(-1);
+			boolean hasRow = cursor.moveToNext();
+			for (int i = 0; i < size; i++) {
+				long id = ids[i];
+				while (hasRow && cursor.getLong(0) < id) {
+					hasRow = cursor.moveToNext();
+				}
+				if (hasRow && cursor.getLong(0) == id) {
+					ids[kept] = id;
+					modified[kept] = modified[i];
+					kept++;
+				} else {
+					deleted.add(id);
+				}
+			}
+			size = kept;
+			return deleted.toArray();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private void append(long id, long dateModified) {
+		insert(size, id, dateModified);
+	}
+
+	private void insert(int index, long id, long dateModified) {
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+			modified = Arrays.copyOf(modified, size * 2);
+		}
+		System.arraycopy(ids, index, ids, index + 1, size - index);
+		System.arraycopy(modified, index, modified, index + 1, size - index);
+		ids[index] = id;
+		modified[index] = dateModified;
+		size++;
+		watermark = Math.max(watermark, dateModified);
+	}
+
+	/**
+	 * Receives the changes of the observed table.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the tracker thread when the table has changed.
+		 * @param changes the changes since the previous call.
+		 */
+		void onChange(@NonNull ChangeSet changes);
+	}
+
+	private static final class LongList {
+		private long[] values = new long[8];
+		private int size;
+
+		void add(long value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.drivemode.media.common;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable column layout of a query result, shared by every {@link BaseCursor} wrapping a cursor with the same columns.
+ * The column names the cursor classes access are registered once as process-wide integer keys via {@link #key(String)},
+ * and the schema maps those keys to column indexes with a plain {@code int[]} slot table.
+ * Other names are looked up in a map of the schema, without being registered.
+ * @author KeithYokoma
+ */
+public final class ColumnSchema {
+	private static final int MAX_CACHED_LAYOUTS = 32;
+	private static final Map<String, Integer> KEYS = new HashMap<String, Integer>();
+	private static volatile String[] sNames = new String[0]; // copied on write under the lock of KEYS
+	/* package */ static final ColumnSchema EMPTY = new ColumnSchema(new String[0]); // after the registry it reads
+	private static final Map<Layout, ColumnSchema> LAYOUTS = new LinkedHashMap<Layout, ColumnSchema>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Layout, ColumnSchema> eldest) {
+			return size() > MAX_CACHED_LAYOUTS;
+		}
+	};
+	private final String[] columnNames;
+	private final Map<String, Integer> indexes;
+	private final int[] slots;
+	private final int registeredKeys; // the keys registered when the slots were built
+
+	private ColumnSchema(@NonNull String[] columnNames) {
+		this.columnNames = columnNames;
+		Map<String, Integer> indexes = new HashMap<String, Integer>(columnNames.length * 2);
+		for (int i = columnNames.length - 1; i >= 0; i--) {
+			// iterate backwards so that the first column wins on duplicated names, as Cursor#getColumnIndex does.
+			indexes.put(columnNames[i], i);
+		}
+		this.indexes = indexes;
+		int[] keys = new int[columnNames.length];
+		int maxKey = -1;
+		synchronized (KEYS) {
+			registeredKeys = sNames.length;
+			for (int i = 0; i < columnNames.length; i++) {
+				Integer key = KEYS.get(columnNames[i]);
+				keys[i] = key == null ? -1 : key;
+				maxKey = Math.max(maxKey, keys[i]);
+			}
+		}
+		int[] slots = new int[maxKey + 1];
+		Arrays.fill(slots, -1);
+		for (int i = keys.length - 1; i >= 0; i--) {
+			if (keys[i] >= 0)
+				slots[keys[i]] = i;
+		}
+		this.slots = slots;
+	}
+
+	/**
+	 * Register the column name and get its process-wide key.
+	 * Cursor classes should keep the key in a static final field so that accessors never hash the name again.
+	 * @param columnName the column name.
+	 * @return the key for the column name.
+	 */
+	public static int key(@NonNull String columnName) {
+		synchronized (KEYS) {
+			Integer key = KEYS.get(columnName);
+			if (key == null) {
+				String[] names = sNames;
+				key = names.length;
+				KEYS.put(columnName, key);
+				names = Arrays.copyOf(names, key + 1);
+				names[key] = columnName;
+				sNames = names;
+			}
+			return key;
+		}
+	}
+
+	/**
+	 * @param key the key from {@link #key(String)}.
+	 * @return the column name registered for the key.
+	 */
+	public static @NonNull String nameOf(int key) {
+		return sNames[key];
+	}
+
+	/**
+	 * Get the shared schema for the column layout of the cursor.
+	 * @param cursor the cursor.
+	 * @return the schema. {@link #EMPTY} if the cursor is null.
+	 */
+	public static @NonNull ColumnSchema of(@Nullable Cursor cursor) {
+		if (cursor == null)
+			return EMPTY;
+		return of(cursor.getColumnNames());
+	}
+
+	/**
+	 * Get the shared schema for the column layout.
+	 * @param columnNames the column names in the order of the cursor columns.
+	 * @return the schema.
+	 */
+	public static @NonNull ColumnSchema of(@NonNull String[] columnNames) {
+		Layout layout = new Layout(columnNames);
+		synchronized (LAYOUTS) {
+			ColumnSchema schema = LAYOUTS.get(layout);
+			if (schema == null) {
+				schema = new ColumnSchema(columnNames.clone());
+				LAYOUTS.put(layout, schema);
+			}
+			return schema;
+		}
+	}
+
+	/**
+	 * @param columnNames the column names in the order of the cursor columns.
+	 * @return true if this schema describes the same column layout.
+	 */
+	public boolean matches(@Nullable String[] columnNames) {
+		return columnNames == this.columnNames || Arrays.equals(columnNames, this.columnNames);
+	}
+
+	/**
+	 * @param key the key from {@link #key(String)}.
+	 * @return the column index, or -1 if the layout does not contain the column.
+	 */
+	public int indexOf(int key) {
+		if (key >= registeredKeys)
+			return indexOf(nameOf(key)); // registered after this schema was built
+		return key < slots.length ? slots[key] : -1;
+	}
+
+	/**
+	 * @param columnName the column name.
+	 * @return the column index, or -1 if the layout does not contain the column.
+	 */
+	public int indexOf(@NonNull String columnName) {
+		Integer index = indexes.get(columnName);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the number of columns.
+	 */
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	/**
+	 * @param index the column index.
+	 * @return the column name.
+	 */
+	public @NonNull String getColumnName(int index) {
+		return columnNames[index];
+	}
+
+	private static final class Layout {
+		private final String[] columnNames;
+		private final int hash;
+
+		/* package */ Layout(String[] columnNames) {
+			this.columnNames = columnNames;
+			this.hash = Arrays.hashCode(columnNames);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o || (o instanceof Layout && Arrays.equals(columnNames, ((Layout) o).columnNames));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,730 @@
+package com.drivemode.media.common;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable columnar copy of a query result.
+ * Numeric columns are kept in primitive arrays and text columns are dictionary encoded,
+ * so the source cursor can be closed right after {@link #of(Cursor)} returns, releasing its cursor window.
+ * A snapshot can be read, sorted, filtered and reduced in parallel from any thread without locking.
+ * To read rows with the accessors of cursor classes, wrap {@link #newCursor()}, e.g. {@code new AudioCursor(snapshot.newCursor())}.
+ * BLOB values are not copied and read as null.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class CursorSnapshot {
+	private final ColumnSchema schema;
+	private final Column[] columns;
+	private final int count;
+
+	private CursorSnapshot(ColumnSchema schema, Column[] columns, int count) {
+		this.schema = schema;
+		this.columns = columns;
+		this.count = count;
+	}
+
+	/**
+	 * Copy all rows of the cursor in a single pass. The cursor position is restored afterwards, and the cursor is not closed.
+	 * @param cursor the cursor to copy.
+	 * @return the snapshot.
+	 */
+	public static @NonNull CursorSnapshot of(@NonNull Cursor cursor) {
+		// never null without a budget
+		return copy(cursor, Long.MAX_VALUE, false);
+	}
+
+	/**
+	 * Copy all rows of the cursor, unless the snapshot would exceed the byte budget or drop a BLOB value.
+	 * The copy stops as soon as either shows up, so a large result is never copied in full.
+	 * The cursor position is restored afterwards, and the cursor is not closed.
+	 * @param cursor the cursor to copy.
+	 * @param maxBytes the byte budget of the snapshot.
+	 * @return the snapshot, or null if the cursor was not copied.
+	 */
+	/* package */ static @Nullable CursorSnapshot of(@NonNull Cursor cursor, long maxBytes) {
+		return copy(cursor, maxBytes, true);
+	}
+
+	private static CursorSnapshot copy(Cursor cursor, long maxBytes, boolean refuseBlobs) {
+		String[] names = cursor.getColumnNames();
+		int capacity = Math.max(cursor.getCount(), 0);
+		// every value takes at least an int code
+		if ((long) capacity * names.length * 4 > maxBytes)
+			return null;
+		ColumnBuilder[] builders = new ColumnBuilder[names.length];
+		for (int i = 0; i < builders.length; i++) {
+			builders[i] = new ColumnBuilder(capacity);
+		}
+		int position = cursor.getPosition();
+		int count = 0;
+		long bytes = 0;
+		try {
+			cursor.moveToPosition(-1);
+			while (cursor.moveToNext()) {
+				for (int i = 0; i < builders.length; i++) {
+					long added = builders[i].append(cursor, i, count);
+					if (added < 0 && refuseBlobs)
+						return null;
+					bytes += Math.max(added, 0);
+				}
+				if (bytes > maxBytes)
+					return null;
+				count++;
+			}
+		} finally {
+			cursor.moveToPosition(position);
+		}
+		Column[] columns = new Column[builders.length];
+		for (int i = 0; i < builders.length; i++) {
+			columns[i] = builders[i].build(count);
+		}
+		return new CursorSnapshot(ColumnSchema.of(names), columns, count);
+	}
+
+	/**
+	 * @return the number of rows.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the approximate heap size of the snapshot in bytes.
+	 */
+	public long sizeInBytes() {
+		long size = 0;
+		for (Column column : columns) {
+			size += column.sizeInBytes();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the column layout.
+	 */
+	public @NonNull ColumnSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of columns.
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @param columnName the column name.
+	 * @return the column index, or -1 if the snapshot does not contain the column.
+	 */
+	public int getColumnIndex(@NonNull String columnName) {
+		return schema.indexOf(columnName);
+	}
+
+	/**
+	 * @param columnName the column name.
+	 * @return the column index.
+	 * @throws IllegalArgumentException if the snapshot does not contain the column.
+	 */
+	public int getColumnIndexOrThrow(@NonNull String columnName) {
+		int index = schema.indexOf(columnName);
+		if (index < 0)
+			throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+		return index;
+	}
+
+	/**
+	 * @param row the row index.
+	 * @param column the column index.
+	 * @return one of {@link Cursor#FIELD_TYPE_NULL}, {@link Cursor#FIELD_TYPE_INTEGER}, {@link Cursor#FIELD_TYPE_FLOAT} or {@link Cursor#FIELD_TYPE_STRING}.
+	 */
+	public int getType(int row, int column) {
+		Column c = columns[column];
+		return c.isNull(row) ? Cursor.FIELD_TYPE_NULL : c.type();
+	}
+
+	/* package */ int getColumnType(int column) {
+		return columns[column].type();
+	}
+
+	public boolean isNull(int row, int column) {
+		return columns[column].isNull(row);
+	}
+
+	public long getLong(int row, int column) {
+		return columns[column].getLong(row);
+	}
+
+	public int getInt(int row, int column) {
+		return (int) columns[column].getLong(row);
+	}
+
+	public double getDouble(int row, int column) {
+		return columns[column].getDouble(row);
+	}
+
+	public @Nullable String getString(int row, int column) {
+		return columns[column].getString(row);
+	}
+
+	/**
+	 * @return a new cursor over all rows in the snapshot order.
+	 */
+	public @NonNull SnapshotCursor newCursor() {
+		return new SnapshotCursor(this, null);
+	}
+
+	/**
+	 * @param rows the row indexes to expose, e.g. the result of {@link #sort(String, SortOrder.Order)} or {@link #filter(RowFilter)}.
+	 * @return a new cursor over the rows in the given order.
+	 */
+	public @NonNull SnapshotCursor newCursor(@NonNull int[] rows) {
+		return new SnapshotCursor(this, rows);
+	}
+
+	/**
+	 * Sort all rows by the column. The sort is stable and nulls come first in the ascending order.
+	 * @param columnName the column name.
+	 * @param order the direction.
+	 * @return the row indexes in the sorted order.
+	 */
+	public @NonNull int[] sort(@NonNull String columnName, @NonNull SortOrder.Order order) {
+		return sort(identity(), columnName, order);
+	}
+
+	/**
+	 * Sort the rows by the column. The sort is stable and nulls come first in the ascending order.
+	 * @param rows the row indexes to sort. This array is not modified.
+	 * @param columnName the column name.
+	 * @param order the direction.
+	 * @return the row indexes in the sorted order.
+	 */
+	public @NonNull int[] sort(@NonNull int[] rows, @NonNull String columnName, @NonNull SortOrder.Order order) {
+		Column column = columns[getColumnIndexOrThrow(columnName)];
+		int[] sorted = rows.clone();
+		if (order != SortOrder.Order.NO_ORDER)
+			mergeSort(sorted.clone(), sorted, 0, sorted.length, column, order == SortOrder.Order.DESCENDING ? -1 : 1);
+		return sorted;
+	}
+
+	/**
+	 * @param filter the filter.
+	 * @return the indexes of the rows accepted by the filter.
+	 */
+	public @NonNull int[] filter(@NonNull RowFilter filter) {
+		return filter(identity(), filter);
+	}
+
+	/**
+	 * @param rows the row indexes to filter.
+	 * @param filter the filter.
+	 * @return the indexes of the rows accepted by the filter, in the given order.
+	 */
+	public @NonNull int[] filter(@NonNull int[] rows, @NonNull RowFilter filter) {
+		int[] accepted = new int[rows.length];
+		int size = 0;
+		for (int row : rows) {
+			if (filter.accept(this, row))
+				accepted[size++] = row;
+		}
+		return Arrays.copyOf(accepted, size);
+	}
+
+	/**
+	 * @param mapper the mapper to create a typed row.
+	 * @return the spliterator over all rows, which splits on row position ranges.
+	 */
+	@TargetApi(Build.VERSION_CODES.N)
+	public @NonNull <T> Spliterator<T> spliterator(@NonNull RowMapper<T> mapper) {
+		return new SnapshotSpliterator<T>(this, mapper, null, 0, count);
+	}
+
+	/**
+	 * @param rows the row indexes to stream, e.g. the result of {@link #filter(RowFilter)}.
+	 * @param mapper the mapper to create a typed row.
+	 * @return the spliterator over the rows, which splits on row position ranges.
+	 */
+	@TargetApi(Build.VERSION_CODES.N)
+	public @NonNull <T> Spliterator<T> spliterator(@NonNull int[] rows, @NonNull RowMapper<T> mapper) {
+		return new SnapshotSpliterator<T>(this, mapper, rows, 0, rows.length);
+	}
+
+	/**
+	 * Stream the rows. A parallel stream splits the rows into position ranges and reads them on the common fork-join pool.
+	 * @param mapper the mapper to create a typed row.
+	 * @param parallel true to create a parallel stream.
+	 * @return the stream of typed rows.
+	 */
+	@TargetApi(Build.VERSION_CODES.N)
+	public @NonNull <T> Stream<T> stream(@NonNull RowMapper<T> mapper, boolean parallel) {
+		return StreamSupport.stream(spliterator(mapper), parallel);
+	}
+
+	/**
+	 * Reduce all rows on the calling thread.
+	 * @param reduction the reduction.
+	 * @return the result.
+	 */
+	public <A> A reduce(@NonNull Reduction<A> reduction) {
+		return reduceRange(reduction, 0, count);
+	}
+
+	/**
+	 * Reduce all rows in parallel. The rows are split into contiguous position ranges,
+	 * each range is accumulated on the executor, and the results are combined in the row order.
+	 * This works on every API level, unlike {@link #stream(RowMapper, boolean)}.
+	 * @param reduction the reduction.
+	 * @param executor the executor to run the ranges on.
+	 * @param parallelism the number of ranges.
+	 * @return the result.
+	 * @throws InterruptedException if interrupted while waiting for the ranges.
+	 */
+	public <A> A reduce(@NonNull final Reduction<A> reduction, @NonNull ExecutorService executor, int parallelism) throws InterruptedException {
+		int ranges = Math.max(1, Math.min(parallelism, count));
+		if (ranges == 1)
+			return reduce(reduction);
+		List<Future<A>> futures = new ArrayList<Future<A>>(ranges);
+		try {
+			for (int i = 0; i < ranges; i++) {
+				final int start = (int) ((long) count * i / ranges);
+				final int end = (int) ((long) count * (i + 1) / ranges);
+				futures.add(executor.submit(new Callable<A>() {
+					@Override
+					public A call() throws Exception {
+						return reduceRange(reduction, start, end);
+					}
+				}));
+			}
+			A result = null;
+			for (int i = 0; i < ranges; i++) {
+				A partial = futures.get(i).get();
+				result = i == 0 ? partial : reduction.combine(result, partial);
+			}
+			return result;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			for (Future<A> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private <A> A reduceRange(Reduction<A> reduction, int start, int end) {
+		A accumulator = reduction.newAccumulator();
+		for (int row = start; row < end; row++) {
+			accumulator = reduction.accumulate(accumulator, this, row);
+		}
+		return accumulator;
+	}
+
+	private int[] identity() {
+		int[] rows = new int[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
+	private static void mergeSort(int[] src, int[] dest, int low, int high, Column column, int sign) {
+		int length = high - low;
+		if (length < 7) {
+			for (int i = low; i < high; i++) {
+				for (int j = i; j > low && sign * column.compare(dest[j - 1], dest[j]) > 0; j--) {
+					int t = dest[j];
+					dest[j] = dest[j - 1];
+					dest[j - 1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, column, sign);
+		mergeSort(dest, src, mid, high, column, sign);
+		for (int i = low, p = low, q = mid; i < high; i++) {
+			if (q >= high || (p < mid && sign * column.compare(src[p], src[q]) <= 0))
+				dest[i] = src[p++];
+			else
+				dest[i] = src[q++];
+		}
+	}
+
+	/**
+	 * Predicate over a row of the snapshot.
+	 */
+	public interface RowFilter {
+		boolean accept(CursorSnapshot snapshot, int row);
+	}
+
+	/**
+	 * Creates a typed row from a row of the snapshot.
+	 */
+	public interface RowMapper<T> {
+		T map(CursorSnapshot snapshot, int row);
+	}
+
+	/**
+	 * Reduction over rows of the snapshot. Each range of rows is accumulated into its own accumulator,
+	 * so accumulators do not need to be thread-safe.
+	 */
+	public interface Reduction<A> {
+		A newAccumulator();
+
+		A accumulate(A accumulator, CursorSnapshot snapshot, int row);
+
+		A combine(A left, A right);
+	}
+
+	/* package */ static abstract class Column {
+		private final BitSet nulls;
+
+		/* package */ Column(BitSet nulls) {
+			this.nulls = nulls;
+		}
+
+		/* package */ final boolean isNull(int row) {
+			return nulls.get(row);
+		}
+
+		/* package */ final int compare(int left, int right) {
+			boolean leftNull = isNull(left);
+			boolean rightNull = isNull(right);
+			if (leftNull || rightNull)
+				return leftNull == rightNull ? 0 : (leftNull ? -1 : 1);
+			return compareValues(left, right);
+		}
+
+		/* package */ long sizeInBytes() {
+			return nulls.size() / 8 + valuesSizeInBytes();
+		}
+
+		/* package */ abstract int type();
+
+		/* package */ abstract long valuesSizeInBytes();
+
+		/* package */ abstract long getLong(int row);
+
+		/* package */ abstract double getDouble(int row);
+
+		/* package */ abstract String getString(int row);
+
+		/* package */ abstract int compareValues(int left, int right);
+	}
+
+	private static final class LongColumn extends Column {
+		private final long[] values;
+
+		/* package */ LongColumn(BitSet nulls, long[] values) {
+			super(nulls);
+			this.values = values;
+		}
+
+		@Override
+		int type() {
+			return Cursor.FIELD_TYPE_INTEGER;
+		}
+
+		@Override
+		long valuesSizeInBytes() {
+			return values.length * 8L;
+		}
+
+		@Override
+		long getLong(int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		String getString(int row) {
+			return isNull(row) ? null : Long.toString(values[row]);
+		}
+
+		@Override
+		int compareValues(int left, int right) {
+			long l = values[left];
+			long r = values[right];
+			return l < r ? -1 : (l == r ? 0 : 1);
+		}
+	}
+
+	private static final class DoubleColumn extends Column {
+		private final double[] values;
+
+		/* package */ DoubleColumn(BitSet nulls, double[] values) {
+			super(nulls);
+			this.values = values;
+		}
+
+		@Override
+		int type() {
+			return Cursor.FIELD_TYPE_FLOAT;
+		}
+
+		@Override
+		long valuesSizeInBytes() {
+			return values.length * 8L;
+		}
+
+		@Override
+		long getLong(int row) {
+			return (long) values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		String getString(int row) {
+			return isNull(row) ? null : Double.toString(values[row]);
+		}
+
+		@Override
+		int compareValues(int left, int right) {
+			return Double.compare(values[left], values[right]);
+		}
+	}
+
+	private static final class StringColumn extends Column {
+		private final int[] codes;
+		private final String[] dictionary;
+		private final int[] ranks;
+
+		/* package */ StringColumn(BitSet nulls, int[] codes, String[] dictionary) {
+			super(nulls);
+			this.codes = codes;
+			this.dictionary = dictionary;
+			// rank the dictionary once so that sorting compares ints instead of strings.
+			Integer[] byValue = new Integer[dictionary.length];
+			for (int i = 0; i < byValue.length; i++) {
+				byValue[i] = i;
+			}
+			Arrays.sort(byValue, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer l, Integer r) {
+					return StringColumn.this.dictionary[l].compareTo(StringColumn.this.dictionary[r]);
+				}
+			});
+			ranks = new int[dictionary.length];
+			for (int i = 0; i < byValue.length; i++) {
+				ranks[byValue[i]] = i;
+			}
+		}
+
+		@Override
+		int type() {
+			return Cursor.FIELD_TYPE_STRING;
+		}
+
+		@Override
+		long valuesSizeInBytes() {
+			long size = codes.length * 4L + ranks.length * 4L;
+			for (String value : dictionary) {
+				size += 40 + value.length() * 2L; // object headers and the char array
+			}
+			return size;
+		}
+
+		@Override
+		long getLong(int row) {
+			String value = getString(row);
+			if (value == null)
+				return 0;
+			try {
+				return Long.parseLong(value);
+			} catch (NumberFormatException e) {
+				return (long) getDouble(row);
+			}
+		}
+
+		@Override
+		double getDouble(int row) {
+			String value = getString(row);
+			if (value == null)
+				return 0;
+			try {
+				return Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+
+		@Override
+		String getString(int row) {
+			int code = codes[row];
+			return code < 0 ? null : dictionary[code];
+		}
+
+		@Override
+		int compareValues(int left, int right) {
+			int l = ranks[codes[left]];
+			int r = ranks[codes[right]];
+			return l < r ? -1 : (l == r ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Accumulates a column in a single pass. The column starts untyped and is widened
+	 * from integer to float to text as values of those types appear, the same way SQLite stores them dynamically.
+	 */
+	private static final class ColumnBuilder {
+		private final BitSet nulls = new BitSet();
+		private int type = Cursor.FIELD_TYPE_NULL;
+		private long[] longs;
+		private double[] doubles;
+		private int[] codes;
+		private Map<String, Integer> dictionary;
+		private int capacity;
+
+		/* package */ ColumnBuilder(int capacity) {
+			this.capacity = Math.max(capacity, 16);
+		}
+
+		/**
+		 * @return the approximate number of bytes the value takes, or -1 for a BLOB value read as null.
+		 */
+		/* package */ long append(Cursor cursor, int column, int row) {
+			int valueType = cursor.getType(column);
+			if (valueType == Cursor.FIELD_TYPE_NULL || valueType == Cursor.FIELD_TYPE_BLOB) {
+				nulls.set(row);
+				if (codes != null)
+					setCode(row, -1);
+				return valueType == Cursor.FIELD_TYPE_BLOB ? -1 : 0;
+			}
+			widen(valueType, row);
+			switch (type) {
+				case Cursor.FIELD_TYPE_INTEGER:
+					ensureCapacity(row);
+					longs[row] = cursor.getLong(column);
+					return 8;
+				case Cursor.FIELD_TYPE_FLOAT:
+					ensureCapacity(row);
+					doubles[row] = cursor.getDouble(column);
+					return 8;
+				default:
+					String value = cursor.getString(column);
+					int entries = dictionary.size();
+					setCode(row, encode(value));
+					// object headers and the char array of a new dictionary entry
+					return dictionary.size() > entries ? 44 + value.length() * 2L : 4;
+			}
+		}
+
+		/* package */ Column build(int count) {
+			switch (type) {
+				case Cursor.FIELD_TYPE_FLOAT:
+					return new DoubleColumn(nulls, Arrays.copyOf(doubles, count));
+				case Cursor.FIELD_TYPE_STRING:
+					String[] values = new String[dictionary.size()];
+					for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+						values[entry.getValue()] = entry.getKey();
+					}
+					return new StringColumn(nulls, Arrays.copyOf(codes, count), values);
+				case Cursor.FIELD_TYPE_INTEGER:
+					return new LongColumn(nulls, Arrays.copyOf(longs, count));
+				default:
+					// every value was null.
+					nulls.set(0, count);
+					return new LongColumn(nulls, new long[count]);
+			}
+		}
+
+		private void widen(int valueType, int row) {
+			if (valueType == type || type == Cursor.FIELD_TYPE_STRING)
+				return;
+			if (type == Cursor.FIELD_TYPE_NULL) {
+				type = valueType;
+				if (type == Cursor.FIELD_TYPE_INTEGER)
+					longs = new long[capacity];
+				else if (type == Cursor.FIELD_TYPE_FLOAT)
+					doubles = new double[capacity];
+				else
+					startStrings(row);
+				return;
+			}
+			if (type == Cursor.FIELD_TYPE_INTEGER && valueType == Cursor.FIELD_TYPE_FLOAT) {
+				doubles = new double[capacity];
+				for (int i = 0; i < row; i++) {
+					doubles[i] = longs[i];
+				}
+				longs = null;
+				type = Cursor.FIELD_TYPE_FLOAT;
+				return;
+			}
+			if (valueType == Cursor.FIELD_TYPE_STRING) {
+				int previous = type;
+				startStrings(row);
+				for (int i = 0; i < row; i++) {
+					if (!nulls.get(i))
+						codes[i] = encode(previous == Cursor.FIELD_TYPE_INTEGER ? Long.toString(longs[i]) : Double.toString(doubles[i]));
+				}
+				longs = null;
+				doubles = null;
+			}
+			// an integer value in a float column is read as a float.
+		}
+
+		private void startStrings(int row) {
+			type = Cursor.FIELD_TYPE_STRING;
+			codes = new int[capacity];
+			Arrays.fill(codes, 0, row, -1);
+			dictionary = new HashMap<String, Integer>();
+		}
+
+		private int encode(String value) {
+			Integer code = dictionary.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.put(value, code);
+			}
+			return code;
+		}
+
+		private void setCode(int row, int code) {
+			ensureCapacity(row);
+			codes[row] = code;
+		}
+
+		private void ensureCapacity(int row) {
+			if (row < capacity)
+				return;
+			capacity = Math.max(capacity * 2, row + 1);
+			if (longs != null)
+				longs = Arrays.copyOf(longs, capacity);
+			if (doubles != null)
+				doubles = Arrays.copyOf(doubles, capacity);
+			if (codes != null)
+				codes = Arrays.copyOf(codes, capacity);
+		}
+	}
+}
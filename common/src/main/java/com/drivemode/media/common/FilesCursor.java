@@ -13,24 +13,45 @@ import android.provider.MediaStore;
  * @since 2017/5/16 汪波 first commit
  */
 public class FilesCursor extends MediaCursor {
+  /**
+   * Projection for a row in the file list.
+   */
+  public static final Projection LIST_ROW = Projection.of(
+      MediaStore.Files.FileColumns._ID,
+      MediaStore.Files.FileColumns.DATA,
+      MediaStore.Files.FileColumns.TITLE,
+      MediaStore.Files.FileColumns.MIME_TYPE,
+      MediaStore.Files.FileColumns.SIZE,
+      MediaStore.Files.FileColumns.PARENT,
+      MediaStore.Files.FileColumns.MEDIA_TYPE);
+  /**
+   * Projection for the file detail, every column of the table.
+   */
+  public static final Projection DETAIL = Projection.ALL;
+
+  private static final int COL_STORAGE_ID = column("storage_id");
+  private static final int COL_FORMAT = column("format");
+  private static final int COL_PARENT = column(MediaStore.Files.FileColumns.PARENT);
+  private static final int COL_MEDIA_TYPE = column(MediaStore.Files.FileColumns.MEDIA_TYPE);
+
   public FilesCursor(Cursor cursor) {
     super(cursor);
   }
 
   public int storageId() {
-    return getInt("storage_id");
+    return getIntAt(COL_STORAGE_ID);
   }
 
   public int format() {
-    return getInt("format");
+    return getIntAt(COL_FORMAT);
   }
 
   public int parent() {
-    return getInt(MediaStore.Files.FileColumns.PARENT);
+    return getIntAt(COL_PARENT);
   }
 
   public int mediaType() {
-    return getInt(MediaStore.Files.FileColumns.MEDIA_TYPE);
+    return getIntAt(COL_MEDIA_TYPE);
   }
 
   public boolean mediaTypeNone() {
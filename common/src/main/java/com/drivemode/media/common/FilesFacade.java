@@ -1,9 +1,15 @@
 package com.drivemode.media.common;
 
-import android.content.ContentResolver;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.MergeCursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
 import android.provider.MediaStore;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
 /**
  * Project ID：400YF17051<br/>
@@ -15,15 +21,30 @@ import android.support.annotation.Nullable;
  * @since 2017/6/4 汪波 first commit
  */
 public class FilesFacade {
-  private static FilesFacade instance;
-  private final MimeType mMimeType;
+  private static final Uri FILES_URI = MediaStore.Files.getContentUri("external");
+  private static volatile FilesFacade instance;
+  private final Context mContext;
+  private volatile MimeType mMimeType;
+  private volatile Folders mFolders;
 
   protected FilesFacade(Context context) {
-    this(new MimeType(context));
+    mContext = context;
   }
 
   protected FilesFacade(MimeType mimeType) {
+    this(mimeType, null);
+  }
+
+  /**
+   * Convenient constructor to inject each modular class, especially for testing purpose.
+   * A module given as null is created on demand with the context of the other one.
+   * @param mimeType the mime type class
+   * @param folders the folders class
+   */
+  protected FilesFacade(MimeType mimeType, Folders folders) {
+    mContext = mimeType != null ? mimeType.context : (folders != null ? folders.context : null);
     mMimeType = mimeType;
+    mFolders = folders;
   }
 
   /**
@@ -32,26 +53,54 @@ public class FilesFacade {
    * @return the singleton object of {@link FilesFacade}.
    */
   public static FilesFacade getInstance(Context context) {
-    if (instance == null)
-      instance = new FilesFacade(context.getApplicationContext());
-    return instance;
+    FilesFacade result = instance;
+    if (result == null) {
+      synchronized (FilesFacade.class) {
+        result = instance;
+        if (result == null)
+          instance = result = new FilesFacade(context.getApplicationContext());
+      }
+    }
+    return result;
   }
 
   public MimeType mimeType(){
-    return mMimeType;
+    MimeType result = mMimeType;
+    if (result == null) {
+      synchronized (this) {
+        result = mMimeType;
+        if (result == null)
+          mMimeType = result = new MimeType(mContext);
+      }
+    }
+    return result;
+  }
+
+  public Folders folders() {
+    Folders result = mFolders;
+    if (result == null) {
+      synchronized (this) {
+        result = mFolders;
+        if (result == null)
+          mFolders = result = new Folders(mContext);
+      }
+    }
+    return result;
   }
 
   public static class MimeType {
+    private static final String NOTHING = "0";
     private final Context context;
-    private final ContentResolver resolver;
+    private final SharedProviderClient client;
 
     public MimeType(Context context) {
       this.context = context;
-      this.resolver = context.getContentResolver();
+      this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
     }
 
     /**
      * Fetch all mimetype files metadata from {@link MediaStore}.
+     * The types are exact types, or wildcards such as {@code image/*} and {@code application/vnd.*}, matching any of them.
      */
     public @Nullable FilesCursor fetch(String[] mimeType) {
       return fetch(mimeType, SortOrder.UNSPECIFIED);
@@ -61,8 +110,107 @@ public class FilesFacade {
      * Fetch all mimetype files metadata from {@link MediaStore} in the specified {@link SortOrder}.
      */
     public @Nullable FilesCursor fetch(String[] mimeType, SortOrder order) {
-      return new FilesCursor(resolver.query(MediaStore.Files.getContentUri("external"), null,
-          MediaStore.Files.FileColumns.MIME_TYPE + "= ?", mimeType, order.toSql()));
+      return fetch(mimeType, Projection.ALL, order);
+    }
+
+    /**
+     * Fetch the projected mimetype files metadata from {@link MediaStore} in the specified {@link SortOrder}.
+     * @see FilesCursor#LIST_ROW
+     */
+    public @Nullable FilesCursor fetch(String[] mimeType, Projection projection, SortOrder order) {
+      return fetch(mimeType, projection, order, null);
+    }
+
+    /**
+     * Fetch the projected mimetype files metadata from {@link MediaStore} in the specified {@link SortOrder}.
+     * The types are exact types, or wildcards such as {@code image/*} and {@code application/vnd.*}, matching any of them.
+     * When the types need more variables than SQLite binds in a statement, they are queried in chunks,
+     * and the chunks are merged in the sort order, which then must be a column, without copying the rows.
+     * The query is aborted when the signal is cancelled.
+     * @see FilesCursor#LIST_ROW
+     */
+    public @Nullable FilesCursor fetch(String[] mimeType, Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+      MimeTypeSelection selection = new MimeTypeSelection(mimeType, MimeTypeSelection.MAX_VARIABLES);
+      if (selection.size() <= 1) {
+        return new FilesCursor(QueryCache.query(client, FILES_URI, projection.toArray(),
+            selection.size() == 0 ? NOTHING : selection.getSelection(0), selection.size() == 0 ? null : selection.getSelectionArgs(0), order.toSql(), signal));
+      }
+      boolean sorted = !SortOrder.UNSPECIFIED.equals(order);
+      String[] columns = (sorted ? projection.plus(order.key()) : projection).toArray();
+      Cursor[] cursors = new Cursor[selection.size()];
+      for (int i = 0; i < cursors.length; i++) {
+        cursors[i] = QueryCache.query(client, FILES_URI, columns, selection.getSelection(i), selection.getSelectionArgs(i), order.toSql(), signal);
+        if (cursors[i] == null) {
+          for (int j = 0; j < i; j++) {
+            cursors[j].close();
+          }
+          return new FilesCursor(null);
+        }
+      }
+      return new FilesCursor(sorted ? new SortedMergeCursor(cursors, order.key(), order.order()) : new MergeCursor(cursors));
+    }
+
+    /**
+     * Asynchronously fetch the projected mimetype files metadata from {@link MediaStore} in the specified {@link SortOrder}.
+     * Cancel the returned future or the signal to abort the query.
+     */
+    public @NonNull QueryFuture<FilesCursor> fetchAsync(final String[] mimeType, final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+      return QueryExecutor.getDefault().submit(new QueryExecutor.Query<FilesCursor>() {
+        @Override
+        public FilesCursor run(@Nullable CancellationSignal signal) {
+          return fetch(mimeType, projection, order, signal);
+        }
+      }, signal);
+    }
+  }
+
+  /**
+   * {@link Folders} provides the directory tree of the files.
+   */
+  public static class Folders {
+    private final Context context;
+    private final SharedProviderClient client;
+
+    public Folders(Context context) {
+      this.context = context;
+      this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
+    }
+
+    /**
+     * Build the directory tree of all files from a single query.
+     * @see FolderIndex
+     */
+    @WorkerThread
+    public @NonNull FolderIndex fetchIndex() {
+      return fetchIndex(null);
+    }
+
+    /**
+     * Build the directory tree of all files from a single query.
+     * The query is aborted when the signal is cancelled.
+     * @see FolderIndex
+     */
+    @WorkerThread
+    public @NonNull FolderIndex fetchIndex(@Nullable CancellationSignal signal) {
+      Cursor cursor = QueryCache.query(client, FILES_URI, FolderIndex.PROJECTION.toArray(), null, null, MediaStore.Files.FileColumns._ID + " ASC", signal);
+      try {
+        return FolderIndex.of(cursor != null ? cursor : new MatrixCursor(FolderIndex.PROJECTION.toArray()));
+      } finally {
+        CursorUtils.close(cursor);
+      }
+    }
+
+    /**
+     * Asynchronously build the directory tree of all files from a single query.
+     * Cancel the returned future or the signal to abort the query.
+     */
+    public @NonNull QueryFuture<FolderIndex> fetchIndexAsync(@Nullable CancellationSignal signal) {
+      return QueryExecutor.getDefault().submit(new QueryExecutor.Query<FolderIndex>() {
+        @Override
+        public FolderIndex run(@Nullable CancellationSignal signal) {
+          return fetchIndex(signal);
+        }
+      }, signal);
     }
   }
 }
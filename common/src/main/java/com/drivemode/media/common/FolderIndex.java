@@ -0,0 +1,416 @@
+package com.drivemode.media.common;
+
+import android.database.Cursor;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable directory tree of {@link MediaStore.Files} built from a single scan of the {@link MediaStore.Files.FileColumns#PARENT} column,
+ * instead of querying the children of each directory while browsing.
+ * <p>
+ * The entries are addressed by index. The children of an entry are a contiguous range ordered by name,
+ * and every entry knows the number of files and their total size in its subtree.
+ * The rows whose parent is not in the table, e.g. the storage root, are the roots of the tree, and keep their full path.
+ * <pre>
+ * FolderIndex index = FilesFacade.getInstance(context).folders().fetchIndex();
+ * int dcim = index.indexOfPath("/storage/emulated/0/DCIM");
+ * for (int i = 0; i &lt; index.getChildCount(dcim); i++) {
+ *     int child = index.getChild(dcim, i);
+ *     // index.getName(child), index.getSubtreeFileCount(child), index.getSubtreeSize(child)
+ * }
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class FolderIndex {
+	/**
+	 * The columns read by {@link #of(Cursor)}.
+	 */
+	public static final Projection PROJECTION = Projection.of(
+			MediaStore.Files.FileColumns._ID,
+			MediaStore.Files.FileColumns.PARENT,
+			MediaStore.Files.FileColumns.DATA,
+			MediaStore.Files.FileColumns.SIZE,
+			"format");
+	/**
+	 * The format of a directory, {@code MtpConstants.FORMAT_ASSOCIATION}.
+	 */
+	private static final int FORMAT_ASSOCIATION = 0x3001;
+	private final long[] ids; // sorted
+	private final int[] parents; // -1 for a root
+	private final String[] names; // the full path for a root
+	private final long[] sizes;
+	private final boolean[] directories;
+	private final int[] firstChildren; // count + 1
+	private final int[] children;
+	private final int[] roots;
+	private final int[] subtreeFileCounts;
+	private final long[] subtreeSizes;
+
+	private FolderIndex(long[] ids, long[] parentIds, String[] paths, long[] sizes, boolean[] directories) {
+		int count = ids.length;
+		this.ids = ids;
+		this.sizes = sizes;
+		this.directories = directories;
+		parents = new int[count];
+		names = new String[count];
+		int[] childCounts = new int[count];
+		int rootCount = 0;
+		for (int i = 0; i < count; i++) {
+			int parent = Arrays.binarySearch(ids, parentIds[i]);
+			parents[i] = parent >= 0 && parent != i ? parent : -1;
+			if (parents[i] < 0) {
+				names[i] = paths[i];
+				rootCount++;
+			} else {
+				childCounts[parents[i]]++;
+				names[i] = nameOf(paths[i]);
+			}
+		}
+		// group the children by parent with a counting sort
+		firstChildren = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			firstChildren[i + 1] = firstChildren[i] + childCounts[i];
+		}
+		children = new int[firstChildren[count]];
+		roots = new int[rootCount];
+		int[] filled = new int[count];
+		for (int i = 0, root = 0; i < count; i++) {
+			if (parents[i] < 0)
+				roots[root++] = i;
+			else
+				children[firstChildren[parents[i]] + filled[parents[i]]++] = i;
+		}
+		sortByName(roots, 0, roots.length);
+		for (int i = 0; i < count; i++) {
+			sortByName(children, firstChildren[i], firstChildren[i + 1]);
+			// an entry with children is a directory, whatever its format
+			this.directories[i] |= firstChildren[i + 1] > firstChildren[i];
+		}
+		// sum up the subtrees from the leaves, in the reverse of the breadth first order from the roots
+		subtreeFileCounts = new int[count];
+		subtreeSizes = new long[count];
+		int[] order = new int[count];
+		int visited = 0;
+		for (int root : roots) {
+			order[visited++] = root;
+		}
+		for (int head = 0; head < visited; head++) {
+			int entry = order[head];
+			for (int c = firstChildren[entry]; c < firstChildren[entry + 1]; c++) {
+				order[visited++] = children[c];
+			}
+		}
+		// the entries in a parent cycle are not reachable from a root, and are left out of the subtrees
+		for (int k = visited - 1; k >= 0; k--) {
+			int entry = order[k];
+			if (!this.directories[entry]) {
+				subtreeFileCounts[entry]++;
+				subtreeSizes[entry] += sizes[entry];
+			}
+			if (parents[entry] >= 0) {
+				subtreeFileCounts[parents[entry]] += subtreeFileCounts[entry];
+				subtreeSizes[parents[entry]] += subtreeSizes[entry];
+			}
+		}
+	}
+
+	/**
+	 * Build the index from the rows of {@link MediaStore.Files}.
+	 * The cursor is read from the first row to the last, and is neither moved back nor closed.
+	 * @param cursor the rows with the columns of {@link #PROJECTION}. The size and the format columns are optional.
+	 * @return the index.
+	 * @throws IllegalArgumentException if the id, the parent or the data column is missing.
+	 */
+	public static @NonNull FolderIndex of(@NonNull Cursor cursor) {
+		int id = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns._ID);
+		int parent = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.PARENT);
+		int data = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATA);
+		int size = cursor.getColumnIndex(MediaStore.Files.FileColumns.SIZE);
+		int format = cursor.getColumnIndex("format");
+		int capacity = cursor.getCount();
+		long[] ids = new long[capacity];
+		long[] parentIds = new long[capacity];
+		String[] paths = new String[capacity];
+		long[] sizes = new long[capacity];
+		boolean[] directories = new boolean[capacity];
+		int count = 0;
+		cursor.moveToPosition(-1);
+		while (count < capacity && cursor.moveToNext()) {
+			ids[count] = cursor.getLong(id);
+			parentIds[count] = cursor.getLong(parent);
+			paths[count] = cursor.getString(data);
+			sizes[count] = size < 0 ? 0 : cursor.getLong(size);
+			directories[count] = format >= 0 && cursor.getInt(format) == FORMAT_ASSOCIATION;
+			count++;
+		}
+		return of(ids, parentIds, paths, sizes, directories, count);
+	}
+
+	/**
+	 * Build the index from the first count entries of the arrays, in any order of the ids.
+	 * The arrays are not modified.
+	 */
+	static @NonNull FolderIndex of(long[] ids, long[] parentIds, String[] paths, long[] sizes, boolean[] directories, int count) {
+		// sort the rows by id, unless the cursor already was
+		int[] order = new int[count];
+		boolean sorted = true;
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+			sorted &= i == 0 || ids[i - 1] < ids[i];
+		}
+		if (!sorted) {
+			Integer[] boxed = new Integer[count];
+			for (int i = 0; i < count; i++) {
+				boxed[i] = i;
+			}
+			final long[] keys = ids;
+			Arrays.sort(boxed, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer l, Integer r) {
+					return keys[l] < keys[r] ? -1 : (keys[l] == keys[r] ? 0 : 1);
+				}
+			});
+			for (int i = 0; i < count; i++) {
+				order[i] = boxed[i];
+			}
+		}
+		long[] sortedIds = new long[count];
+		long[] sortedParentIds = new long[count];
+		String[] sortedPaths = new String[count];
+		long[] sortedSizes = new long[count];
+		boolean[] sortedDirectories = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			int row = order[i];
+			sortedIds[i] = ids[row];
+			sortedParentIds[i] = parentIds[row];
+			sortedPaths[i] = paths[row];
+			sortedSizes[i] = sizes[row];
+			sortedDirectories[i] = directories[row];
+		}
+		return new FolderIndex(sortedIds, sortedParentIds, sortedPaths, sortedSizes, sortedDirectories);
+	}
+
+	/**
+	 * @return the number of entries.
+	 */
+	public int getCount() {
+		return ids.length;
+	}
+
+	/**
+	 * @return the index of the entry, or -1 if the index does not contain the id.
+	 */
+	public int indexOf(long id) {
+		int index = Arrays.binarySearch(ids, id);
+		return index < 0 ? -1 : index;
+	}
+
+	public long getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * @return the index of the parent, or -1 for a root.
+	 */
+	public int getParent(int index) {
+		return parents[index];
+	}
+
+	/**
+	 * @return the last segment of the path, or the full path for a root.
+	 */
+	public @Nullable String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * @return the size of the file, 0 for a directory.
+	 */
+	public long getSize(int index) {
+		return directories[index] ? 0 : sizes[index];
+	}
+
+	public boolean isDirectory(int index) {
+		return directories[index];
+	}
+
+	public int getRootCount() {
+		return roots.length;
+	}
+
+	/**
+	 * @return the index of the root, roots are ordered by path.
+	 */
+	public int getRoot(int position) {
+		return roots[position];
+	}
+
+	public int getChildCount(int index) {
+		return firstChildren[index + 1] - firstChildren[index];
+	}
+
+	/**
+	 * @param index the index of the parent.
+	 * @param position the position of the child, from 0 to {@link #getChildCount(int)} - 1. Children are ordered by name.
+	 * @return the index of the child.
+	 */
+	public int getChild(int index, int position) {
+		return children[firstChildren[index] + position];
+	}
+
+	/**
+	 * @return the number of files, not counting directories, in the subtree of the entry including the entry itself.
+	 */
+	public int getSubtreeFileCount(int index) {
+		return subtreeFileCounts[index];
+	}
+
+	/**
+	 * @return the total size of the files in the subtree of the entry in bytes.
+	 */
+	public long getSubtreeSize(int index) {
+		return subtreeSizes[index];
+	}
+
+	/**
+	 * @return the full path of the entry, resolved from its names up to its root.
+	 */
+	public @Nullable String getPath(int index) {
+		if (parents[index] < 0)
+			return names[index];
+		StringBuilder path = new StringBuilder();
+		int depth = 0;
+		for (int entry = index; entry >= 0 && depth <= ids.length; entry = parents[entry], depth++) {
+			path.insert(0, names[entry]);
+			if (parents[entry] >= 0)
+				path.insert(0, '/');
+		}
+		return path.toString();
+	}
+
+	/**
+	 * @return the index of the entry at the path, or -1 if the index has no such entry.
+	 */
+	public int indexOfPath(@NonNull String path) {
+		String normalized = path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+		for (int root : roots) {
+			String rootPath = names[root];
+			if (rootPath == null || !normalized.startsWith(rootPath))
+				continue;
+			if (normalized.length() == rootPath.length())
+				return root;
+			if (normalized.charAt(rootPath.length()) != '/')
+				continue;
+			int entry = root;
+			int start = rootPath.length() + 1;
+			while (entry >= 0 && start <= normalized.length()) {
+				int end = normalized.indexOf('/', start);
+				if (end < 0)
+					end = normalized.length();
+				entry = findChild(entry, normalized.substring(start, end));
+				if (end == normalized.length())
+					return entry;
+				start = end + 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the ids of the entries in the subtree of the entry in depth first order, starting from the entry itself.
+	 * An entry in a parent cycle is listed once.
+	 */
+	public @NonNull LongIterator subtreeIds(int index) {
+		// every entry is pushed at most once, so the stack never overflows even around a parent cycle
+		final boolean[] pushed = new boolean[ids.length];
+		final int[] stack = new int[Math.max(ids.length, 1)];
+		stack[0] = index;
+		pushed[index] = true;
+		return new LongIterator() {
+			private int depth = 1;
+
+			@Override
+			public boolean hasNext() {
+				return depth > 0;
+			}
+
+			@Override
+			public long nextLong() {
+				if (depth == 0)
+					throw new NoSuchElementException();
+				int entry = stack[--depth];
+				// push the children in reverse so that they come out in name order
+				for (int c = firstChildren[entry + 1] - 1; c >= firstChildren[entry]; c--) {
+					if (!pushed[children[c]]) {
+						pushed[children[c]] = true;
+						stack[depth++] = children[c];
+					}
+				}
+				return ids[entry];
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "FolderIndex{" +
+				"entries=" + ids.length +
+				", roots=" + roots.length +
+				'}';
+	}
+
+	private int findChild(int parent, String name) {
+		int low = firstChildren[parent];
+		int high = firstChildren[parent + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int diff = compareNames(names[children[mid]], name);
+			if (diff < 0)
+				low = mid + 1;
+			else if (diff > 0)
+				high = mid - 1;
+			else
+				return children[mid];
+		}
+		return -1;
+	}
+
+	private void sortByName(int[] entries, int from, int to) {
+		if (to - from < 2)
+			return;
+		Integer[] boxed = new Integer[to - from];
+		for (int i = from; i < to; i++) {
+			boxed[i - from] = entries[i];
+		}
+		Arrays.sort(boxed, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer l, Integer r) {
+				return compareNames(names[l], names[r]);
+			}
+		});
+		for (int i = from; i < to; i++) {
+			entries[i] = boxed[i - from];
+		}
+	}
+
+	private static int compareNames(String l, String r) {
+		if (l == null)
+			return r == null ? 0 : -1;
+		if (r == null)
+			return 1;
+		return l.compareTo(r);
+	}
+
+	private static String nameOf(String path) {
+		if (path == null)
+			return null;
+		int slash = path.lastIndexOf('/');
+		return slash < 0 ? path : path.substring(slash + 1);
+	}
+}
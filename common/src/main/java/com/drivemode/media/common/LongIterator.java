@@ -0,0 +1,18 @@
+package com.drivemode.media.common;
+
+/**
+ * Iterator over primitive long values, e.g. ids, without boxing.
+ * @author KeithYokoma
+ */
+public interface LongIterator {
+	/**
+	 * @return true if there are more values.
+	 */
+	boolean hasNext();
+
+	/**
+	 * @return the next value.
+	 * @throws java.util.NoSuchElementException if there are no more values.
+	 */
+	long nextLong();
+}
@@ -0,0 +1,276 @@
+package com.drivemode.media.common;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Immutable map from a long key to a set of long values, e.g. from a track id to the ids of the playlists containing it.
+ * The entries are kept in sorted primitive arrays in the compressed sparse row layout:
+ * the sorted distinct keys, the offset of the values of each key, and the values sorted within each key.
+ * A lookup is a binary search over the keys, with no boxing and no per entry object.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class LongMultimap {
+	private static final long[] EMPTY = new long[0];
+	/**
+	 * The map without any entry.
+	 */
+	public static final LongMultimap EMPTY_MAP = new LongMultimap(EMPTY, new int[1], EMPTY);
+	private final long[] keys;
+	private final int[] offsets;
+	private final long[] values;
+
+	private LongMultimap(long[] keys, int[] offsets, long[] values) {
+		this.keys = keys;
+		this.offsets = offsets;
+		this.values = values;
+	}
+
+	/**
+	 * @return the number of distinct keys.
+	 */
+	public int keyCount() {
+		return keys.length;
+	}
+
+	/**
+	 * @return the number of key and value pairs.
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * @param index the index of the key, from 0 to {@link #keyCount()} - 1.
+	 * @return the key at the index, keys are in ascending order.
+	 */
+	public long keyAt(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * @param index the index of the key, from 0 to {@link #keyCount()} - 1.
+	 * @return the values of the key at the index in ascending order.
+	 */
+	public @NonNull long[] valuesAt(int index) {
+		return Arrays.copyOfRange(values, offsets[index], offsets[index + 1]);
+	}
+
+	/**
+	 * @param index the index of the key, from 0 to {@link #keyCount()} - 1.
+	 * @return the number of values of the key at the index.
+	 */
+	public int countAt(int index) {
+		return offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * @param index the index of the key, from 0 to {@link #keyCount()} - 1.
+	 * @param position the position of the value, from 0 to {@link #countAt(int)} - 1.
+	 * @return the value at the position, without copying the values of the key.
+	 */
+	public long valueAt(int index, int position) {
+		return values[offsets[index] + position];
+	}
+
+	/**
+	 * @return the index of the key, or a negative value if the map does not contain the key.
+	 */
+	public int indexOfKey(long key) {
+		return Arrays.binarySearch(keys, key);
+	}
+
+	public boolean containsKey(long key) {
+		return indexOfKey(key) >= 0;
+	}
+
+	public boolean containsEntry(long key, long value) {
+		int index = indexOfKey(key);
+		return index >= 0 && Arrays.binarySearch(values, offsets[index], offsets[index + 1], value) >= 0;
+	}
+
+	/**
+	 * @return the values of the key in ascending order, empty if the map does not contain the key.
+	 */
+	public @NonNull long[] get(long key) {
+		int index = indexOfKey(key);
+		return index < 0 ? EMPTY : valuesAt(index);
+	}
+
+	/**
+	 * @return the number of values of the key.
+	 */
+	public int count(long key) {
+		int index = indexOfKey(key);
+		return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * @return the map from each value to its keys.
+	 */
+	public @NonNull LongMultimap inverse() {
+		Builder builder = new Builder(values.length);
+		for (int index = 0; index < keys.length; index++) {
+			for (int i = offsets[index], end = offsets[index + 1]; i < end; i++) {
+				builder.put(values[i], keys[index]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param key the key.
+	 * @param replacement the new values of the key, none to remove the key.
+	 * @return the map with the values of the key replaced.
+	 */
+	public @NonNull LongMultimap with(long key, @NonNull long[] replacement) {
+		Builder builder = new Builder(values.length + replacement.length);
+		for (int index = 0; index < keys.length; index++) {
+			if (keys[index] == key)
+				continue;
+			for (int i = offsets[index], end = offsets[index + 1]; i < end; i++) {
+				builder.put(keys[index], values[i]);
+			}
+		}
+		for (long value : replacement) {
+			builder.put(key, value);
+		}
+		return builder.build();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof LongMultimap))
+			return false;
+		LongMultimap that = (LongMultimap) o;
+		return Arrays.equals(keys, that.keys) && Arrays.equals(offsets, that.offsets) && Arrays.equals(values, that.values);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(keys);
+		result = 31 * result + Arrays.hashCode(values);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "LongMultimap{" +
+				"keys=" + keys.length +
+				", entries=" + values.length +
+				'}';
+	}
+
+	/**
+	 * Collects key and value pairs in primitive arrays. Duplicated pairs are stored once.
+	 */
+	public static final class Builder {
+		private long[] pairKeys;
+		private long[] pairValues;
+		private int size;
+
+		public Builder() {
+			this(16);
+		}
+
+		public Builder(int expectedSize) {
+			pairKeys = new long[Math.max(expectedSize, 1)];
+			pairValues = new long[pairKeys.length];
+		}
+
+		public @NonNull Builder put(long key, long value) {
+			if (size == pairKeys.length) {
+				pairKeys = Arrays.copyOf(pairKeys, size * 2);
+				pairValues = Arrays.copyOf(pairValues, size * 2);
+			}
+			pairKeys[size] = key;
+			pairValues[size] = value;
+			size++;
+			return this;
+		}
+
+		public @NonNull Builder putAll(long key, @NonNull long[] values) {
+			for (long value : values) {
+				put(key, value);
+			}
+			return this;
+		}
+
+		public @NonNull LongMultimap build() {
+			if (size == 0)
+				return EMPTY_MAP;
+			sort(pairKeys, pairValues, 0, size - 1);
+			long[] keys = new long[size];
+			int[] offsets = new int[size + 1];
+			long[] values = new long[size];
+			int keyCount = 0;
+			int valueCount = 0;
+			for (int i = 0; i < size; i++) {
+				boolean newKey = keyCount == 0 || keys[keyCount - 1] != pairKeys[i];
+				if (!newKey && values[valueCount - 1] == pairValues[i])
+					continue; // duplicated pair
+				if (newKey) {
+					offsets[keyCount] = valueCount;
+					keys[keyCount++] = pairKeys[i];
+				}
+				values[valueCount++] = pairValues[i];
+			}
+			offsets[keyCount] = valueCount;
+			return new LongMultimap(Arrays.copyOf(keys, keyCount), Arrays.copyOf(offsets, keyCount + 1), Arrays.copyOf(values, valueCount));
+		}
+
+		/**
+		 * Quicksort of the pairs in place, recursing into the smaller partition to bound the stack depth.
+		 */
+		private static void sort(long[] keys, long[] values, int low, int high) {
+			while (high - low > 16) {
+				int mid = (low + high) >>> 1;
+				long pivotKey = keys[mid];
+				long pivotValue = values[mid];
+				int i = low;
+				int j = high;
+				while (i <= j) {
+					while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) {
+						i++;
+					}
+					while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) {
+						j--;
+					}
+					if (i <= j)
+						swap(keys, values, i++, j--);
+				}
+				if (j - low < high - i) {
+					sort(keys, values, low, j);
+					low = i;
+				} else {
+					sort(keys, values, i, high);
+					high = j;
+				}
+			}
+			for (int i = low + 1; i <= high; i++) {
+				for (int j = i; j > low && compare(keys[j - 1], values[j - 1], keys[j], values[j]) > 0; j--) {
+					swap(keys, values, j - 1, j);
+				}
+			}
+		}
+
+		private static int compare(long leftKey, long leftValue, long rightKey, long rightValue) {
+			if (leftKey != rightKey)
+				return leftKey < rightKey ? -1 : 1;
+			return leftValue < rightValue ? -1 : (leftValue == rightValue ? 0 : 1);
+		}
+
+		private static void swap(long[] keys, long[] values, int i, int j) {
+			long key = keys[i];
+			keys[i] = keys[j];
+			keys[j] = key;
+			long value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+	}
+}
@@ -0,0 +1,672 @@
+package com.drivemode.media.common;
+
+import android.content.Context;
+import android.database.AbstractCursor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link CursorSnapshot} persisted in a flat binary file and memory mapped on open.
+ * Values are read straight from the mapped pages, so a library saved on the previous run
+ * can be shown on the first screen before any query to {@link MediaStore} is made.
+ * <p>
+ * The file records a {@link Stamp} of the table it was taken from. Show the mapped rows first,
+ * then compare the stamp with {@link Stamp#of(Context, Uri)} on a worker thread and save a new snapshot if it differs.
+ * <pre>
+ * MappedSnapshot tracks = MappedSnapshot.open(new File(context.getFilesDir(), "tracks.snapshot"));
+ * if (tracks != null)
+ *     adapter.swapCursor(tracks.newCursor());
+ * // on a worker thread
+ * Stamp stamp = Stamp.of(context, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI);
+ * if (tracks == null || !stamp.equals(tracks.getStamp())) {
+ *     AudioCursor cursor = facade.media().fetch(AudioCursor.LIST_ROW);
+ *     MappedSnapshot.write(file, cursor.snapshot(), stamp);
+ *     cursor.close();
+ * }
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class MappedSnapshot {
+	private static final int MAGIC = 0x4d534e50; // "MSNP"
+	private static final int FORMAT_VERSION = 1;
+	private final Stamp stamp;
+	private final int count;
+	private final ColumnSchema schema;
+	private final MappedColumn[] columns;
+
+	private MappedSnapshot(Stamp stamp, int count, ColumnSchema schema, MappedColumn[] columns) {
+		this.stamp = stamp;
+		this.count = count;
+		this.schema = schema;
+		this.columns = columns;
+	}
+
+	/**
+	 * Map the snapshot file.
+	 * @param file the file written by {@link #write(File, CursorSnapshot, Stamp)}.
+	 * @return the snapshot, or null if the file does not exist or is not a valid snapshot.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static @Nullable MappedSnapshot open(@NonNull File file) throws IOException {
+		if (!file.isFile())
+			return null;
+		FileInputStream input = new FileInputStream(file);
+		ByteBuffer buffer;
+		try {
+			FileChannel channel = input.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			input.close(); // the mapping stays valid after the channel is closed
+		}
+		try {
+			return read(buffer);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Validates every count, offset and column extent against the file size,
+	 * so that a truncated or garbled file is refused here instead of failing later in a cursor getter.
+	 * @return the snapshot, or null if the file is not a valid snapshot.
+	 */
+	private static MappedSnapshot read(ByteBuffer buffer) {
+		int capacity = buffer.capacity();
+		if (capacity < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION)
+			return null;
+		int directory = buffer.getInt(capacity - 4);
+		ByteBuffer header = buffer.duplicate();
+		header.position(8);
+		header.limit(capacity - 4);
+		String uri = readString(header);
+		String version = readString(header);
+		if (uri == null || version == null || header.remaining() < 8 + 8 + 4 + 4 + 4)
+			return null;
+		Stamp stamp = new Stamp(uri, version, header.getLong(), header.getLong(), header.getInt());
+		int rows = header.getInt();
+		int columnCount = header.getInt();
+		if (rows < 0 || columnCount < 0 || directory < header.position() || directory > capacity - 4)
+			return null;
+		// the columns lie between the header and the directory
+		ByteBuffer data = buffer.duplicate();
+		data.limit(directory);
+		data = data.slice();
+		header.position(directory);
+		if (columnCount > header.remaining() / 9) // each entry takes at least 9 bytes
+			return null;
+		String[] names = new String[columnCount];
+		MappedColumn[] columns = new MappedColumn[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			names[i] = readString(header);
+			if (names[i] == null || header.remaining() < 5)
+				return null;
+			int type = header.get();
+			int offset = header.getInt();
+			columns[i] = MappedColumn.map(data, type, offset, rows);
+			if (columns[i] == null)
+				return null;
+		}
+		return new MappedSnapshot(stamp, rows, ColumnSchema.of(names), columns);
+	}
+
+	/**
+	 * Write the snapshot to the file. The file is replaced atomically, so a snapshot mapped from it stays readable.
+	 * @param file the file.
+	 * @param snapshot the snapshot to save.
+	 * @param stamp the stamp of the table the snapshot was taken from.
+	 * @throws IOException if the file cannot be written.
+	 */
+	@WorkerThread
+	public static void write(@NonNull File file, @NonNull CursorSnapshot snapshot, @NonNull Stamp stamp) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		boolean written = false;
+		try {
+			writeTemp(temp, snapshot, stamp);
+			if (!temp.renameTo(file))
+				throw new IOException("failed to replace " + file);
+			written = true;
+		} finally {
+			if (!written)
+				temp.delete(); // the partial file is useless, and nothing can be done if it stays
+		}
+	}
+
+	private static void writeTemp(File temp, CursorSnapshot snapshot, Stamp stamp) throws IOException {
+		FileOutputStream stream = new FileOutputStream(temp);
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+		try {
+			int rows = snapshot.getCount();
+			int columnCount = snapshot.getColumnCount();
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			writeString(output, stamp.uri);
+			writeString(output, stamp.version);
+			output.writeLong(stamp.maxId);
+			output.writeLong(stamp.maxDateModified);
+			output.writeInt(stamp.count);
+			output.writeInt(rows);
+			output.writeInt(columnCount);
+			int[] types = new int[columnCount];
+			int[] offsets = new int[columnCount];
+			for (int column = 0; column < columnCount; column++) {
+				types[column] = snapshot.getColumnType(column);
+				offsets[column] = output.size();
+				writeColumn(output, snapshot, column, types[column]);
+			}
+			int directory = output.size();
+			ColumnSchema schema = snapshot.getSchema();
+			for (int column = 0; column < columnCount; column++) {
+				writeString(output, schema.getColumnName(column));
+				output.writeByte(types[column]);
+				output.writeInt(offsets[column]);
+			}
+			output.writeInt(directory);
+			output.flush();
+			stream.getFD().sync();
+		} finally {
+			output.close();
+		}
+	}
+
+	private static void writeColumn(DataOutputStream output, CursorSnapshot snapshot, int column, int type) throws IOException {
+		int rows = snapshot.getCount();
+		byte[] nulls = new byte[(rows + 7) / 8];
+		for (int row = 0; row < rows; row++) {
+			if (snapshot.isNull(row, column))
+				nulls[row >> 3] |= 1 << (row & 7);
+		}
+		output.write(nulls);
+		switch (type) {
+			case Cursor.FIELD_TYPE_FLOAT:
+				for (int row = 0; row < rows; row++) {
+					output.writeDouble(snapshot.getDouble(row, column));
+				}
+				break;
+			case Cursor.FIELD_TYPE_STRING:
+				Map<String, Integer> codes = new HashMap<String, Integer>();
+				StringBuilder chars = new StringBuilder();
+				int[] starts = new int[16];
+				for (int row = 0; row < rows; row++) {
+					String value = snapshot.getString(row, column);
+					if (value == null) {
+						output.writeInt(-1);
+						continue;
+					}
+					Integer code = codes.get(value);
+					if (code == null) {
+						code = codes.size();
+						codes.put(value, code);
+						if (code == starts.length)
+							starts = Arrays.copyOf(starts, code * 2);
+						starts[code] = chars.length();
+						chars.append(value);
+					}
+					output.writeInt(code);
+				}
+				output.writeInt(codes.size());
+				for (int code = 0; code < codes.size(); code++) {
+					output.writeInt(starts[code]);
+				}
+				output.writeInt(chars.length());
+				output.writeChars(chars.toString());
+				break;
+			default:
+				for (int row = 0; row < rows; row++) {
+					output.writeLong(snapshot.getLong(row, column));
+				}
+				break;
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		output.writeInt(value.length());
+		output.writeChars(value);
+	}
+
+	/**
+	 * @return the string, or null if its length does not fit in the remaining bytes.
+	 */
+	private static String readString(ByteBuffer buffer) {
+		if (buffer.remaining() < 4)
+			return null;
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining() / 2)
+			return null;
+		char[] chars = new char[length];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = buffer.getChar();
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return the stamp of the table the snapshot was taken from.
+	 */
+	public @NonNull Stamp getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * @return the number of rows.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the column layout.
+	 */
+	public @NonNull ColumnSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of columns.
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @param columnName the column name.
+	 * @return the column index, or -1 if the snapshot does not contain the column.
+	 */
+	public int getColumnIndex(@NonNull String columnName) {
+		return schema.indexOf(columnName);
+	}
+
+	/**
+	 * @return one of {@link Cursor#FIELD_TYPE_NULL}, {@link Cursor#FIELD_TYPE_INTEGER}, {@link Cursor#FIELD_TYPE_FLOAT} or {@link Cursor#FIELD_TYPE_STRING}.
+	 */
+	public int getType(int row, int column) {
+		MappedColumn c = columns[column];
+		return c.isNull(row) ? Cursor.FIELD_TYPE_NULL : c.type;
+	}
+
+	public boolean isNull(int row, int column) {
+		return columns[column].isNull(row);
+	}
+
+	public long getLong(int row, int column) {
+		return columns[column].getLong(row);
+	}
+
+	public int getInt(int row, int column) {
+		return (int) columns[column].getLong(row);
+	}
+
+	public double getDouble(int row, int column) {
+		return columns[column].getDouble(row);
+	}
+
+	public @Nullable String getString(int row, int column) {
+		return columns[column].getString(row);
+	}
+
+	/**
+	 * @return a new cursor over all rows. Every cursor keeps its own position, so create one cursor per thread.
+	 */
+	public @NonNull Cursor newCursor() {
+		return new MappedCursor(this);
+	}
+
+	/**
+	 * Identifies the state of a {@link MediaStore} table the snapshot was taken from.
+	 * Any insertion, deletion or modification changes one of the values,
+	 * except that a row modified twice within the same second of {@link MediaStore.MediaColumns#DATE_MODIFIED} counts once.
+	 */
+	public static final class Stamp {
+		private static final String[] ID_PROJECTION = {BaseColumns._ID};
+		private static final String[] MODIFIED_PROJECTION = {MediaStore.MediaColumns.DATE_MODIFIED};
+		private final String uri;
+		private final String version;
+		private final long maxId;
+		private final long maxDateModified;
+		private final int count;
+
+		/* package */ Stamp(String uri, String version, long maxId, long maxDateModified, int count) {
+			this.uri = uri;
+			this.version = version;
+			this.maxId = maxId;
+			this.maxDateModified = maxDateModified;
+			this.count = count;
+		}
+
+		/**
+		 * Take the stamp of the current state of the table. Costs two queries, the first one scanning the id column.
+		 * @param context the context.
+		 * @param uri the table.
+		 * @return the stamp, or null if the provider is not available.
+		 */
+		@WorkerThread
+		public static @Nullable Stamp of(@NonNull Context context, @NonNull Uri uri) {
+			SharedProviderClient client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
+			try {
+				Cursor ids = client.query(uri, ID_PROJECTION, null, null, BaseColumns._ID + " ASC", null);
+				if (ids == null)
+					return null;
+				int count;
+				long maxId;
+				try {
+					count = ids.getCount();
+					maxId = ids.moveToLast() ? ids.getLong(0) : -1;
+				} finally {
+					ids.close();
+				}
+				Cursor modified = client.query(uri, MODIFIED_PROJECTION, null, null, MediaStore.MediaColumns.DATE_MODIFIED + " DESC LIMIT 1", null);
+				if (modified == null)
+					return null;
+				long maxDateModified;
+				try {
+					maxDateModified = modified.moveToFirst() ? modified.getLong(0) : -1;
+				} finally {
+					modified.close();
+				}
+				return new Stamp(uri.toString(), MediaStore.getVersion(context), maxId, maxDateModified, count);
+			} finally {
+				client.release();
+			}
+		}
+
+		public @NonNull Uri getUri() {
+			return Uri.parse(uri);
+		}
+
+		/**
+		 * @return the {@link MediaStore#getVersion(Context)}, which changes when the media database is rebuilt.
+		 */
+		public @NonNull String getVersion() {
+			return version;
+		}
+
+		public long getMaxId() {
+			return maxId;
+		}
+
+		public long getMaxDateModified() {
+			return maxDateModified;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Stamp))
+				return false;
+			Stamp that = (Stamp) o;
+			return maxId == that.maxId && maxDateModified == that.maxDateModified && count == that.count
+					&& uri.equals(that.uri) && version.equals(that.version);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uri.hashCode();
+			result = 31 * result + version.hashCode();
+			result = 31 * result + (int) (maxId ^ (maxId >>> 32));
+			result = 31 * result + (int) (maxDateModified ^ (maxDateModified >>> 32));
+			result = 31 * result + count;
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "Stamp{" +
+					"uri='" + uri + '\'' +
+					", version='" + version + '\'' +
+					", maxId=" + maxId +
+					", maxDateModified=" + maxDateModified +
+					", count=" + count +
+					'}';
+		}
+	}
+
+	/**
+	 * Column laid out as the null bitmap followed by the values.
+	 * Text is stored as per row dictionary codes followed by the dictionary,
+	 * and each dictionary entry is decoded on its first access.
+	 */
+	private static final class MappedColumn {
+		private final ByteBuffer buffer;
+		private final int type;
+		private final int nullsOffset;
+		private final int valuesOffset;
+		private final int dictionaryOffset;
+		private final int charsOffset;
+		private final String[] decoded;
+
+		private MappedColumn(ByteBuffer buffer, int type, int nullsOffset, int valuesOffset, int dictionaryOffset, int charsOffset, String[] decoded) {
+			this.buffer = buffer;
+			this.type = type;
+			this.nullsOffset = nullsOffset;
+			this.valuesOffset = valuesOffset;
+			this.dictionaryOffset = dictionaryOffset;
+			this.charsOffset = charsOffset;
+			this.decoded = decoded;
+		}
+
+		/**
+		 * Checks that the column lies in the buffer, and that each text value points into the dictionary
+		 * and each dictionary entry into the characters.
+		 * @return the column, or null if it does not.
+		 */
+		static MappedColumn map(ByteBuffer buffer, int type, int offset, int rows) {
+			long capacity = buffer.capacity();
+			long valuesOffset = offset + (rows + 7L) / 8;
+			if (offset < 0 || valuesOffset > capacity)
+				return null;
+			switch (type) {
+				case Cursor.FIELD_TYPE_INTEGER:
+				case Cursor.FIELD_TYPE_FLOAT:
+					if (valuesOffset + rows * 8L > capacity)
+						return null;
+					return new MappedColumn(buffer, type, offset, (int) valuesOffset, -1, -1, null);
+				case Cursor.FIELD_TYPE_STRING:
+					long size = valuesOffset + rows * 4L;
+					if (size + 4 > capacity)
+						return null;
+					int dictionarySize = buffer.getInt((int) size);
+					long dictionaryOffset = size + 4;
+					long charsOffset = dictionaryOffset + dictionarySize * 4L + 4;
+					if (dictionarySize < 0 || charsOffset > capacity)
+						return null;
+					int charCount = buffer.getInt((int) charsOffset - 4);
+					if (charCount < 0 || charsOffset + charCount * 2L > capacity)
+						return null;
+					for (int row = 0; row < rows; row++) {
+						int code = buffer.getInt((int) valuesOffset + row * 4);
+						if (code < -1 || code >= dictionarySize)
+							return null;
+					}
+					for (int code = 0, previous = 0; code < dictionarySize; code++) {
+						int start = buffer.getInt((int) dictionaryOffset + code * 4);
+						if (start < previous || start > charCount)
+							return null;
+						previous = start;
+					}
+					return new MappedColumn(buffer, type, offset, (int) valuesOffset, (int) dictionaryOffset, (int) charsOffset,
+							new String[dictionarySize]);
+				default:
+					return null;
+			}
+		}
+
+		boolean isNull(int row) {
+			return (buffer.get(nullsOffset + (row >> 3)) & (1 << (row & 7))) != 0;
+		}
+
+		long getLong(int row) {
+			switch (type) {
+				case Cursor.FIELD_TYPE_FLOAT:
+					return (long) getDouble(row);
+				case Cursor.FIELD_TYPE_STRING:
+					String value = getString(row);
+					if (value == null)
+						return 0;
+					try {
+						return Long.parseLong(value);
+					} catch (NumberFormatException e) {
+						return (long) getDouble(row);
+					}
+				default:
+					return buffer.getLong(valuesOffset + row * 8);
+			}
+		}
+
+		double getDouble(int row) {
+			switch (type) {
+				case Cursor.FIELD_TYPE_FLOAT:
+					return buffer.getDouble(valuesOffset + row * 8);
+				case Cursor.FIELD_TYPE_STRING:
+					String value = getString(row);
+					if (value == null)
+						return 0;
+					try {
+						return Double.parseDouble(value);
+					} catch (NumberFormatException e) {
+						return 0;
+					}
+				default:
+					return buffer.getLong(valuesOffset + row * 8);
+			}
+		}
+
+		String getString(int row) {
+			if (isNull(row))
+				return null;
+			switch (type) {
+				case Cursor.FIELD_TYPE_FLOAT:
+					return Double.toString(getDouble(row));
+				case Cursor.FIELD_TYPE_STRING:
+					int code = buffer.getInt(valuesOffset + row * 4);
+					return code < 0 ? null : decode(code);
+				default:
+					return Long.toString(getLong(row));
+			}
+		}
+
+		private String decode(int code) {
+			String value = decoded[code];
+			if (value != null)
+				return value;
+			int start = buffer.getInt(dictionaryOffset + code * 4);
+			int end = code + 1 < decoded.length ? buffer.getInt(dictionaryOffset + (code + 1) * 4) : buffer.getInt(charsOffset - 4);
+			char[] chars = new char[end - start];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = buffer.getChar(charsOffset + (start + i) * 2);
+			}
+			value = new String(chars);
+			decoded[code] = value; // a racing decode produces an equal string
+			return value;
+		}
+	}
+
+	private static final class MappedCursor extends AbstractCursor {
+		private final MappedSnapshot snapshot;
+
+		MappedCursor(MappedSnapshot snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public int getCount() {
+			return snapshot.getCount();
+		}
+
+		@Override
+		public String[] getColumnNames() {
+			ColumnSchema schema = snapshot.getSchema();
+			String[] names = new String[schema.getColumnCount()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = schema.getColumnName(i);
+			}
+			return names;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return snapshot.getColumnCount();
+		}
+
+		@Override
+		public int getColumnIndex(String columnName) {
+			int index = snapshot.getColumnIndex(columnName);
+			return index >= 0 ? index : super.getColumnIndex(columnName);
+		}
+
+		@Override
+		public String getColumnName(int columnIndex) {
+			return snapshot.getSchema().getColumnName(columnIndex);
+		}
+
+		@Override
+		public int getType(int column) {
+			checkPosition();
+			return snapshot.getType(getPosition(), column);
+		}
+
+		@Override
+		public String getString(int column) {
+			checkPosition();
+			return snapshot.getString(getPosition(), column);
+		}
+
+		@Override
+		public short getShort(int column) {
+			checkPosition();
+			return (short) snapshot.getLong(getPosition(), column);
+		}
+
+		@Override
+		public int getInt(int column) {
+			checkPosition();
+			return snapshot.getInt(getPosition(), column);
+		}
+
+		@Override
+		public long getLong(int column) {
+			checkPosition();
+			return snapshot.getLong(getPosition(), column);
+		}
+
+		@Override
+		public float getFloat(int column) {
+			checkPosition();
+			return (float) snapshot.getDouble(getPosition(), column);
+		}
+
+		@Override
+		public double getDouble(int column) {
+			checkPosition();
+			return snapshot.getDouble(getPosition(), column);
+		}
+
+		@Override
+		public boolean isNull(int column) {
+			checkPosition();
+			return snapshot.isNull(getPosition(), column);
+		}
+	}
+}
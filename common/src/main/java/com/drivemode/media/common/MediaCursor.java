@@ -15,6 +15,17 @@ import android.provider.MediaStore;
  * @since 2017/5/16 汪波 first commit
  */
 public class MediaCursor  extends BaseCursor {
+  private static final int COL_DATA = column(MediaStore.MediaColumns.DATA);
+  private static final int COL_SIZE = column(MediaStore.MediaColumns.SIZE);
+  private static final int COL_DISPLAY_NAME = column(MediaStore.MediaColumns.DISPLAY_NAME);
+  private static final int COL_TITLE = column(MediaStore.MediaColumns.TITLE);
+  private static final int COL_DATE_ADDED = column(MediaStore.MediaColumns.DATE_ADDED);
+  private static final int COL_DATE_MODIFIED = column(MediaStore.MediaColumns.DATE_MODIFIED);
+  private static final int COL_MIME_TYPE = column(MediaStore.MediaColumns.MIME_TYPE);
+  private static final int COL_IS_DRM = column("is_drm");
+  private static final int COL_WIDTH = column(MediaStore.MediaColumns.WIDTH);
+  private static final int COL_HEIGHT = column(MediaStore.MediaColumns.HEIGHT);
+
   public MediaCursor(Cursor cursor) {
     super(cursor);
   }
@@ -23,55 +34,55 @@ public class MediaCursor  extends BaseCursor {
    * @return Data for {@link android.provider.MediaStore.MediaColumns#DATA}
    */
   public String data() {
-    return getString(MediaStore.MediaColumns.DATA);
+    return getStringAt(COL_DATA);
   }
   /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#SIZE}
    */
   public long size() {
-    return getLong(MediaStore.MediaColumns.SIZE);
+    return getLongAt(COL_SIZE);
   }
   /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#DISPLAY_NAME}
    */
   public String displayName() {
-    return getString(MediaStore.MediaColumns.DISPLAY_NAME);
+    return getStringAt(COL_DISPLAY_NAME);
   }
   /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#TITLE}
    */
   public String title() {
-    return getString(MediaStore.MediaColumns.TITLE);
+    return getStringAt(COL_TITLE);
   }
   /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#DATE_ADDED}
    */
   public long createdAt() {
-    return getLong(MediaStore.MediaColumns.DATE_ADDED);
+    return getLongAt(COL_DATE_ADDED);
   }
 
   /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#DATE_MODIFIED}
    */
   public long updatedAt() {
-    return getLong(MediaStore.MediaColumns.DATE_MODIFIED);
+    return getLongAt(COL_DATE_MODIFIED);
   }
    /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#MIME_TYPE}
    */
   public String mimeType() {
-    return getString(MediaStore.MediaColumns.MIME_TYPE);
+    return getStringAt(COL_MIME_TYPE);
   }
 
   public boolean drmProtected() {
-    return getInt("is_drm") != 0;
+    return getIntAt(COL_IS_DRM) != 0;
   }
   /**
    * @return Data for {@link android.provider.MediaStore.MediaColumns#WIDTH}
    */
   @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
   public long width() {
-    return getLong(MediaStore.MediaColumns.WIDTH);
+    return getLongAt(COL_WIDTH);
   }
 
   /**
@@ -79,7 +90,7 @@ public class MediaCursor  extends BaseCursor {
    */
   @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
   public long height() {
-    return getLong(MediaStore.MediaColumns.HEIGHT);
+    return getLongAt(COL_HEIGHT);
   }
 
 }
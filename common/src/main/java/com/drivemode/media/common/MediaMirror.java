@@ -0,0 +1,471 @@
+package com.drivemode.media.common;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Local SQLite copy of the audio, image and video tables of {@link MediaStore}.
+ * Reading the local copy avoids the cross process query, which is the largest part of the cold start cost.
+ * <p>
+ * Only a fixed set of columns is mirrored, see {@link #AUDIO_COLUMNS}, {@link #IMAGE_COLUMNS} and {@link #VIDEO_COLUMNS}.
+ * Once installed with {@link #setDefault(MediaMirror)}, the facades answer a fetch from the mirror
+ * if the table has been synced and every projected column is mirrored, and query {@link MediaStore} otherwise,
+ * e.g. for {@link Projection#ALL}.
+ * <p>
+ * The mirror is as fresh as the last {@link #sync()}. Each sync copies only the rows added or modified
+ * since the previous one, using the largest {@link BaseColumns#_ID} and the {@link MediaStore.MediaColumns#DATE_MODIFIED} watermark,
+ * and reconciles deleted rows by comparing the id sets. Trigger it from a {@link ChangeTracker} to keep the mirror correct.
+ * A cursor read from the mirror is notified on the uri of its table, and a sync notifies the uri of each table it changed,
+ * so loaders reload once the mirror is current.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class MediaMirror extends SQLiteOpenHelper {
+	/**
+	 * The mirrored columns of {@link MediaStore.Audio.Media}.
+	 */
+	public static final Projection AUDIO_COLUMNS = Projection.of(
+			BaseColumns._ID,
+			MediaStore.MediaColumns.DATA,
+			MediaStore.MediaColumns.DISPLAY_NAME,
+			MediaStore.MediaColumns.SIZE,
+			MediaStore.MediaColumns.MIME_TYPE,
+			MediaStore.MediaColumns.TITLE,
+			MediaStore.MediaColumns.DATE_ADDED,
+			MediaStore.MediaColumns.DATE_MODIFIED,
+			MediaStore.Audio.AudioColumns.TITLE_KEY,
+			MediaStore.Audio.AudioColumns.ARTIST_ID,
+			MediaStore.Audio.AudioColumns.ARTIST,
+			MediaStore.Audio.AudioColumns.ALBUM_ID,
+			MediaStore.Audio.AudioColumns.ALBUM,
+			MediaStore.Audio.AudioColumns.DURATION,
+			MediaStore.Audio.AudioColumns.TRACK,
+			MediaStore.Audio.AudioColumns.YEAR,
+			MediaStore.Audio.AudioColumns.IS_MUSIC);
+	/**
+	 * The mirrored columns of {@link MediaStore.Images.Media}.
+	 */
+	public static final Projection IMAGE_COLUMNS = Projection.of(
+			BaseColumns._ID,
+			MediaStore.MediaColumns.DATA,
+			MediaStore.MediaColumns.DISPLAY_NAME,
+			MediaStore.MediaColumns.SIZE,
+			MediaStore.MediaColumns.MIME_TYPE,
+			MediaStore.MediaColumns.TITLE,
+			MediaStore.MediaColumns.DATE_ADDED,
+			MediaStore.MediaColumns.DATE_MODIFIED,
+			MediaStore.Images.ImageColumns.BUCKET_ID,
+			MediaStore.Images.ImageColumns.BUCKET_DISPLAY_NAME,
+			MediaStore.Images.ImageColumns.DATE_TAKEN,
+			MediaStore.Images.ImageColumns.ORIENTATION);
+	/**
+	 * The mirrored columns of {@link MediaStore.Video.Media}.
+	 */
+	public static final Projection VIDEO_COLUMNS = Projection.of(
+			BaseColumns._ID,
+			MediaStore.MediaColumns.DATA,
+			MediaStore.MediaColumns.DISPLAY_NAME,
+			MediaStore.MediaColumns.SIZE,
+			MediaStore.MediaColumns.MIME_TYPE,
+			MediaStore.MediaColumns.TITLE,
+			MediaStore.MediaColumns.DATE_ADDED,
+			MediaStore.MediaColumns.DATE_MODIFIED,
+			MediaStore.Video.VideoColumns.BUCKET_ID,
+			MediaStore.Video.VideoColumns.BUCKET_DISPLAY_NAME,
+			MediaStore.Video.VideoColumns.DATE_TAKEN,
+			MediaStore.Video.VideoColumns.DURATION,
+			MediaStore.Video.VideoColumns.RESOLUTION);
+	private static final String DATABASE_NAME = "media_mirror.db";
+	private static final int DATABASE_VERSION = 2;
+	private static final String STATE_TABLE = "sync_state";
+	private static final String STATE_NAME = "name";
+	private static final String STATE_MAX_ID = "max_id";
+	private static final String STATE_WATERMARK = "watermark";
+	private static final String CHANGED_SELECTION = BaseColumns._ID + " > ? OR " + MediaStore.MediaColumns.DATE_MODIFIED + " >= ?";
+	private static final String[] ID_PROJECTION = {BaseColumns._ID};
+	/**
+	 * The mirrored columns declared as TEXT in {@link MediaStore}, the others are INTEGER.
+	 * The same affinities make SQLite convert the string arguments of a selection as {@link MediaStore} does.
+	 */
+	private static final Set<String> TEXT_COLUMNS = new HashSet<String>(Arrays.asList(
+			MediaStore.MediaColumns.DATA,
+			MediaStore.MediaColumns.DISPLAY_NAME,
+			MediaStore.MediaColumns.MIME_TYPE,
+			MediaStore.MediaColumns.TITLE,
+			MediaStore.Audio.AudioColumns.TITLE_KEY,
+			MediaStore.Audio.AudioColumns.ARTIST,
+			MediaStore.Audio.AudioColumns.ALBUM,
+			MediaStore.Images.ImageColumns.BUCKET_ID,
+			MediaStore.Images.ImageColumns.BUCKET_DISPLAY_NAME,
+			MediaStore.Video.VideoColumns.RESOLUTION));
+	private static final String ID_ORDER = BaseColumns._ID + " ASC";
+	private static final Table[] TABLES = {
+			new Table("audio", MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, AUDIO_COLUMNS,
+					MediaStore.Audio.AudioColumns.ALBUM_ID, MediaStore.Audio.AudioColumns.ARTIST_ID, MediaStore.Audio.AudioColumns.TITLE_KEY),
+			new Table("images", MediaStore.Images.Media.EXTERNAL_CONTENT_URI, IMAGE_COLUMNS,
+					MediaStore.Images.ImageColumns.BUCKET_ID, MediaStore.Images.ImageColumns.DATE_TAKEN),
+			new Table("video", MediaStore.Video.Media.EXTERNAL_CONTENT_URI, VIDEO_COLUMNS,
+					MediaStore.Video.VideoColumns.BUCKET_ID, MediaStore.Video.VideoColumns.DATE_TAKEN)
+	};
+	private static volatile MediaMirror defaultMirror;
+	private final Context context;
+	private volatile Set<String> syncedTables;
+
+	public MediaMirror(@NonNull Context context) {
+		super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+		this.context = context.getApplicationContext();
+	}
+
+	/**
+	 * @return the mirror the facades read from, or null if reads go to {@link MediaStore}.
+	 */
+	public static @Nullable MediaMirror getDefault() {
+		return defaultMirror;
+	}
+
+	/**
+	 * Install the mirror the facades read from.
+	 * @param mirror the mirror, or null to read from {@link MediaStore}.
+	 */
+	public static void setDefault(@Nullable MediaMirror mirror) {
+		defaultMirror = mirror;
+	}
+
+	/**
+	 * Query the default mirror, and {@link MediaStore} through the client if the mirror cannot answer.
+	 * @throws android.os.OperationCanceledException if the query is cancelled.
+	 */
+	public static @Nullable Cursor query(@NonNull SharedProviderClient client, @NonNull Uri uri, @Nullable String[] projection,
+										 @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder,
+										 @Nullable CancellationSignal signal) {
+		MediaMirror mirror = defaultMirror;
+		if (mirror != null) {
+			Cursor cursor = mirror.query(uri, projection, selection, selectionArgs, sortOrder);
+			if (cursor != null)
+				return cursor;
+		}
+		return client.query(uri, projection, selection, selectionArgs, sortOrder, signal);
+	}
+
+	/**
+	 * Query the mirrored table. The selection and the sort order are interpreted as {@link MediaStore} does.
+	 * @return the cursor, or null if the table is not mirrored or synced yet, or a projected column is not mirrored.
+	 */
+	public @Nullable Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+								  @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+		Table table = tableOf(uri);
+		if (table == null || projection == null || !table.mirrors(projection))
+			return null;
+		try {
+			if (!getSyncedTables().contains(table.name))
+				return null;
+			SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+			builder.setTables(table.name);
+			Cursor cursor = builder.query(getReadableDatabase(), projection, selection, selectionArgs, null, null, sortOrder);
+			if (cursor != null)
+				cursor.setNotificationUri(context.getContentResolver(), uri);
+			return cursor;
+		} catch (SQLiteException e) {
+			// the selection refers to a column which is not mirrored
+			return null;
+		}
+	}
+
+	/**
+	 * Copy the changes of every mirrored table since the previous sync, and notify the uri of each table whose rows changed.
+	 * Blocks on database and provider I/O, so call it on a worker thread.
+	 */
+	@WorkerThread
+	public synchronized void sync() {
+		SharedProviderClient client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
+		try {
+			for (Table table : TABLES) {
+				if (!sync(client, table))
+					continue;
+				// a result read from the mirror before this sync may have been cached after the change notification
+				QueryCache cache = QueryCache.getDefault();
+				if (cache != null)
+					cache.invalidate(table.uri);
+				context.getContentResolver().notifyChange(table.uri, null);
+			}
+		} finally {
+			client.release();
+		}
+	}
+
+	/**
+	 * @return true if a row of the table was inserted, modified or deleted.
+	 */
+	private boolean sync(SharedProviderClient client, Table table) {
+		SQLiteDatabase db = getWritableDatabase();
+		long maxId = -1;
+		long watermark = -1;
+		Cursor state = db.query(STATE_TABLE, new String[] {STATE_MAX_ID, STATE_WATERMARK}, STATE_NAME + " = ?",
+				new String[] {table.name}, null, null, null);
+		try {
+			if (state.moveToFirst()) {
+				maxId = state.getLong(0);
+				watermark = state.getLong(1);
+			}
+		} finally {
+			state.close();
+		}
+		boolean first = maxId < 0;
+		Cursor changed = client.query(table.uri, table.columns.toArray(), first ? null : CHANGED_SELECTION,
+				first ? null : new String[] {String.valueOf(maxId), String.valueOf(watermark)}, ID_ORDER, null);
+		if (changed == null)
+			return false;
+		long syncedMaxId = maxId;
+		long syncedWatermark = watermark;
+		int changes = 0;
+		db.beginTransaction();
+		try {
+			SQLiteStatement upsert = db.compileStatement(table.upsertSql());
+			SQLiteStatement same = db.compileStatement(table.sameRowSql());
+			try {
+				int modifiedIndex = changed.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED);
+				while (changed.moveToNext()) {
+					long id = changed.getLong(0);
+					long modified = changed.getLong(modifiedIndex);
+					// the rows modified at the watermark are fetched again by every sync, and mostly unchanged
+					if (id <= syncedMaxId && modified <= syncedWatermark) {
+						bindRow(same, changed);
+						if (same.simpleQueryForLong() > 0)
+							continue;
+					}
+					bindRow(upsert, changed);
+					upsert.executeInsert();
+					changes++;
+					maxId = Math.max(maxId, id);
+					watermark = Math.max(watermark, modified);
+				}
+			} finally {
+				same.close();
+				upsert.close();
+				changed.close();
+			}
+			if (!first) {
+				int deleted = removeDeleted(client, db, table);
+				if (deleted < 0)
+					return false;
+				changes += deleted;
+			}
+			SQLiteStatement saveState = db.compileStatement("INSERT OR REPLACE INTO " + STATE_TABLE
+					+ " (" + STATE_NAME + ", " + STATE_MAX_ID + ", " + STATE_WATERMARK + ") VALUES (?, ?, ?)");
+			try {
+				saveState.bindString(1, table.name);
+				saveState.bindLong(2, Math.max(maxId, 0));
+				saveState.bindLong(3, Math.max(watermark, 0));
+				saveState.executeInsert();
+			} finally {
+				saveState.close();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+		Set<String> synced = new HashSet<String>(getSyncedTables());
+		synced.add(table.name);
+		syncedTables = Collections.unmodifiableSet(synced);
+		return changes > 0;
+	}
+
+	/**
+	 * @return the number of deleted rows, or -1 if the provider is not available.
+	 */
+	private int removeDeleted(SharedProviderClient client, SQLiteDatabase db, Table table) {
+		Cursor remote = client.query(table.uri, ID_PROJECTION, null, null, ID_ORDER, null);
+		if (remote == null)
+			return -1;
+		Cursor local = db.query(table.name, ID_PROJECTION, null, null, null, null, ID_ORDER);
+		SQLiteStatement delete = db.compileStatement("DELETE FROM " + table.name + " WHERE " + BaseColumns._ID + " = ?");
+		try {
+			// ids only grow, so a matching count and last id means no row has gone
+			if (remote.getCount() == local.getCount() && (local.getCount() == 0
+					|| (remote.moveToLast() && local.moveToLast() && remote.getLong(0) == local.getLong(0))))
+				return 0;
+			remote.moveToPosition(-1);
+			local.moveToPosition(-1);
+			boolean hasRemote = remote.moveToNext();
+			int deleted = 0;
+			while (local.moveToNext()) {
+				long id = local.getLong(0);
+				while (hasRemote && remote.getLong(0) < id) {
+					hasRemote = remote.moveToNext();
+				}
+				if (!hasRemote || remote.getLong(0) != id) {
+					delete.bindLong(1, id);
+					delete.executeUpdateDelete();
+					deleted++;
+				}
+			}
+			return deleted;
+		} finally {
+			delete.close();
+			local.close();
+			remote.close();
+		}
+	}
+
+	private static void bindRow(SQLiteStatement statement, Cursor cursor) {
+		for (int i = 0, count = cursor.getColumnCount(); i < count; i++) {
+			switch (cursor.getType(i)) {
+				case Cursor.FIELD_TYPE_INTEGER:
+					statement.bindLong(i + 1, cursor.getLong(i));
+					break;
+				case Cursor.FIELD_TYPE_FLOAT:
+					statement.bindDouble(i + 1, cursor.getDouble(i));
+					break;
+				case Cursor.FIELD_TYPE_STRING:
+					statement.bindString(i + 1, cursor.getString(i));
+					break;
+				case Cursor.FIELD_TYPE_BLOB:
+					statement.bindBlob(i + 1, cursor.getBlob(i));
+					break;
+				default:
+					statement.bindNull(i + 1);
+					break;
+			}
+		}
+	}
+
+	private Set<String> getSyncedTables() {
+		Set<String> synced = syncedTables;
+		if (synced != null)
+			return synced;
+		Set<String> loaded = new HashSet<String>();
+		Cursor cursor = getReadableDatabase().query(STATE_TABLE, new String[] {STATE_NAME}, null, null, null, null, null);
+		try {
+			while (cursor.moveToNext()) {
+				loaded.add(cursor.getString(0));
+			}
+		} finally {
+			cursor.close();
+		}
+		synced = Collections.unmodifiableSet(loaded);
+		syncedTables = synced;
+		return synced;
+	}
+
+	private static Table tableOf(Uri uri) {
+		for (Table table : TABLES) {
+			if (table.uri.equals(uri))
+				return table;
+		}
+		return null;
+	}
+
+	@Override
+	public void onOpen(SQLiteDatabase db) {
+		super.onOpen(db);
+		if (!db.isReadOnly())
+			db.enableWriteAheadLogging();
+	}
+
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL("CREATE TABLE " + STATE_TABLE + " (" + STATE_NAME + " TEXT PRIMARY KEY, "
+				+ STATE_MAX_ID + " INTEGER NOT NULL, " + STATE_WATERMARK + " INTEGER NOT NULL)");
+		for (Table table : TABLES) {
+			table.create(db);
+		}
+	}
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		// the mirror is a cache, so sync it again from scratch
+		db.execSQL("DROP TABLE IF EXISTS " + STATE_TABLE);
+		for (Table table : TABLES) {
+			db.execSQL("DROP TABLE IF EXISTS " + table.name);
+		}
+		syncedTables = null;
+		onCreate(db);
+	}
+
+	private static final class Table {
+		private final String name;
+		private final Uri uri;
+		private final Projection columns;
+		private final String[] indexed;
+
+		Table(String name, Uri uri, Projection columns, String... indexed) {
+			this.name = name;
+			this.uri = uri;
+			this.columns = columns;
+			this.indexed = indexed;
+		}
+
+		boolean mirrors(String[] projection) {
+			for (String column : projection) {
+				if (!columns.contains(column))
+					return false;
+			}
+			return true;
+		}
+
+		void create(SQLiteDatabase db) {
+			StringBuilder sql = new StringBuilder("CREATE TABLE ").append(name).append(" (")
+					.append(BaseColumns._ID).append(" INTEGER PRIMARY KEY");
+			String[] names = columns.toArray();
+			for (String column : names) {
+				if (!BaseColumns._ID.equals(column))
+					sql.append(", ").append(column).append(TEXT_COLUMNS.contains(column) ? " TEXT" : " INTEGER");
+			}
+			db.execSQL(sql.append(')').toString());
+			for (String column : indexed) {
+				db.execSQL("CREATE INDEX " + name + "_" + column + " ON " + name + " (" + column + ")");
+			}
+		}
+
+		String upsertSql() {
+			String[] names = columns.toArray();
+			char[] params = new char[names.length * 2 - 1];
+			Arrays.fill(params, ',');
+			for (int i = 0; i < names.length; i++) {
+				params[i * 2] = '?';
+			}
+			return "INSERT OR REPLACE INTO " + name + " (" + join(names) + ") VALUES (" + new String(params) + ")";
+		}
+
+		/**
+		 * @return the statement counting the rows equal to the bound row, with the parameters in the order of {@link #upsertSql()}.
+		 */
+		String sameRowSql() {
+			StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(name).append(" WHERE ");
+			String[] names = columns.toArray();
+			for (int i = 0; i < names.length; i++) {
+				if (i > 0)
+					sql.append(" AND ");
+				sql.append(names[i]).append(" IS ?");
+			}
+			return sql.toString();
+		}
+
+		private static String join(String[] names) {
+			StringBuilder builder = new StringBuilder();
+			for (String column : names) {
+				if (builder.length() > 0)
+					builder.append(',');
+				builder.append(column);
+			}
+			return builder.toString();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.drivemode.media.common;
+
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Selections matching a set of exact MIME types and wildcards, e.g. {@code image/*} or {@code application/vnd.*},
+ * split into chunks binding fewer variables than SQLite allows in a single statement.
+ * Exact types matched by a wildcard, and wildcards matched by a shorter one, are dropped,
+ * so that the chunks match disjoint rows and can be merged without duplicates.
+ * @author KeithYokoma
+ */
+/* package */ final class MimeTypeSelection {
+	/**
+	 * The default limit of the bound variables of SQLite before 3.32.
+	 */
+	/* package */ static final int MAX_VARIABLES = 999;
+	private static final String COLUMN = MediaStore.Files.FileColumns.MIME_TYPE;
+	private final List<String> selections = new ArrayList<String>();
+	private final List<String[]> selectionArgs = new ArrayList<String[]>();
+
+	/**
+	 * @param mimeTypes exact types, and wildcards ending with {@code *}. {@code *} and {@code *}{@code /*} match every type.
+	 * @param maxVariables the maximum number of variables bound in a chunk.
+	 */
+	/* package */ MimeTypeSelection(@NonNull String[] mimeTypes, int maxVariables) {
+		TreeSet<String> prefixes = new TreeSet<String>();
+		TreeSet<String> exacts = new TreeSet<String>();
+		for (String mimeType : mimeTypes) {
+			if (mimeType.endsWith("*")) {
+				// LIKE ignores the case of ASCII letters
+				String prefix = mimeType.substring(0, mimeType.length() - 1).toLowerCase(Locale.US);
+				prefixes.add(prefix.equals("*/") ? "" : prefix);
+			} else {
+				exacts.add(mimeType);
+			}
+		}
+		// in the sorted order, a prefix comes right before the strings it matches
+		List<String> wildcards = new ArrayList<String>();
+		for (String prefix : prefixes) {
+			if (wildcards.isEmpty() || !prefix.startsWith(wildcards.get(wildcards.size() - 1)))
+				wildcards.add(prefix);
+		}
+		List<String> types = new ArrayList<String>();
+		for (String exact : exacts) {
+			if (!matches(wildcards, exact))
+				types.add(exact);
+		}
+		// fill each chunk with the wildcards first, then with the exact types
+		int total = wildcards.size() + types.size();
+		for (int start = 0; start < total; start += maxVariables) {
+			int end = Math.min(start + maxVariables, total);
+			StringBuilder selection = new StringBuilder();
+			String[] args = new String[end - start];
+			int exactStart = Math.min(Math.max(start, wildcards.size()), end);
+			for (int i = start; i < exactStart; i++) {
+				selection.append(i == start ? "" : " OR ").append(COLUMN).append(" LIKE ? ESCAPE '\\'");
+				args[i - start] = escape(wildcards.get(i)) + "%";
+			}
+			if (exactStart < end) {
+				selection.append(exactStart == start ? "" : " OR ").append(COLUMN).append(" IN (");
+				for (int i = exactStart; i < end; i++) {
+					selection.append(i == exactStart ? "?" : ",?");
+					args[i - start] = types.get(i - wildcards.size());
+				}
+				selection.append(')');
+			}
+			selections.add(selection.toString());
+			selectionArgs.add(args);
+		}
+	}
+
+	/**
+	 * @return the number of chunks, 0 when no type was given.
+	 */
+	/* package */ int size() {
+		return selections.size();
+	}
+
+	/* package */ @NonNull String getSelection(int chunk) {
+		return selections.get(chunk);
+	}
+
+	/* package */ @NonNull String[] getSelectionArgs(int chunk) {
+		return selectionArgs.get(chunk);
+	}
+
+	private static boolean matches(List<String> wildcards, String mimeType) {
+		String lowerCase = mimeType.toLowerCase(Locale.US);
+		for (String prefix : wildcards) {
+			if (lowerCase.startsWith(prefix))
+				return true;
+		}
+		return false;
+	}
+
+	private static String escape(String prefix) {
+		return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
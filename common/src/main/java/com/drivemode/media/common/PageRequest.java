@@ -0,0 +1,226 @@
+package com.drivemode.media.common;
+
+import android.database.Cursor;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Keyset pagination over a {@link android.provider.MediaStore} table.
+ * Each page is fetched with a range condition on the sort key followed by {@link BaseColumns#_ID} as a tie breaker,
+ * so fetching a page costs the same regardless of how deep it is, unlike an offset.
+ * Rows having null in the sort key are paged as SQLite orders them, before the other rows in the ascending order and after them in the descending order.
+ * <pre>
+ * PageRequest page = PageRequest.first(new SortOrder(MediaStore.MediaColumns.DATE_ADDED, SortOrder.Order.DESCENDING), 200);
+ * while (page != null) {
+ *     AudioCursor cursor = facade.media().fetchPage(page, AudioCursor.LIST_ROW);
+ *     // ...
+ *     page = page.next(cursor);
+ *     cursor.close();
+ * }
+ * </pre>
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class PageRequest {
+	private static final char TOKEN_SEPARATOR = '|';
+	private static final long NO_ANCHOR = -1;
+	private final String key;
+	private final SortOrder.Order order;
+	private final int pageSize;
+	private final long anchorId;
+	private final String anchorKey;
+
+	private PageRequest(@NonNull String key, @NonNull SortOrder.Order order, int pageSize, long anchorId, @Nullable String anchorKey) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("page size must be positive: " + pageSize);
+		this.key = key;
+		this.order = order == SortOrder.Order.DESCENDING ? order : SortOrder.Order.ASCENDING;
+		this.pageSize = pageSize;
+		this.anchorId = anchorId;
+		this.anchorKey = anchorKey;
+	}
+
+	/**
+	 * Create a request for the first page in the specified {@link SortOrder}.
+	 * {@link SortOrder#UNSPECIFIED} pages in the ascending order of {@link BaseColumns#_ID}.
+	 * @param order the sort order.
+	 * @param pageSize the maximum number of rows in a page.
+	 * @return the request for the first page.
+	 */
+	public static @NonNull PageRequest first(@NonNull SortOrder order, int pageSize) {
+		if (SortOrder.UNSPECIFIED.equals(order))
+			return byId(pageSize);
+		return new PageRequest(order.key(), order.order(), pageSize, NO_ANCHOR, null);
+	}
+
+	/**
+	 * Create a request for the first page in the ascending order of {@link BaseColumns#_ID}.
+	 * @param pageSize the maximum number of rows in a page.
+	 * @return the request for the first page.
+	 */
+	public static @NonNull PageRequest byId(int pageSize) {
+		return new PageRequest(BaseColumns._ID, SortOrder.Order.ASCENDING, pageSize, NO_ANCHOR, null);
+	}
+
+	/**
+	 * Restore the request from the continuation token.
+	 * @param token the token from {@link #toToken()}.
+	 * @return the request.
+	 */
+	public static @NonNull PageRequest fromToken(@NonNull String token) {
+		String[] parts = token.split("\\" + TOKEN_SEPARATOR, 5);
+		if (parts.length < 4)
+			throw new IllegalArgumentException("malformed page token: " + token);
+		try {
+			return new PageRequest(parts[0], SortOrder.Order.valueOf(parts[1]), Integer.parseInt(parts[2]),
+					Long.parseLong(parts[3]), parts.length == 5 ? parts[4] : null);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("malformed page token: " + token, e);
+		}
+	}
+
+	/**
+	 * Create a request for the page following the fetched page.
+	 * The cursor must contain the sort key and {@link BaseColumns#_ID}, see {@link #projection(Projection)}.
+	 * @param page the cursor of the page fetched with this request.
+	 * @return the request for the next page, or null if the fetched page was the last one.
+	 */
+	public @Nullable PageRequest next(@Nullable Cursor page) {
+		if (page == null || page.getCount() < pageSize)
+			return null;
+		int position = page.getPosition();
+		try {
+			page.moveToLast();
+			long id = page.getLong(page.getColumnIndexOrThrow(BaseColumns._ID));
+			String lastKey = isKeyedById() ? null : page.getString(page.getColumnIndexOrThrow(key));
+			return new PageRequest(key, order, pageSize, id, lastKey);
+		} finally {
+			page.moveToPosition(position);
+		}
+	}
+
+	/**
+	 * @return true if this request is for the first page.
+	 */
+	public boolean isFirst() {
+		return anchorId == NO_ANCHOR;
+	}
+
+	/**
+	 * @return the maximum number of rows in a page.
+	 */
+	public int pageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @return the token to restore this request with {@link #fromToken(String)}.
+	 */
+	public @NonNull String toToken() {
+		StringBuilder builder = new StringBuilder()
+				.append(key).append(TOKEN_SEPARATOR)
+				.append(order.name()).append(TOKEN_SEPARATOR)
+				.append(pageSize).append(TOKEN_SEPARATOR)
+				.append(anchorId);
+		if (anchorKey != null)
+			builder.append(TOKEN_SEPARATOR).append(anchorKey);
+		return builder.toString();
+	}
+
+	/**
+	 * @param projection the projection the caller needs.
+	 * @return the projection which also contains the columns required by {@link #next(Cursor)}.
+	 */
+	public @NonNull Projection projection(@NonNull Projection projection) {
+		return projection.plus(BaseColumns._ID, key);
+	}
+
+	/**
+	 * @param selection the base selection, may be null.
+	 * @return the selection restricted to this page.
+	 */
+	public @Nullable String selection(@Nullable String selection) {
+		if (isFirst())
+			return selection;
+		boolean descending = order == SortOrder.Order.DESCENDING;
+		String op = descending ? " < ?" : " > ?";
+		String range;
+		if (isKeyedById())
+			range = BaseColumns._ID + op;
+		else if (anchorKey == null)
+			// the nulls come first in the ascending order, and last in the descending order
+			range = "((" + key + " IS NULL AND " + BaseColumns._ID + op + ")" + (descending ? ")" : " OR " + key + " IS NOT NULL)");
+		else
+			range = "(" + key + op + " OR (" + key + " = ? AND " + BaseColumns._ID + op + ")" + (descending ? " OR " + key + " IS NULL)" : ")");
+		if (selection == null)
+			return range;
+		return "(" + selection + ") AND " + range;
+	}
+
+	/**
+	 * @param selectionArgs the base selection arguments, may be null.
+	 * @return the selection arguments for {@link #selection(String)}.
+	 */
+	public @Nullable String[] selectionArgs(@Nullable String[] selectionArgs) {
+		if (isFirst())
+			return selectionArgs;
+		String[] range;
+		if (isKeyedById() || anchorKey == null)
+			range = new String[] {String.valueOf(anchorId)};
+		else
+			range = new String[] {anchorKey, anchorKey, String.valueOf(anchorId)};
+		if (selectionArgs == null)
+			return range;
+		String[] args = new String[selectionArgs.length + range.length];
+		System.arraycopy(selectionArgs, 0, args, 0, selectionArgs.length);
+		System.arraycopy(range, 0, args, selectionArgs.length, range.length);
+		return args;
+	}
+
+	/**
+	 * @return the sort order with the page size limit.
+	 */
+	public @NonNull String sortOrder() {
+		String direction = order == SortOrder.Order.DESCENDING ? " DESC" : " ASC";
+		if (isKeyedById())
+			return BaseColumns._ID + direction + " LIMIT " + pageSize;
+		return key + direction + ", " + BaseColumns._ID + direction + " LIMIT " + pageSize;
+	}
+
+	private boolean isKeyedById() {
+		return BaseColumns._ID.equals(key);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof PageRequest))
+			return false;
+		PageRequest that = (PageRequest) o;
+		return pageSize == that.pageSize && anchorId == that.anchorId && key.equals(that.key) && order == that.order
+				&& (anchorKey == null ? that.anchorKey == null : anchorKey.equals(that.anchorKey));
+	}
+
+	@Override
+	public int hashCode() {
+		int result = key.hashCode();
+		result = 31 * result + order.hashCode();
+		result = 31 * result + pageSize;
+		result = 31 * result + (int) (anchorId ^ (anchorId >>> 32));
+		result = 31 * result + (anchorKey != null ? anchorKey.hashCode() : 0);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "PageRequest{" +
+				"key='" + key + '\'' +
+				", order=" + order +
+				", pageSize=" + pageSize +
+				", anchorId=" + anchorId +
+				", anchorKey='" + anchorKey + '\'' +
+				'}';
+	}
+}
@@ -0,0 +1,96 @@
+package com.drivemode.media.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Set of columns to be fetched from {@link android.provider.MediaStore}.
+ * Only the projected columns are copied into the cursor window and sent over Binder,
+ * so fetch the smallest set the screen actually reads.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class Projection {
+	/**
+	 * Fetches every column of the table.
+	 */
+	public static final Projection ALL = new Projection();
+	private final String[] columns;
+
+	private Projection() {
+		this.columns = null;
+	}
+
+	public Projection(@NonNull String... columns) {
+		if (columns.length == 0)
+			throw new IllegalArgumentException("projection must have at least one column, use Projection.ALL instead");
+		this.columns = columns.clone();
+	}
+
+	/**
+	 * @param columns the column names.
+	 * @return the projection for the columns.
+	 */
+	public static @NonNull Projection of(@NonNull String... columns) {
+		return new Projection(columns);
+	}
+
+	/**
+	 * @param columns additional column names.
+	 * @return the projection which has the columns of this projection followed by the additional ones.
+	 */
+	public @NonNull Projection plus(@NonNull String... columns) {
+		if (this.columns == null)
+			return this;
+		Set<String> merged = new LinkedHashSet<String>(Arrays.asList(this.columns));
+		merged.addAll(Arrays.asList(columns));
+		return new Projection(merged.toArray(new String[merged.size()]));
+	}
+
+	/**
+	 * @param column the column name.
+	 * @return true if the cursor fetched with this projection has the column.
+	 */
+	public boolean contains(@NonNull String column) {
+		if (columns == null)
+			return true;
+		for (String c : columns) {
+			if (c.equals(column))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the projection array for {@link android.content.ContentResolver#query}, or null for {@link #ALL}.
+	 * Do not modify the returned array.
+	 */
+	public @Nullable String[] toArray() {
+		return columns;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof Projection))
+			return false;
+		return Arrays.equals(columns, ((Projection) o).columns);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(columns);
+	}
+
+	@Override
+	public String toString() {
+		return "Projection{" +
+				"columns=" + Arrays.toString(columns) +
+				'}';
+	}
+}
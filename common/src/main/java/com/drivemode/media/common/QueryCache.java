@@ -0,0 +1,332 @@
+package com.drivemode.media.common;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of facade query results, so that reopening the same album, bucket or playlist
+ * does not issue the same cross process query again.
+ * <p>
+ * Results are kept as {@link CursorSnapshot}s and evicted in least recently used order once the byte budget is exceeded.
+ * A {@link ContentObserver} is registered for every cached {@link Uri}, and the entries of the uri are dropped
+ * as soon as the uri, one of its descendants or one of its ancestors notifies a change.
+ * The observer is unregistered once no cached entry and no running query refers to the uri.
+ * The members of playlists and genres are also dropped when the audio table notifies a change, since they are joined with it.
+ * The cursor returned on a hit is a {@link SnapshotCursor} notifying the same uri, so loaders still reload on changes.
+ * A result larger than the byte budget, or having BLOB values, is not cached, and returned as the provider cursor.
+ * <p>
+ * Once installed with {@link #setDefault(QueryCache)}, the facade fetch methods go through the cache,
+ * then the {@link MediaMirror}, then {@link android.provider.MediaStore}.
+ * {@link MediaMirror#sync()} invalidates the tables it changed, so a result read from the mirror before it caught up is not served afterwards.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class QueryCache {
+	/**
+	 * The default byte budget.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+	private static volatile QueryCache defaultCache;
+	private final ContentResolver resolver;
+	private final long maxBytes;
+	private final LinkedHashMap<Key, CursorSnapshot> entries = new LinkedHashMap<Key, CursorSnapshot>(16, 0.75f, true); // guarded by this
+	private final Map<Uri, UriObserver> observers = new HashMap<Uri, UriObserver>(); // guarded by this
+	private long bytes; // guarded by this
+	private int hitCount; // guarded by this
+	private int missCount; // guarded by this
+
+	public QueryCache(@NonNull Context context) {
+		this(context, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param context the context.
+	 * @param maxBytes the byte budget of the cached snapshots.
+	 */
+	public QueryCache(@NonNull Context context, long maxBytes) {
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("byte budget must be positive: " + maxBytes);
+		this.resolver = context.getApplicationContext().getContentResolver();
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the cache the facades go through, or null if the facades do not cache.
+	 */
+	public static @Nullable QueryCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * Install the cache the facades go through. The previous cache is cleared.
+	 * @param cache the cache, or null to stop caching.
+	 */
+	public static void setDefault(@Nullable QueryCache cache) {
+		QueryCache previous = defaultCache;
+		defaultCache = cache;
+		if (previous != null && previous != cache)
+			previous.clear();
+	}
+
+	/**
+	 * Query through the default cache if installed, and {@link MediaMirror#query(SharedProviderClient, Uri, String[], String, String[], String, CancellationSignal)} otherwise.
+	 * @throws android.os.OperationCanceledException if the query is cancelled.
+	 */
+	public static @Nullable Cursor query(@NonNull SharedProviderClient client, @NonNull Uri uri, @Nullable String[] projection,
+										 @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder,
+										 @Nullable CancellationSignal signal) {
+		QueryCache cache = defaultCache;
+		if (cache == null)
+			return MediaMirror.query(client, uri, projection, selection, selectionArgs, sortOrder, signal);
+		return cache.get(client, uri, projection, selection, selectionArgs, sortOrder, signal);
+	}
+
+	/**
+	 * Return the cached result, or query and cache it.
+	 * @throws android.os.OperationCanceledException if the query is cancelled.
+	 */
+	public @Nullable Cursor get(@NonNull SharedProviderClient client, @NonNull Uri uri, @Nullable String[] projection,
+								@Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder,
+								@Nullable CancellationSignal signal) {
+		Key key = new Key(uri, projection, selection, selectionArgs, sortOrder);
+		CursorSnapshot snapshot;
+		UriObserver observer;
+		UriObserver dependency;
+		int generation;
+		int dependencyGeneration;
+		synchronized (this) {
+			snapshot = entries.get(key);
+			if (snapshot != null) {
+				hitCount++;
+				return newCursor(snapshot, uri);
+			}
+			missCount++;
+			// the running query keeps the observers registered until it is done
+			observer = retain(uri);
+			generation = observer.generation;
+			dependency = key.dependency != null ? retain(key.dependency) : null;
+			dependencyGeneration = dependency != null ? dependency.generation : 0;
+		}
+		try {
+			Cursor cursor = MediaMirror.query(client, uri, projection, selection, selectionArgs, sortOrder, signal);
+			if (cursor == null)
+				return null;
+			try {
+				snapshot = CursorSnapshot.of(cursor, maxBytes);
+			} catch (RuntimeException e) {
+				cursor.close();
+				throw e;
+			}
+			if (snapshot == null)
+				return cursor; // not worth caching, the copy stopped early
+			cursor.close();
+			put(key, snapshot, observer, generation, dependency, dependencyGeneration);
+			return newCursor(snapshot, uri);
+		} finally {
+			synchronized (this) {
+				release(observer);
+				if (dependency != null)
+					release(dependency);
+			}
+		}
+	}
+
+	/**
+	 * Drop the cached results of the uri.
+	 * @param uri the uri.
+	 */
+	public synchronized void invalidate(@NonNull Uri uri) {
+		UriObserver observer = observers.get(uri);
+		if (observer != null)
+			observer.generation++;
+		Iterator<Map.Entry<Key, CursorSnapshot>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Key, CursorSnapshot> entry = iterator.next();
+			if (entry.getKey().uri.equals(uri) || uri.equals(entry.getKey().dependency)) {
+				bytes -= entry.getValue().sizeInBytes();
+				iterator.remove();
+				release(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Drop every cached result and stop observing.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+		for (UriObserver observer : observers.values()) {
+			resolver.unregisterContentObserver(observer);
+		}
+		observers.clear();
+	}
+
+	/**
+	 * @return the approximate size of the cached snapshots in bytes.
+	 */
+	public synchronized long sizeInBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of queries answered from the cache.
+	 */
+	public synchronized int hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of queries sent to the provider.
+	 */
+	public synchronized int missCount() {
+		return missCount;
+	}
+
+	private synchronized void put(Key key, CursorSnapshot snapshot, UriObserver observer, int generation,
+								  UriObserver dependency, int dependencyGeneration) {
+		if (observers.get(key.uri) != observer || observer.generation != generation)
+			return; // changed while querying, or cleared
+		if (dependency != null && (observers.get(key.dependency) != dependency || dependency.generation != dependencyGeneration))
+			return;
+		long size = snapshot.sizeInBytes();
+		if (size > maxBytes)
+			return;
+		retain(key.uri);
+		if (key.dependency != null)
+			retain(key.dependency);
+		CursorSnapshot previous = entries.put(key, snapshot);
+		if (previous != null) {
+			bytes -= previous.sizeInBytes();
+			release(key);
+		}
+		bytes += size;
+		Iterator<Map.Entry<Key, CursorSnapshot>> iterator = entries.entrySet().iterator();
+		while (bytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<Key, CursorSnapshot> eldest = iterator.next();
+			bytes -= eldest.getValue().sizeInBytes();
+			iterator.remove();
+			release(eldest.getKey());
+		}
+	}
+
+	/**
+	 * Count a reference to the uri from a cached entry or a running query, and observe the uri on the first one.
+	 */
+	private UriObserver retain(Uri uri) {
+		UriObserver observer = observers.get(uri);
+		if (observer == null) {
+			observer = new UriObserver(uri);
+			resolver.registerContentObserver(uri, true, observer);
+			observers.put(uri, observer);
+		}
+		observer.references++;
+		return observer;
+	}
+
+	/**
+	 * Drop a reference to the uri, and stop observing it on the last one.
+	 */
+	private void release(UriObserver observer) {
+		if (--observer.references > 0 || observers.get(observer.uri) != observer)
+			return; // still referred to, or already unregistered by clear()
+		observers.remove(observer.uri);
+		resolver.unregisterContentObserver(observer);
+	}
+
+	private void release(Key key) {
+		release(observers.get(key.uri));
+		if (key.dependency != null)
+			release(observers.get(key.dependency));
+	}
+
+	/**
+	 * @return the table the rows of the uri are joined with, which notifies changes on its own uri, or null.
+	 */
+	private static @Nullable Uri dependencyOf(Uri uri) {
+		List<String> segments = uri.getPathSegments();
+		// content://media/<volume>/audio/playlists/<id>/members and content://media/<volume>/audio/genres/<id>/members
+		if (MediaStore.AUTHORITY.equals(uri.getAuthority()) && segments.size() == 5 && "members".equals(segments.get(4)))
+			return MediaStore.Audio.Media.getContentUri(segments.get(0));
+		return null;
+	}
+
+	private Cursor newCursor(CursorSnapshot snapshot, Uri uri) {
+		SnapshotCursor cursor = snapshot.newCursor();
+		cursor.setNotificationUri(resolver, uri);
+		return cursor;
+	}
+
+	private final class UriObserver extends ContentObserver {
+		private final Uri uri;
+		private int generation; // guarded by QueryCache.this
+		private int references; // guarded by QueryCache.this
+
+		UriObserver(Uri uri) {
+			super(null); // dispatched on the binder thread
+			this.uri = uri;
+		}
+
+		@Override
+		public void onChange(boolean selfChange) {
+			invalidate(uri);
+		}
+	}
+
+	private static final class Key {
+		private final Uri uri;
+		private final Uri dependency;
+		private final String[] projection;
+		private final String selection;
+		private final String[] selectionArgs;
+		private final String sortOrder;
+		private final int hash;
+
+		Key(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+			this.uri = uri;
+			this.dependency = dependencyOf(uri);
+			this.projection = projection != null ? projection.clone() : null;
+			this.selection = selection;
+			this.selectionArgs = selectionArgs != null ? selectionArgs.clone() : null;
+			this.sortOrder = sortOrder;
+			int result = uri.hashCode();
+			result = 31 * result + Arrays.hashCode(projection);
+			result = 31 * result + (selection != null ? selection.hashCode() : 0);
+			result = 31 * result + Arrays.hashCode(selectionArgs);
+			result = 31 * result + (sortOrder != null ? sortOrder.hashCode() : 0);
+			this.hash = result;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key that = (Key) o;
+			return hash == that.hash && uri.equals(that.uri) && Arrays.equals(projection, that.projection)
+					&& (selection == null ? that.selection == null : selection.equals(that.selection))
+					&& Arrays.equals(selectionArgs, that.selectionArgs)
+					&& (sortOrder == null ? that.sortOrder == null : sortOrder.equals(that.sortOrder));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.drivemode.media.common;
+
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for asynchronous facade queries.
+ * When the queue is full, the oldest pending query is cancelled to make room for the new one,
+ * so that queries abandoned by rapid screen changes do not pile up.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public class QueryExecutor {
+	private static final int DEFAULT_QUEUE_CAPACITY = 16;
+	private static volatile QueryExecutor defaultExecutor;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param threads the maximum number of concurrent queries.
+	 * @param queueCapacity the maximum number of pending queries.
+	 */
+	public QueryExecutor(int threads, int queueCapacity) {
+		BlockingQueue<Runnable> queue = new ArrayBlockingQueue<Runnable>(queueCapacity);
+		executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, queue, new QueryThreadFactory(), new CancelOldestPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return the executor used by the asynchronous facade methods.
+	 */
+	public static @NonNull QueryExecutor getDefault() {
+		QueryExecutor executor = defaultExecutor;
+		if (executor == null) {
+			synchronized (QueryExecutor.class) {
+				executor = defaultExecutor;
+				if (executor == null) {
+					int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+					executor = new QueryExecutor(threads, DEFAULT_QUEUE_CAPACITY);
+					defaultExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * Replace the executor used by the asynchronous facade methods. The previous executor is not shut down.
+	 * @param executor the executor.
+	 */
+	public static void setDefault(@NonNull QueryExecutor executor) {
+		defaultExecutor = executor;
+	}
+
+	/**
+	 * Run the query on this executor.
+	 * @param query the query.
+	 * @param signal the signal to cancel the query with, or null to create one.
+	 * @return the future of the query result. Cancelling the future cancels the signal.
+	 */
+	public @NonNull <T> QueryFuture<T> submit(@NonNull Query<T> query, @Nullable CancellationSignal signal) {
+		if (signal == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+			signal = new CancellationSignal();
+		QueryFuture<T> future = new QueryFuture<T>(query, signal);
+		executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Stop accepting queries and cancel the running ones.
+	 */
+	public void shutdownNow() {
+		for (Runnable pending : executor.shutdownNow()) {
+			((QueryFuture<?>) pending).cancel(true);
+		}
+	}
+
+	/**
+	 * Query run on the {@link QueryExecutor}.
+	 */
+	public interface Query<T> {
+		/**
+		 * @param signal the signal to pass to the provider, null on platforms without cancellation support.
+		 * @return the result.
+		 */
+		T run(@Nullable CancellationSignal signal);
+	}
+
+	private static final class CancelOldestPolicy implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				((QueryFuture<?>) r).cancel(false);
+				return;
+			}
+			Runnable oldest = executor.getQueue().poll();
+			if (oldest != null)
+				((QueryFuture<?>) oldest).cancel(false);
+			executor.execute(r);
+		}
+	}
+
+	private static final class QueryThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(@NonNull Runnable r) {
+			Thread thread = new Thread(r, "MediaFacade-query-" + count.incrementAndGet());
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.drivemode.media.common;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Future of a query submitted to the {@link QueryExecutor}.
+ * Cancelling the future cancels the {@link CancellationSignal} so the provider aborts the running query,
+ * and a cursor which arrives after the cancellation is closed instead of being leaked.
+ * @author KeithYokoma
+ */
+public class QueryFuture<T> extends FutureTask<T> {
+	private final CancellationSignal signal;
+
+	/* package */ QueryFuture(@NonNull final QueryExecutor.Query<T> query, @Nullable final CancellationSignal signal) {
+		super(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return query.run(signal);
+			}
+		});
+		this.signal = signal;
+	}
+
+	/**
+	 * @return the signal passed to the provider, null on platforms without cancellation support.
+	 */
+	public @Nullable CancellationSignal getCancellationSignal() {
+		return signal;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		if (cancelled && signal != null)
+			cancelSignal();
+		return cancelled;
+	}
+
+	@Override
+	protected void set(T result) {
+		super.set(result);
+		if (isCancelled() && result instanceof Cursor)
+			((Cursor) result).close();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void cancelSignal() {
+		signal.cancel();
+	}
+}
@@ -0,0 +1,39 @@
+package com.drivemode.media.common;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Compatibility helper for {@link ContentResolver} calls which are not available on every API level.
+ * @author KeithYokoma
+ */
+public final class ResolverCompat {
+	private ResolverCompat() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Query the provider. The cancellation signal is honored from {@link Build.VERSION_CODES#JELLY_BEAN},
+	 * and the query runs to completion on older platforms.
+	 * @throws android.os.OperationCanceledException if the query is cancelled.
+	 */
+	public static @Nullable Cursor query(@NonNull ContentResolver resolver, @NonNull Uri uri, @Nullable String[] projection,
+										 @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder,
+										 @Nullable CancellationSignal signal) {
+		if (signal != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+			return queryWithSignal(resolver, uri, projection, selection, selectionArgs, sortOrder, signal);
+		return resolver.query(uri, projection, selection, selectionArgs, sortOrder);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static Cursor queryWithSignal(ContentResolver resolver, Uri uri, String[] projection, String selection,
+										  String[] selectionArgs, String sortOrder, CancellationSignal signal) {
+		return resolver.query(uri, projection, selection, selectionArgs, sortOrder, signal);
+	}
+}
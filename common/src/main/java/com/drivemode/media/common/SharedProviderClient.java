@@ -0,0 +1,293 @@
+package com.drivemode.media.common;
+
+import android.annotation.TargetApi;
+import android.content.ContentProviderClient;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.DeadObjectException;
+import android.os.RemoteException;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reference counted {@link ContentProviderClient} shared by every facade module talking to the same authority.
+ * The provider is acquired once instead of on every {@link ContentResolver} call,
+ * which matters for bursts of small queries such as resolving hundreds of tracks during a playlist import.
+ * The client is unstable, so the death of the provider process does not kill this process.
+ * When the provider dies, the client is dropped and released once no call is running on it.
+ * A query is then retried on a freshly acquired client, and finally falls back to {@link ContentResolver}.
+ * A write is not retried, since the provider may have applied it before dying,
+ * and fails with an {@link IllegalStateException} as any other {@link RemoteException} does.
+ * Before {@link Build.VERSION_CODES#JELLY_BEAN}, every call goes through {@link ContentResolver}.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class SharedProviderClient {
+	private static final int MAX_RETRIES = 1;
+	private static final Map<String, SharedProviderClient> CLIENTS = new HashMap<String, SharedProviderClient>();
+	private final ContentResolver resolver;
+	private final String authority;
+	private int refCount; // guarded by CLIENTS
+	private Lease lease; // guarded by this
+
+	private SharedProviderClient(ContentResolver resolver, String authority) {
+		this.resolver = resolver;
+		this.authority = authority;
+	}
+
+	/**
+	 * Acquire the shared client for the authority. Call {@link #release()} when done with it.
+	 * @param context the context.
+	 * @param authority the provider authority, e.g. {@link android.provider.MediaStore#AUTHORITY}.
+	 * @return the shared client.
+	 */
+	public static @NonNull SharedProviderClient acquire(@NonNull Context context, @NonNull String authority) {
+		synchronized (CLIENTS) {
+			SharedProviderClient shared = CLIENTS.get(authority);
+			if (shared == null) {
+				shared = new SharedProviderClient(context.getApplicationContext().getContentResolver(), authority);
+				CLIENTS.put(authority, shared);
+			}
+			shared.refCount++;
+			return shared;
+		}
+	}
+
+	/**
+	 * Release the reference. The provider is released when the last reference is gone.
+	 */
+	public void release() {
+		synchronized (CLIENTS) {
+			if (refCount <= 0)
+				throw new IllegalStateException("client for " + authority + " is already released");
+			if (--refCount > 0)
+				return;
+			CLIENTS.remove(authority);
+		}
+		Lease released;
+		synchronized (this) {
+			released = lease;
+			lease = null;
+			if (released == null || released.users > 0)
+				return; // closed by the last running call
+		}
+		close(released.client);
+	}
+
+	/**
+	 * @return the authority of the provider.
+	 */
+	public @NonNull String getAuthority() {
+		return authority;
+	}
+
+	/**
+	 * @return the resolver used when the shared client is not available.
+	 */
+	public @NonNull ContentResolver getResolver() {
+		return resolver;
+	}
+
+	/**
+	 * @see ContentResolver#query(Uri, String[], String, String[], String, CancellationSignal)
+	 * @throws android.os.OperationCanceledException if the query is cancelled.
+	 */
+	public @Nullable Cursor query(@NonNull final Uri uri, @Nullable final String[] projection, @Nullable final String selection,
+								  @Nullable final String[] selectionArgs, @Nullable final String sortOrder,
+								  @Nullable final CancellationSignal signal) {
+		return execute(true, new Call<Cursor>() {
+			@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+			@Override
+			Cursor onClient(ContentProviderClient client) throws RemoteException {
+				return client.query(uri, projection, selection, selectionArgs, sortOrder, signal);
+			}
+
+			@Override
+			Cursor onResolver(ContentResolver resolver) {
+				return ResolverCompat.query(resolver, uri, projection, selection, selectionArgs, sortOrder, signal);
+			}
+		});
+	}
+
+	/**
+	 * @see ContentResolver#insert(Uri, ContentValues)
+	 * @throws IllegalStateException if the call to the provider failed.
+	 */
+	public @Nullable Uri insert(@NonNull final Uri uri, @Nullable final ContentValues values) {
+		return execute(false, new Call<Uri>() {
+			@Override
+			Uri onClient(ContentProviderClient client) throws RemoteException {
+				return client.insert(uri, values);
+			}
+
+			@Override
+			Uri onResolver(ContentResolver resolver) {
+				return resolver.insert(uri, values);
+			}
+		});
+	}
+
+	/**
+	 * @see ContentResolver#bulkInsert(Uri, ContentValues[])
+	 * @throws IllegalStateException if the call to the provider failed.
+	 */
+	public int bulkInsert(@NonNull final Uri uri, @NonNull final ContentValues[] values) {
+		return execute(false, new Call<Integer>() {
+			@Override
+			Integer onClient(ContentProviderClient client) throws RemoteException {
+				return client.bulkInsert(uri, values);
+			}
+
+			@Override
+			Integer onResolver(ContentResolver resolver) {
+				return resolver.bulkInsert(uri, values);
+			}
+		});
+	}
+
+	/**
+	 * @see ContentResolver#update(Uri, ContentValues, String, String[])
+	 * @throws IllegalStateException if the call to the provider failed.
+	 */
+	public int update(@NonNull final Uri uri, @Nullable final ContentValues values, @Nullable final String where,
+					  @Nullable final String[] selectionArgs) {
+		return execute(false, new Call<Integer>() {
+			@Override
+			Integer onClient(ContentProviderClient client) throws RemoteException {
+				return client.update(uri, values, where, selectionArgs);
+			}
+
+			@Override
+			Integer onResolver(ContentResolver resolver) {
+				return resolver.update(uri, values, where, selectionArgs);
+			}
+		});
+	}
+
+	/**
+	 * @see ContentResolver#delete(Uri, String, String[])
+	 * @throws IllegalStateException if the call to the provider failed.
+	 */
+	public int delete(@NonNull final Uri uri, @Nullable final String where, @Nullable final String[] selectionArgs) {
+		return execute(false, new Call<Integer>() {
+			@Override
+			Integer onClient(ContentProviderClient client) throws RemoteException {
+				return client.delete(uri, where, selectionArgs);
+			}
+
+			@Override
+			Integer onResolver(ContentResolver resolver) {
+				return resolver.delete(uri, where, selectionArgs);
+			}
+		});
+	}
+
+	/**
+	 * Apply the operations in a single call. The provider decides whether they are applied in a transaction,
+	 * {@link android.provider.MediaStore} does so.
+	 * The call is not retried on another client, since the operations may have been partially applied.
+	 * @see ContentResolver#applyBatch(String, ArrayList)
+	 */
+	public @NonNull ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+			throws RemoteException, OperationApplicationException {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			Lease current = obtain();
+			if (current != null) {
+				try {
+					return current.client.applyBatch(operations);
+				} catch (DeadObjectException e) {
+					discard(current);
+					throw e;
+				} finally {
+					done(current);
+				}
+			}
+		}
+		return resolver.applyBatch(authority, operations);
+	}
+
+	private <T> T execute(boolean retry, Call<T> call) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+				Lease current = obtain();
+				if (current == null)
+					break;
+				try {
+					return call.onClient(current.client);
+				} catch (DeadObjectException e) {
+					// the provider process has died, acquire the client again
+					discard(current);
+					if (!retry)
+						throw new IllegalStateException("provider for " + authority + " died during the call", e);
+				} catch (RemoteException e) {
+					// e.g. TransactionTooLargeException, the client is still alive and another attempt would fail the same way
+					throw new IllegalStateException("call to the provider for " + authority + " failed", e);
+				} finally {
+					done(current);
+				}
+			}
+		}
+		return call.onResolver(resolver);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private synchronized Lease obtain() {
+		if (lease == null) {
+			ContentProviderClient client = resolver.acquireUnstableContentProviderClient(authority);
+			if (client == null)
+				return null;
+			lease = new Lease(client);
+		}
+		lease.users++;
+		return lease;
+	}
+
+	private void done(Lease current) {
+		synchronized (this) {
+			if (--current.users > 0 || current == lease)
+				return;
+		}
+		// dropped while in use, the last call closes it
+		close(current.client);
+	}
+
+	private synchronized void discard(Lease dead) {
+		if (lease == dead)
+			lease = null; // closed by done() once no call is running on it
+	}
+
+	@SuppressWarnings("deprecation")
+	private static void close(ContentProviderClient client) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+			client.close();
+		else
+			client.release();
+	}
+
+	private static final class Lease {
+		private final ContentProviderClient client;
+		private int users; // guarded by SharedProviderClient.this
+
+		/* package */ Lease(ContentProviderClient client) {
+			this.client = client;
+		}
+	}
+
+	private static abstract class Call<T> {
+		abstract T onClient(ContentProviderClient client) throws RemoteException;
+
+		abstract T onResolver(ContentResolver resolver);
+	}
+}
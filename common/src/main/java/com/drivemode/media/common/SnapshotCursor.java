@@ -0,0 +1,108 @@
+package com.drivemode.media.common;
+
+import android.database.AbstractCursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Read-only {@link android.database.Cursor} over the rows of a {@link CursorSnapshot}.
+ * Every cursor keeps its own position, so create one cursor per thread.
+ * @author KeithYokoma
+ */
+@SuppressWarnings("unused") // public API
+public final class SnapshotCursor extends AbstractCursor {
+	private final CursorSnapshot snapshot;
+	private final int[] rows;
+
+	/* package */ SnapshotCursor(@NonNull CursorSnapshot snapshot, @Nullable int[] rows) {
+		this.snapshot = snapshot;
+		this.rows = rows;
+	}
+
+	/**
+	 * @return the snapshot this cursor reads from.
+	 */
+	public @NonNull CursorSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the snapshot row index of the current position.
+	 */
+	public int getSnapshotRow() {
+		checkPosition();
+		int position = getPosition();
+		return rows == null ? position : rows[position];
+	}
+
+	@Override
+	public int getCount() {
+		return rows == null ? snapshot.getCount() : rows.length;
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		ColumnSchema schema = snapshot.getSchema();
+		String[] names = new String[schema.getColumnCount()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = schema.getColumnName(i);
+		}
+		return names;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return snapshot.getColumnCount();
+	}
+
+	@Override
+	public int getColumnIndex(String columnName) {
+		int index = snapshot.getColumnIndex(columnName);
+		return index >= 0 ? index : super.getColumnIndex(columnName);
+	}
+
+	@Override
+	public String getColumnName(int columnIndex) {
+		return snapshot.getSchema().getColumnName(columnIndex);
+	}
+
+	@Override
+	public String getString(int column) {
+		return snapshot.getString(getSnapshotRow(), column);
+	}
+
+	@Override
+	public short getShort(int column) {
+		return (short) snapshot.getLong(getSnapshotRow(), column);
+	}
+
+	@Override
+	public int getInt(int column) {
+		return snapshot.getInt(getSnapshotRow(), column);
+	}
+
+	@Override
+	public long getLong(int column) {
+		return snapshot.getLong(getSnapshotRow(), column);
+	}
+
+	@Override
+	public float getFloat(int column) {
+		return (float) snapshot.getDouble(getSnapshotRow(), column);
+	}
+
+	@Override
+	public double getDouble(int column) {
+		return snapshot.getDouble(getSnapshotRow(), column);
+	}
+
+	@Override
+	public int getType(int column) {
+		return snapshot.getType(getSnapshotRow(), column);
+	}
+
+	@Override
+	public boolean isNull(int column) {
+		return snapshot.isNull(getSnapshotRow(), column);
+	}
+}
@@ -0,0 +1,69 @@
+package com.drivemode.media.common;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} over a range of rows of a {@link CursorSnapshot}.
+ * Splitting halves the range of row positions, and both halves read the immutable snapshot without coordination.
+ * @author KeithYokoma
+ */
+@TargetApi(Build.VERSION_CODES.N)
+/* package */ final class SnapshotSpliterator<T> implements Spliterator<T> {
+	private final CursorSnapshot snapshot;
+	private final CursorSnapshot.RowMapper<T> mapper;
+	private final int[] rows;
+	private int index;
+	private final int fence;
+
+	/* package */ SnapshotSpliterator(CursorSnapshot snapshot, CursorSnapshot.RowMapper<T> mapper, int[] rows, int index, int fence) {
+		this.snapshot = snapshot;
+		this.mapper = mapper;
+		this.rows = rows;
+		this.index = index;
+		this.fence = fence;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (index >= fence)
+			return false;
+		action.accept(mapper.map(snapshot, row(index++)));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		for (int i = index; i < fence; i++) {
+			action.accept(mapper.map(snapshot, row(i)));
+		}
+		index = fence;
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		int mid = (index + fence) >>> 1;
+		if (mid <= index)
+			return null;
+		Spliterator<T> prefix = new SnapshotSpliterator<T>(snapshot, mapper, rows, index, mid);
+		index = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return fence - index;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+	}
+
+	private int row(int position) {
+		return rows == null ? position : rows[position];
+	}
+}
@@ -17,6 +17,20 @@ public class SortOrder {
 		this.order = order;
 	}
 
+	/**
+	 * @return the column name to sort by.
+	 */
+	public @NonNull String key() {
+		return key;
+	}
+
+	/**
+	 * @return the direction to sort in.
+	 */
+	public @NonNull Order order() {
+		return order;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
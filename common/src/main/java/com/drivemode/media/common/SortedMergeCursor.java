@@ -0,0 +1,235 @@
+package com.drivemode.media.common;
+
+import android.content.ContentResolver;
+import android.database.AbstractCursor;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Read-only {@link Cursor} merging cursors already sorted by the same column into a single sorted sequence,
+ * the way SQLite orders the values: nulls, then numbers, then text.
+ * The rows stay in the source cursors. Only the source and the position of each merged row are recorded,
+ * as far as the cursor has been moved, so that moving back does not merge again.
+ * Observers and the notification uri are forwarded to the source cursors, as {@link android.database.MergeCursor} does.
+ * @author KeithYokoma
+ */
+/* package */ final class SortedMergeCursor extends AbstractCursor {
+	private final Cursor[] cursors;
+	private final int keyColumn;
+	private final int direction;
+	private final int[] next; // the next position to merge of each source
+	private int count;
+	private int[] sources = new int[16];
+	private int[] positions = new int[16];
+	private int merged;
+
+	/**
+	 * @param cursors the sources, with the same columns, each sorted by the key column.
+	 * @param keyColumn the name of the key column.
+	 * @param order the direction the sources are sorted in.
+	 */
+	/* package */ SortedMergeCursor(@NonNull Cursor[] cursors, @NonNull String keyColumn, @NonNull SortOrder.Order order) {
+		this.cursors = cursors;
+		this.keyColumn = cursors[0].getColumnIndexOrThrow(keyColumn);
+		this.direction = order == SortOrder.Order.DESCENDING ? -1 : 1;
+		this.next = new int[cursors.length];
+		this.count = countRows();
+	}
+
+	private int countRows() {
+		int total = 0;
+		for (Cursor cursor : cursors) {
+			total += cursor.getCount();
+		}
+		return total;
+	}
+
+	@Override
+	public boolean onMove(int oldPosition, int newPosition) {
+		while (merged <= newPosition) {
+			mergeNext();
+		}
+		return cursors[sources[newPosition]].moveToPosition(positions[newPosition]);
+	}
+
+	private void mergeNext() {
+		int best = -1;
+		for (int i = 0; i < cursors.length; i++) {
+			if (next[i] >= cursors[i].getCount())
+				continue;
+			cursors[i].moveToPosition(next[i]);
+			// ties go to the earlier source, keeping the merge stable
+			if (best < 0 || direction * compare(cursors[i], cursors[best]) < 0)
+				best = i;
+		}
+		if (merged == sources.length) {
+			sources = Arrays.copyOf(sources, merged * 2);
+			positions = Arrays.copyOf(positions, merged * 2);
+		}
+		sources[merged] = best;
+		positions[merged] = next[best]++;
+		merged++;
+	}
+
+	private int compare(Cursor left, Cursor right) {
+		int leftType = left.getType(keyColumn);
+		int rightType = right.getType(keyColumn);
+		int leftRank = rank(leftType);
+		int rightRank = rank(rightType);
+		if (leftRank != rightRank)
+			return leftRank < rightRank ? -1 : 1;
+		switch (leftType) {
+			case FIELD_TYPE_NULL:
+				return 0;
+			case FIELD_TYPE_INTEGER:
+				if (rightType == FIELD_TYPE_INTEGER) {
+					long l = left.getLong(keyColumn);
+					long r = right.getLong(keyColumn);
+					return l < r ? -1 : (l == r ? 0 : 1);
+				}
+				return Double.compare(left.getDouble(keyColumn), right.getDouble(keyColumn));
+			case FIELD_TYPE_FLOAT:
+				return Double.compare(left.getDouble(keyColumn), right.getDouble(keyColumn));
+			default:
+				return left.getString(keyColumn).compareTo(right.getString(keyColumn));
+		}
+	}
+
+	private static int rank(int type) {
+		switch (type) {
+			case FIELD_TYPE_NULL:
+				return 0;
+			case FIELD_TYPE_INTEGER:
+			case FIELD_TYPE_FLOAT:
+				return 1;
+			case FIELD_TYPE_STRING:
+				return 2;
+			default:
+				return 3;
+		}
+	}
+
+	private Cursor current() {
+		checkPosition();
+		return cursors[sources[getPosition()]];
+	}
+
+	@Override
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		return cursors[0].getColumnNames();
+	}
+
+	@Override
+	public String getString(int column) {
+		return current().getString(column);
+	}
+
+	@Override
+	public short getShort(int column) {
+		return current().getShort(column);
+	}
+
+	@Override
+	public int getInt(int column) {
+		return current().getInt(column);
+	}
+
+	@Override
+	public long getLong(int column) {
+		return current().getLong(column);
+	}
+
+	@Override
+	public float getFloat(int column) {
+		return current().getFloat(column);
+	}
+
+	@Override
+	public double getDouble(int column) {
+		return current().getDouble(column);
+	}
+
+	@Override
+	public byte[] getBlob(int column) {
+		return current().getBlob(column);
+	}
+
+	@Override
+	public int getType(int column) {
+		return current().getType(column);
+	}
+
+	@Override
+	public boolean isNull(int column) {
+		return current().isNull(column);
+	}
+
+	@Override
+	public void registerContentObserver(ContentObserver observer) {
+		for (Cursor cursor : cursors) {
+			cursor.registerContentObserver(observer);
+		}
+	}
+
+	@Override
+	public void unregisterContentObserver(ContentObserver observer) {
+		for (Cursor cursor : cursors) {
+			cursor.unregisterContentObserver(observer);
+		}
+	}
+
+	@Override
+	public void registerDataSetObserver(DataSetObserver observer) {
+		for (Cursor cursor : cursors) {
+			cursor.registerDataSetObserver(observer);
+		}
+	}
+
+	@Override
+	public void unregisterDataSetObserver(DataSetObserver observer) {
+		for (Cursor cursor : cursors) {
+			cursor.unregisterDataSetObserver(observer);
+		}
+	}
+
+	@Override
+	public void setNotificationUri(ContentResolver resolver, Uri uri) {
+		for (Cursor cursor : cursors) {
+			cursor.setNotificationUri(resolver, uri);
+		}
+		super.setNotificationUri(resolver, uri);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean requery() {
+		for (Cursor cursor : cursors) {
+			if (!cursor.requery())
+				return false;
+		}
+		// the rows may have changed, merge them again
+		count = countRows();
+		merged = 0;
+		Arrays.fill(next, 0);
+		moveToPosition(-1);
+		return true;
+	}
+
+	@Override
+	public void close() {
+		for (Cursor cursor : cursors) {
+			cursor.close();
+		}
+		super.close();
+	}
+}
@@ -0,0 +1,92 @@
+package com.drivemode.media.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author KeithYokoma
+ */
+public class FolderIndexTest {
+	@Test
+	public void tree() throws Exception {
+		FolderIndex index = sample();
+		assertEquals(7, index.getCount());
+		assertEquals(1, index.getRootCount());
+		int root = index.getRoot(0);
+		assertEquals("/sd", index.getPath(root));
+		assertEquals(4, index.getSubtreeFileCount(root));
+		assertEquals(1157, index.getSubtreeSize(root));
+		int dcim = index.indexOfPath("/sd/DCIM/");
+		assertEquals(9, index.getId(dcim));
+		assertTrue(index.isDirectory(dcim));
+		assertEquals(3, index.getChildCount(dcim));
+		// the children are in the order of their names, upper cases first
+		assertEquals("Cam", index.getName(index.getChild(dcim, 0)));
+		assertEquals("a.jpg", index.getName(index.getChild(dcim, 1)));
+		assertEquals("b.jpg", index.getName(index.getChild(dcim, 2)));
+		assertEquals(3, index.getSubtreeFileCount(dcim));
+		assertEquals(1150, index.getSubtreeSize(dcim));
+	}
+
+	@Test
+	public void paths() throws Exception {
+		FolderIndex index = sample();
+		assertEquals("/sd/DCIM/Cam/c.mp4", index.getPath(index.indexOf(14)));
+		assertEquals(index.indexOf(14), index.indexOfPath("/sd/DCIM/Cam/c.mp4"));
+		assertEquals(-1, index.indexOfPath("/sd/nope"));
+		assertEquals(-1, index.indexOfPath("/sdx"));
+		assertTrue(index.indexOf(100) < 0);
+	}
+
+	@Test
+	public void subtreeIds() throws Exception {
+		FolderIndex index = sample();
+		assertArrayEquals(new long[] {5, 9, 13, 14, 4, 3, 12}, toArray(index.subtreeIds(index.getRoot(0))));
+		assertArrayEquals(new long[] {13, 14}, toArray(index.subtreeIds(index.indexOf(13))));
+	}
+
+	@Test
+	public void parentCycle() throws Exception {
+		// 2 and 3 are the parents of each other, and 4 lives under the cycle
+		FolderIndex index = FolderIndex.of(
+				new long[] {1, 2, 3, 4},
+				new long[] {0, 3, 2, 3},
+				new String[] {"/sd", "/sd/a", "/sd/a/b", "/sd/a/b/c.txt"},
+				new long[] {0, 0, 0, 10},
+				new boolean[] {true, true, true, false}, 4);
+		assertEquals(1, index.getRootCount());
+		assertEquals(0, index.getSubtreeFileCount(index.getRoot(0)));
+		assertArrayEquals(new long[] {2, 3, 4}, toArray(index.subtreeIds(index.indexOf(2))));
+		assertArrayEquals(new long[] {3, 2, 4}, toArray(index.subtreeIds(index.indexOf(3))));
+		assertNotNull(index.getPath(index.indexOf(4)));
+	}
+
+	@Test
+	public void empty() throws Exception {
+		FolderIndex index = FolderIndex.of(new long[0], new long[0], new String[0], new long[0], new boolean[0], 0);
+		assertEquals(0, index.getCount());
+		assertEquals(0, index.getRootCount());
+		assertEquals(-1, index.indexOfPath("/sd"));
+	}
+
+	private static FolderIndex sample() {
+		return FolderIndex.of(
+				new long[] {5, 9, 3, 4, 12, 13, 14},
+				new long[] {0, 5, 9, 9, 5, 9, 13},
+				new String[] {"/sd", "/sd/DCIM", "/sd/DCIM/b.jpg", "/sd/DCIM/a.jpg", "/sd/x.txt", "/sd/DCIM/Cam", "/sd/DCIM/Cam/c.mp4"},
+				new long[] {0, 0, 100, 50, 7, 0, 1000},
+				new boolean[] {true, true, false, false, false, true, false}, 7);
+	}
+
+	private static long[] toArray(LongIterator iterator) {
+		long[] values = new long[16];
+		int count = 0;
+		while (iterator.hasNext()) {
+			values[count++] = iterator.nextLong();
+		}
+		long[] result = new long[count];
+		System.arraycopy(values, 0, result, 0, count);
+		return result;
+	}
+}
@@ -0,0 +1,104 @@
+package com.drivemode.media.common;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author KeithYokoma
+ */
+public class LongMultimapTest {
+	@Test
+	public void build_sortsAndDeduplicates() throws Exception {
+		LongMultimap map = new LongMultimap.Builder()
+				.put(3, 30).put(1, 12).put(3, 10).put(1, 11).put(3, 30)
+				.build();
+		assertEquals(2, map.keyCount());
+		assertEquals(4, map.size());
+		assertEquals(1, map.keyAt(0));
+		assertEquals(3, map.keyAt(1));
+		assertArrayEquals(new long[] {11, 12}, map.get(1));
+		assertArrayEquals(new long[] {10, 30}, map.get(3));
+		assertArrayEquals(new long[0], map.get(2));
+		assertEquals(2, map.count(3));
+		assertEquals(30, map.valueAt(1, 1));
+	}
+
+	@Test
+	public void build_empty() throws Exception {
+		assertSame(LongMultimap.EMPTY_MAP, new LongMultimap.Builder().build());
+		assertEquals(0, LongMultimap.EMPTY_MAP.keyCount());
+		assertTrue(LongMultimap.EMPTY_MAP.indexOfKey(1) < 0);
+		assertEquals(LongMultimap.EMPTY_MAP, LongMultimap.EMPTY_MAP.inverse());
+	}
+
+	@Test
+	public void containsEntry() throws Exception {
+		LongMultimap map = new LongMultimap.Builder().putAll(7, new long[] {1, 2, 3}).build();
+		assertTrue(map.containsKey(7));
+		assertFalse(map.containsKey(1));
+		assertTrue(map.containsEntry(7, 2));
+		assertFalse(map.containsEntry(7, 4));
+		assertFalse(map.containsEntry(2, 7));
+	}
+
+	@Test
+	public void inverse() throws Exception {
+		LongMultimap map = new LongMultimap.Builder().put(1, 100).put(2, 100).put(2, 200).build();
+		LongMultimap inverse = map.inverse();
+		assertArrayEquals(new long[] {1, 2}, inverse.get(100));
+		assertArrayEquals(new long[] {2}, inverse.get(200));
+		assertEquals(map, inverse.inverse());
+	}
+
+	@Test
+	public void with_replacesAndRemoves() throws Exception {
+		LongMultimap map = new LongMultimap.Builder().put(1, 10).put(2, 20).put(2, 21).build();
+		LongMultimap replaced = map.with(2, new long[] {25, 22, 25});
+		assertArrayEquals(new long[] {22, 25}, replaced.get(2));
+		assertArrayEquals(new long[] {10}, replaced.get(1));
+		LongMultimap removed = map.with(2, new long[0]);
+		assertFalse(removed.containsKey(2));
+		assertEquals(1, removed.keyCount());
+		// the original map is left as is
+		assertArrayEquals(new long[] {20, 21}, map.get(2));
+	}
+
+	@Test
+	public void matchesReference() throws Exception {
+		Random random = new Random(1);
+		for (int round = 0; round < 200; round++) {
+			LongMultimap.Builder builder = new LongMultimap.Builder(4);
+			TreeMap<Long, TreeSet<Long>> reference = new TreeMap<Long, TreeSet<Long>>();
+			int n = random.nextInt(2000);
+			for (int i = 0; i < n; i++) {
+				long key = random.nextInt(50) - 10;
+				long value = random.nextInt(100);
+				builder.put(key, value);
+				if (!reference.containsKey(key))
+					reference.put(key, new TreeSet<Long>());
+				reference.get(key).add(value);
+			}
+			LongMultimap map = builder.build();
+			assertEquals(reference.size(), map.keyCount());
+			int index = 0;
+			for (Map.Entry<Long, TreeSet<Long>> entry : reference.entrySet()) {
+				assertEquals(entry.getKey().longValue(), map.keyAt(index));
+				assertEquals(index, map.indexOfKey(entry.getKey()));
+				long[] values = map.valuesAt(index);
+				assertEquals(entry.getValue().size(), values.length);
+				int i = 0;
+				for (long value : entry.getValue()) {
+					assertEquals(value, values[i++]);
+				}
+				index++;
+			}
+			assertEquals(map, map.inverse().inverse());
+		}
+	}
+}
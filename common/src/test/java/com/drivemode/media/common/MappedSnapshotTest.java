@@ -0,0 +1,162 @@
+package com.drivemode.media.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author KeithYokoma
+ */
+public class MappedSnapshotTest {
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("snapshot", ".bin");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		assertTrue(file.delete());
+	}
+
+	@Test
+	public void open() throws Exception {
+		save(validFile());
+		MappedSnapshot snapshot = MappedSnapshot.open(file);
+		assertNotNull(snapshot);
+		assertEquals(3, snapshot.getCount());
+		assertEquals(2, snapshot.getColumnCount());
+		assertEquals(1, snapshot.getColumnIndex("title"));
+		assertEquals(7, snapshot.getLong(1, 0));
+		assertEquals("b", snapshot.getString(1, 1));
+		assertEquals("a", snapshot.getString(2, 1));
+		assertTrue(snapshot.isNull(2, 0));
+		assertEquals(42, snapshot.getStamp().getCount());
+	}
+
+	@Test
+	public void open_missingFile() throws Exception {
+		assertNull(MappedSnapshot.open(new File(file.getPath() + ".missing")));
+	}
+
+	@Test
+	public void open_truncatedFile() throws Exception {
+		byte[] valid = validFile();
+		for (int length = 0; length < valid.length; length++) {
+			save(Arrays.copyOf(valid, length));
+			assertReadable(MappedSnapshot.open(file));
+		}
+	}
+
+	@Test
+	public void open_garbledFile() throws Exception {
+		byte[] valid = validFile();
+		Random random = new Random(7);
+		for (int round = 0; round < 2000; round++) {
+			byte[] garbled = valid.clone();
+			for (int i = 1 + random.nextInt(4); i > 0; i--) {
+				garbled[8 + random.nextInt(garbled.length - 8)] = (byte) random.nextInt();
+			}
+			save(garbled);
+			assertReadable(MappedSnapshot.open(file));
+		}
+	}
+
+	@Test
+	public void open_negativeCounts() throws Exception {
+		byte[] valid = validFile();
+		// the row count follows the magic, the version and the stamp
+		int rowsOffset = 8 + (4 + 2) + (4 + 2) + 8 + 8 + 4;
+		byte[] garbled = valid.clone();
+		garbled[rowsOffset] = (byte) 0xff;
+		save(garbled);
+		assertNull(MappedSnapshot.open(file));
+		garbled = valid.clone();
+		garbled[rowsOffset + 4] = (byte) 0xff;
+		save(garbled);
+		assertNull(MappedSnapshot.open(file));
+	}
+
+	/**
+	 * A garbled file is either refused, or every value of it can be read.
+	 */
+	private static void assertReadable(MappedSnapshot snapshot) {
+		if (snapshot == null)
+			return;
+		for (int row = 0; row < snapshot.getCount(); row++) {
+			for (int column = 0; column < snapshot.getColumnCount(); column++) {
+				snapshot.getType(row, column);
+				snapshot.getLong(row, column);
+				snapshot.getDouble(row, column);
+				snapshot.getString(row, column);
+			}
+		}
+	}
+
+	private void save(byte[] bytes) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(bytes);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Lays out the file as {@link MappedSnapshot#write} does: an integer column {5, 7, null} and a text column {"a", "b", "a"}.
+	 */
+	private static byte[] validFile() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(0x4d534e50);
+		output.writeInt(1);
+		writeString(output, "u");
+		writeString(output, "v");
+		output.writeLong(100);
+		output.writeLong(200);
+		output.writeInt(42);
+		output.writeInt(3);
+		output.writeInt(2);
+		int ids = output.size();
+		output.writeByte(0x04);
+		output.writeLong(5);
+		output.writeLong(7);
+		output.writeLong(0);
+		int titles = output.size();
+		output.writeByte(0);
+		output.writeInt(0);
+		output.writeInt(1);
+		output.writeInt(0);
+		output.writeInt(2);
+		output.writeInt(0);
+		output.writeInt(1);
+		output.writeInt(2);
+		output.writeChars("ab");
+		int directory = output.size();
+		writeString(output, "_id");
+		output.writeByte(1);
+		output.writeInt(ids);
+		writeString(output, "title");
+		output.writeByte(3);
+		output.writeInt(titles);
+		output.writeInt(directory);
+		output.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		output.writeInt(value.length());
+		output.writeChars(value);
+	}
+}
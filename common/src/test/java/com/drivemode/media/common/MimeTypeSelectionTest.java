@@ -0,0 +1,79 @@
+package com.drivemode.media.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author KeithYokoma
+ */
+public class MimeTypeSelectionTest {
+	@Test
+	public void exactTypes() throws Exception {
+		MimeTypeSelection selection = new MimeTypeSelection(new String[] {"image/png", "image/jpeg", "image/png"}, MimeTypeSelection.MAX_VARIABLES);
+		assertEquals(1, selection.size());
+		assertEquals("mime_type IN (?,?)", selection.getSelection(0));
+		assertArrayEquals(new String[] {"image/jpeg", "image/png"}, selection.getSelectionArgs(0));
+	}
+
+	@Test
+	public void wildcards() throws Exception {
+		MimeTypeSelection selection = new MimeTypeSelection(new String[] {"image/*", "video/mp4"}, MimeTypeSelection.MAX_VARIABLES);
+		assertEquals(1, selection.size());
+		assertEquals("mime_type LIKE ? ESCAPE '\\' OR mime_type IN (?)", selection.getSelection(0));
+		assertArrayEquals(new String[] {"image/%", "video/mp4"}, selection.getSelectionArgs(0));
+	}
+
+	@Test
+	public void wildcards_dropMatchedTypes() throws Exception {
+		MimeTypeSelection selection = new MimeTypeSelection(new String[] {"IMAGE/PNG", "application/vnd.ms-excel", "image/*", "application/vnd.*", "application/*"},
+				MimeTypeSelection.MAX_VARIABLES);
+		assertEquals(1, selection.size());
+		assertEquals("mime_type LIKE ? ESCAPE '\\' OR mime_type LIKE ? ESCAPE '\\'", selection.getSelection(0));
+		assertArrayEquals(new String[] {"application/%", "image/%"}, selection.getSelectionArgs(0));
+	}
+
+	@Test
+	public void wildcards_matchEverything() throws Exception {
+		MimeTypeSelection selection = new MimeTypeSelection(new String[] {"*/*", "text/plain"}, MimeTypeSelection.MAX_VARIABLES);
+		assertEquals(1, selection.size());
+		assertArrayEquals(new String[] {"%"}, selection.getSelectionArgs(0));
+	}
+
+	@Test
+	public void wildcards_escapeLikePatterns() throws Exception {
+		MimeTypeSelection selection = new MimeTypeSelection(new String[] {"application/x_%*"}, MimeTypeSelection.MAX_VARIABLES);
+		assertArrayEquals(new String[] {"application/x\\_\\%%"}, selection.getSelectionArgs(0));
+	}
+
+	@Test
+	public void noTypes() throws Exception {
+		assertEquals(0, new MimeTypeSelection(new String[0], MimeTypeSelection.MAX_VARIABLES).size());
+	}
+
+	@Test
+	public void chunks() throws Exception {
+		String[] types = new String[7];
+		types[0] = "audio/*";
+		types[1] = "video/*";
+		for (int i = 2; i < types.length; i++) {
+			types[i] = "image/x-" + i;
+		}
+		MimeTypeSelection selection = new MimeTypeSelection(types, 3);
+		assertEquals(3, selection.size());
+		assertEquals("mime_type LIKE ? ESCAPE '\\' OR mime_type LIKE ? ESCAPE '\\' OR mime_type IN (?)", selection.getSelection(0));
+		assertArrayEquals(new String[] {"audio/%", "video/%", "image/x-2"}, selection.getSelectionArgs(0));
+		assertEquals("mime_type IN (?,?,?)", selection.getSelection(1));
+		assertArrayEquals(new String[] {"image/x-3", "image/x-4", "image/x-5"}, selection.getSelectionArgs(1));
+		assertEquals("mime_type IN (?)", selection.getSelection(2));
+		assertArrayEquals(new String[] {"image/x-6"}, selection.getSelectionArgs(2));
+	}
+
+	@Test
+	public void chunks_onlyWildcards() throws Exception {
+		MimeTypeSelection selection = new MimeTypeSelection(new String[] {"audio/*", "image/*", "video/*"}, 2);
+		assertEquals(2, selection.size());
+		assertEquals("mime_type LIKE ? ESCAPE '\\'", selection.getSelection(1));
+		assertArrayEquals(new String[] {"video/%"}, selection.getSelectionArgs(1));
+	}
+}
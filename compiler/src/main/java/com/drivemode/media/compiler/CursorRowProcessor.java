@@ -0,0 +1,343 @@
+package com.drivemode.media.compiler;
+
+import com.drivemode.media.annotations.Column;
+import com.drivemode.media.annotations.CursorRow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a cursor class and a record class for each {@link CursorRow} interface.
+ * The generated cursor reads each column at the index it has in the generated projection,
+ * and falls back to the shared column schema only when the cursor was queried with another projection.
+ * @author KeithYokoma
+ */
+public class CursorRowProcessor extends AbstractProcessor {
+	private static final String GENERATED_COMMENT = "// Generated by " + CursorRowProcessor.class.getSimpleName() + ". Do not modify.";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(CursorRow.class.getCanonicalName());
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(CursorRow.class)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				error(element, "@CursorRow must be put on an interface");
+				continue;
+			}
+			TypeElement type = (TypeElement) element;
+			List<Accessor> accessors = collectAccessors(type);
+			if (accessors == null)
+				continue;
+			CursorRow row = type.getAnnotation(CursorRow.class);
+			String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+			String rowName = type.getSimpleName().toString();
+			String cursorName = row.cursorName().isEmpty() ? rowName + "Cursor" : row.cursorName();
+			String recordName = row.recordName().isEmpty() ? rowName + "Record" : row.recordName();
+			String rowType = type.getQualifiedName().toString();
+			try {
+				write(type, packageName, cursorName, generateCursor(packageName, rowType, cursorName, recordName, accessors));
+				write(type, packageName, recordName, generateRecord(packageName, rowType, recordName, accessors));
+			} catch (IOException e) {
+				error(type, "failed to generate the cursor for " + rowName + ": " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	private List<Accessor> collectAccessors(TypeElement type) {
+		List<Accessor> accessors = new ArrayList<Accessor>();
+		boolean valid = true;
+		for (Element enclosed : type.getEnclosedElements()) {
+			if (enclosed.getKind() != ElementKind.METHOD || enclosed.getModifiers().contains(Modifier.STATIC))
+				continue;
+			ExecutableElement method = (ExecutableElement) enclosed;
+			Column column = method.getAnnotation(Column.class);
+			if (column == null) {
+				error(method, "accessors of @CursorRow must be annotated with @Column");
+				valid = false;
+				continue;
+			}
+			if (!method.getParameters().isEmpty()) {
+				error(method, "@Column accessor must not have parameters");
+				valid = false;
+				continue;
+			}
+			Kind kind = Kind.of(method.getReturnType());
+			if (kind == null) {
+				error(method, "unsupported return type of @Column accessor: " + method.getReturnType());
+				valid = false;
+				continue;
+			}
+			accessors.add(new Accessor(method.getSimpleName().toString(), column.value(), kind));
+		}
+		if (accessors.isEmpty()) {
+			error(type, "@CursorRow must have at least one @Column accessor");
+			valid = false;
+		}
+		return valid ? accessors : null;
+	}
+
+	private String generateCursor(String packageName, String rowType, String cursorName, String recordName, List<Accessor> accessors) {
+		StringBuilder s = new StringBuilder();
+		s.append(GENERATED_COMMENT).append('\n');
+		s.append("package ").append(packageName).append(";\n\n");
+		s.append("import android.database.Cursor;\n\n");
+		s.append("import com.drivemode.media.common.BaseCursor;\n");
+		s.append("import com.drivemode.media.common.ColumnSchema;\n");
+		s.append("import com.drivemode.media.common.Projection;\n\n");
+		s.append("/**\n * Cursor for {@link ").append(rowType).append("}.\n");
+		s.append(" * Query with {@link #PROJECTION} so that every accessor reads its column at a fixed index.\n */\n");
+		s.append("public class ").append(cursorName).append(" extends BaseCursor implements ").append(rowType).append(" {\n");
+		s.append("\tprivate static final String[] COLUMNS = {");
+		for (int i = 0; i < accessors.size(); i++) {
+			s.append(i == 0 ? "" : ", ").append(literal(accessors.get(i).column));
+		}
+		s.append("};\n");
+		s.append("\tpublic static final Projection PROJECTION = Projection.of(COLUMNS);\n");
+		for (int i = 0; i < accessors.size(); i++) {
+			s.append("\tprivate static final int COL_").append(i).append(" = column(COLUMNS[").append(i).append("]);\n");
+		}
+		s.append("\tprivate ColumnSchema checkedSchema;\n");
+		s.append("\tprivate boolean projected;\n\n");
+		s.append("\tpublic ").append(cursorName).append("(Cursor cursor) {\n");
+		s.append("\t\tsuper(cursor);\n");
+		s.append("\t}\n\n");
+		s.append("\tprivate boolean isProjected() {\n");
+		s.append("\t\tColumnSchema schema = getSchema();\n");
+		s.append("\t\tif (schema != checkedSchema) {\n");
+		s.append("\t\t\tcheckedSchema = schema;\n");
+		s.append("\t\t\tprojected = schema.matches(COLUMNS);\n");
+		s.append("\t\t}\n");
+		s.append("\t\treturn projected;\n");
+		s.append("\t}\n\n");
+		s.append("\tprivate int index(int slot, int colKey) {\n");
+		s.append("\t\treturn isProjected() ? slot : getCachedColumnIndexOrThrow(colKey);\n");
+		s.append("\t}\n");
+		for (int i = 0; i < accessors.size(); i++) {
+			Accessor accessor = accessors.get(i);
+			s.append("\n\t@Override\n");
+			s.append("\tpublic ").append(accessor.kind.type).append(' ').append(accessor.name).append("() {\n");
+			s.append("\t\treturn ").append(accessor.kind.read("index(" + i + ", COL_" + i + ")")).append(";\n");
+			s.append("\t}\n");
+		}
+		s.append("\n\t/**\n\t * @return an immutable copy of the current row.\n\t */\n");
+		s.append("\tpublic ").append(recordName).append(" readRow() {\n");
+		s.append("\t\tif (!isProjected())\n");
+		s.append("\t\t\treturn new ").append(recordName).append('(');
+		for (int i = 0; i < accessors.size(); i++) {
+			s.append(i == 0 ? "" : ", ").append(accessors.get(i).name).append("()");
+		}
+		s.append(");\n");
+		s.append("\t\treturn new ").append(recordName).append('(');
+		for (int i = 0; i < accessors.size(); i++) {
+			s.append(i == 0 ? "" : ", ").append(accessors.get(i).kind.read(String.valueOf(i)));
+		}
+		s.append(");\n");
+		s.append("\t}\n");
+		s.append("}\n");
+		return s.toString();
+	}
+
+	private String generateRecord(String packageName, String rowType, String recordName, List<Accessor> accessors) {
+		StringBuilder s = new StringBuilder();
+		s.append(GENERATED_COMMENT).append('\n');
+		s.append("package ").append(packageName).append(";\n\n");
+		if (hasBlob(accessors))
+			s.append("import java.util.Arrays;\n\n");
+		s.append("/**\n * Immutable row of {@link ").append(rowType).append("}.\n */\n");
+		s.append("public final class ").append(recordName).append(" implements ").append(rowType).append(" {\n");
+		for (Accessor accessor : accessors) {
+			s.append("\tprivate final ").append(accessor.kind.type).append(' ').append(accessor.name).append(";\n");
+		}
+		s.append("\n\tpublic ").append(recordName).append('(');
+		for (int i = 0; i < accessors.size(); i++) {
+			Accessor accessor = accessors.get(i);
+			s.append(i == 0 ? "" : ", ").append(accessor.kind.type).append(' ').append(accessor.name);
+		}
+		s.append(") {\n");
+		for (Accessor accessor : accessors) {
+			s.append("\t\tthis.").append(accessor.name).append(" = ").append(accessor.name).append(";\n");
+		}
+		s.append("\t}\n");
+		for (Accessor accessor : accessors) {
+			s.append("\n\t@Override\n");
+			s.append("\tpublic ").append(accessor.kind.type).append(' ').append(accessor.name).append("() {\n");
+			s.append("\t\treturn ").append(accessor.name).append(";\n");
+			s.append("\t}\n");
+		}
+		s.append("\n\t@Override\n");
+		s.append("\tpublic boolean equals(Object o) {\n");
+		s.append("\t\tif (this == o)\n\t\t\treturn true;\n");
+		s.append("\t\tif (!(o instanceof ").append(recordName).append("))\n\t\t\treturn false;\n");
+		s.append("\t\t").append(recordName).append(" that = (").append(recordName).append(") o;\n");
+		s.append("\t\treturn ");
+		for (int i = 0; i < accessors.size(); i++) {
+			Accessor accessor = accessors.get(i);
+			s.append(i == 0 ? "" : "\n\t\t\t\t&& ").append(accessor.kind.equal(accessor.name, "that." + accessor.name));
+		}
+		s.append(";\n\t}\n");
+		s.append("\n\t@Override\n");
+		s.append("\tpublic int hashCode() {\n");
+		s.append("\t\tint result = 0;\n");
+		for (Accessor accessor : accessors) {
+			s.append("\t\tresult = 31 * result + ").append(accessor.kind.hash(accessor.name)).append(";\n");
+		}
+		s.append("\t\treturn result;\n");
+		s.append("\t}\n");
+		s.append("\n\t@Override\n");
+		s.append("\tpublic String toString() {\n");
+		s.append("\t\treturn \"").append(recordName).append("{\" +\n");
+		for (int i = 0; i < accessors.size(); i++) {
+			Accessor accessor = accessors.get(i);
+			s.append("\t\t\t\t\"").append(i == 0 ? "" : ", ").append(accessor.name).append("=\" + ")
+					.append(accessor.kind == Kind.BLOB ? "Arrays.toString(" + accessor.name + ")" : accessor.name).append(" +\n");
+		}
+		s.append("\t\t\t\t'}';\n");
+		s.append("\t}\n");
+		s.append("}\n");
+		return s.toString();
+	}
+
+	private boolean hasBlob(List<Accessor> accessors) {
+		for (Accessor accessor : accessors) {
+			if (accessor.kind == Kind.BLOB)
+				return true;
+		}
+		return false;
+	}
+
+	private void write(TypeElement origin, String packageName, String simpleName, String source) throws IOException {
+		String name = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(name, origin);
+		Writer writer = file.openWriter();
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private String literal(String value) {
+		return processingEnv.getElementUtils().getConstantExpression(value);
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private static final class Accessor {
+		private final String name;
+		private final String column;
+		private final Kind kind;
+
+		/* package */ Accessor(String name, String column, Kind kind) {
+			this.name = name;
+			this.column = column;
+			this.kind = kind;
+		}
+	}
+
+	private enum Kind {
+		LONG("long", "getLong(%s)"),
+		INT("int", "getInt(%s)"),
+		SHORT("short", "getShort(%s)"),
+		DOUBLE("double", "getDouble(%s)"),
+		FLOAT("float", "getFloat(%s)"),
+		BOOLEAN("boolean", "getInt(%s) != 0"),
+		STRING("String", "getString(%s)"),
+		BLOB("byte[]", "getBlob(%s)");
+
+		private final String type;
+		private final String reader;
+
+		/* package */ Kind(String type, String reader) {
+			this.type = type;
+			this.reader = reader;
+		}
+
+		/* package */ static Kind of(TypeMirror type) {
+			switch (type.getKind()) {
+				case LONG:
+					return LONG;
+				case INT:
+					return INT;
+				case SHORT:
+					return SHORT;
+				case DOUBLE:
+					return DOUBLE;
+				case FLOAT:
+					return FLOAT;
+				case BOOLEAN:
+					return BOOLEAN;
+				case ARRAY:
+					return type.toString().equals("byte[]") ? BLOB : null;
+				case DECLARED:
+					return type.toString().equals("java.lang.String") ? STRING : null;
+				default:
+					return null;
+			}
+		}
+
+		/* package */ String read(String index) {
+			return String.format(reader, index);
+		}
+
+		/* package */ String equal(String left, String right) {
+			switch (this) {
+				case DOUBLE:
+					return "Double.compare(" + left + ", " + right + ") == 0";
+				case FLOAT:
+					return "Float.compare(" + left + ", " + right + ") == 0";
+				case STRING:
+					return "(" + left + " == null ? " + right + " == null : " + left + ".equals(" + right + "))";
+				case BLOB:
+					return "Arrays.equals(" + left + ", " + right + ")";
+				default:
+					return left + " == " + right;
+			}
+		}
+
+		/* package */ String hash(String name) {
+			switch (this) {
+				case LONG:
+					return "(int) (" + name + " ^ (" + name + " >>> 32))";
+				case DOUBLE:
+					return "(int) (Double.doubleToLongBits(" + name + ") ^ (Double.doubleToLongBits(" + name + ") >>> 32))";
+				case FLOAT:
+					return "Float.floatToIntBits(" + name + ")";
+				case BOOLEAN:
+					return "(" + name + " ? 1 : 0)";
+				case STRING:
+					return "(" + name + " != null ? " + name + ".hashCode() : 0)";
+				case BLOB:
+					return "Arrays.hashCode(" + name + ")";
+				default:
+					return name;
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ package com.drivemode.media.image;
 import android.database.Cursor;
 import android.provider.MediaStore;
 import com.drivemode.media.common.MediaCursor;
+import com.drivemode.media.common.Projection;
 
 /**
  * @author KeishinYokomaku
@@ -10,6 +11,30 @@ import com.drivemode.media.common.MediaCursor;
 @SuppressWarnings("unused") // public API
 public class ImageCursor extends MediaCursor {
 	public static final String TAG = ImageCursor.class.getSimpleName();
+	/**
+	 * Projection for a cell in the image grid.
+	 */
+	public static final Projection LIST_ROW = Projection.of(
+			MediaStore.Images.Media._ID,
+			MediaStore.Images.Media.BUCKET_ID,
+			MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+			MediaStore.Images.Media.DATE_TAKEN,
+			MediaStore.Images.Media.ORIENTATION);
+	/**
+	 * Projection for the image detail, every column of the table.
+	 */
+	public static final Projection DETAIL = Projection.ALL;
+
+	private static final int COL_DESCRIPTION = column(MediaStore.Images.Media.DESCRIPTION);
+	private static final int COL_PICASA_ID = column(MediaStore.Images.Media.PICASA_ID);
+	private static final int COL_IS_PRIVATE = column(MediaStore.Images.Media.IS_PRIVATE);
+	private static final int COL_LATITUDE = column(MediaStore.Images.Media.LATITUDE);
+	private static final int COL_LONGITUDE = column(MediaStore.Images.Media.LONGITUDE);
+	private static final int COL_ORIENTATION = column(MediaStore.Images.Media.ORIENTATION);
+	private static final int COL_MINI_THUMB_MAGIC = column(MediaStore.Images.Media.MINI_THUMB_MAGIC);
+	private static final int COL_BUCKET_ID = column(MediaStore.Images.Media.BUCKET_ID);
+	private static final int COL_BUCKET_DISPLAY_NAME = column(MediaStore.Images.Media.BUCKET_DISPLAY_NAME);
+	private static final int COL_DATE_TAKEN = column(MediaStore.Images.Media.DATE_TAKEN);
 
 	public ImageCursor(Cursor cursor) {
 		super(cursor);
@@ -19,70 +44,70 @@ public class ImageCursor extends MediaCursor {
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#DESCRIPTION}
 	 */
 	public String description() {
-		return getString(MediaStore.Images.Media.DESCRIPTION);
+		return getStringAt(COL_DESCRIPTION);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#PICASA_ID}
 	 */
 	public String picasaId() {
-		return getString(MediaStore.Images.Media.PICASA_ID);
+		return getStringAt(COL_PICASA_ID);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#IS_PRIVATE}
 	 */
 	public boolean isPrivate() {
-		return getInt(MediaStore.Images.Media.IS_PRIVATE) != 0;
+		return getIntAt(COL_IS_PRIVATE) != 0;
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#LATITUDE}
 	 */
 	public double latitude() {
-		return getDouble(MediaStore.Images.Media.LATITUDE);
+		return getDoubleAt(COL_LATITUDE);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#LONGITUDE}
 	 */
 	public double longitude() {
-		return getDouble(MediaStore.Images.Media.LONGITUDE);
+		return getDoubleAt(COL_LONGITUDE);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#ORIENTATION}
 	 */
 	public int orientation() {
-		return getInt(MediaStore.Images.Media.ORIENTATION);
+		return getIntAt(COL_ORIENTATION);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#MINI_THUMB_MAGIC}
 	 */
 	public int miniThumbId() {
-		return getInt(MediaStore.Images.Media.MINI_THUMB_MAGIC);
+		return getIntAt(COL_MINI_THUMB_MAGIC);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#BUCKET_ID}
 	 */
 	public String bucketId() {
-		return getString(MediaStore.Images.Media.BUCKET_ID);
+		return getStringAt(COL_BUCKET_ID);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#BUCKET_DISPLAY_NAME}
 	 */
 	public String bucketName() {
-		return getString(MediaStore.Images.Media.BUCKET_DISPLAY_NAME);
+		return getStringAt(COL_BUCKET_DISPLAY_NAME);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Images.Media#DATE_TAKEN}
 	 */
 	public long takenAt() {
-		return getLong(MediaStore.Images.Media.DATE_TAKEN);
+		return getLongAt(COL_DATE_TAKEN);
 	}
 
 }
@@ -4,9 +4,20 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.os.CancellationSignal;
 import android.provider.MediaStore;
 import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import com.drivemode.media.common.BucketAggregator;
+import com.drivemode.media.common.BucketSummary;
+import com.drivemode.media.common.PageRequest;
+import com.drivemode.media.common.Projection;
+import com.drivemode.media.common.QueryCache;
+import com.drivemode.media.common.QueryExecutor;
+import com.drivemode.media.common.QueryFuture;
+import com.drivemode.media.common.SharedProviderClient;
 import com.drivemode.media.common.SortOrder;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -17,26 +28,33 @@ import java.lang.annotation.RetentionPolicy;
  */
 @SuppressWarnings("unused") // public API
 public class ImageFacade {
-	private static ImageFacade instance;
-	private final Bucket bucket;
-	private final Image image;
+	private static volatile ImageFacade instance;
+	private final Context context;
+	private volatile Bucket bucket;
+	private volatile Image image;
 
 	/**
 	 * Initialize the facade with the application context.
+	 * Modular classes are created on their first access.
 	 * Do not call this method directly.
 	 *
 	 * @param context the application context
 	 */
 	protected ImageFacade(Context context) {
-		this(new Bucket(context), new Image(context));
+		this.context = context;
 	}
 
 	/**
 	 * Convenient constructor to inject each modular class, especially for testing purpose.
+	 * A module given as null is created on demand with the context of the other one.
 	 * @param bucket the bucket class
 	 * @param image the image class
+	 * @throws IllegalArgumentException if both modules are null.
 	 */
 	protected ImageFacade(Bucket bucket, Image image) {
+		if (bucket == null && image == null)
+			throw new IllegalArgumentException("at least one module is required to take the context from");
+		this.context = bucket != null ? bucket.context : image.context;
 		this.bucket = bucket;
 		this.image = image;
 	}
@@ -47,23 +65,45 @@ public class ImageFacade {
 	 * @return the singleton object of {@link ImageFacade}.
 	 */
 	public static ImageFacade getInstance(Context context) {
-		if (instance == null)
-			instance = new ImageFacade(context.getApplicationContext());
-		return instance;
+		ImageFacade result = instance;
+		if (result == null) {
+			synchronized (ImageFacade.class) {
+				result = instance;
+				if (result == null)
+					instance = result = new ImageFacade(context.getApplicationContext());
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Bucket}.
 	 */
 	public Bucket bucket() {
-		return bucket;
+		Bucket result = bucket;
+		if (result == null) {
+			synchronized (this) {
+				result = bucket;
+				if (result == null)
+					bucket = result = new Bucket(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for {@link Image}.
 	 */
 	public Image image() {
-		return image;
+		Image result = image;
+		if (result == null) {
+			synchronized (this) {
+				result = image;
+				if (result == null)
+					image = result = new Image(context);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -77,11 +117,12 @@ public class ImageFacade {
 		};
 		private static final String BUCKET_GROUP_BY = "1) GROUP BY 1,(2";
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
+		private volatile BucketAggregator aggregator;
 
 		protected Bucket(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -95,7 +136,65 @@ public class ImageFacade {
 		 * Fetches all buckets in the specified {@link SortOrder}.
 		 */
 		public @Nullable ImageCursor fetch(SortOrder order) {
-			return new ImageCursor(resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, BUCKET_PROJECTION, BUCKET_GROUP_BY, null, order.toSql()));
+			return fetch(order, null);
+		}
+
+		/**
+		 * Fetches all buckets in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable ImageCursor fetch(SortOrder order, @Nullable CancellationSignal signal) {
+			return new ImageCursor(QueryCache.query(client, MediaStore.Images.Media.EXTERNAL_CONTENT_URI, BUCKET_PROJECTION, BUCKET_GROUP_BY, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetches all buckets in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<ImageCursor> fetchAsync(final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<ImageCursor>() {
+				@Override
+				public ImageCursor run(@Nullable CancellationSignal signal) {
+					return fetch(order, signal);
+				}
+			}, signal);
+		}
+
+		/**
+		 * Summarizes all buckets in a single scan, with the number of images, their total size, and the newest image as the cover.
+		 * The summary is kept, and updated with the images inserted, modified or deleted since the previous call.
+		 * @see BucketSummary
+		 */
+		@WorkerThread
+		public @NonNull BucketSummary fetchSummary() {
+			return aggregator().getSummary();
+		}
+
+		/**
+		 * Asynchronously summarizes all buckets.
+		 * Cancel the returned future or the signal to abandon the result. The running queries are not aborted.
+		 */
+		public @NonNull QueryFuture<BucketSummary> fetchSummaryAsync(@Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<BucketSummary>() {
+				@Override
+				public BucketSummary run(@Nullable CancellationSignal signal) {
+					return fetchSummary();
+				}
+			}, signal);
+		}
+
+		private BucketAggregator aggregator() {
+			BucketAggregator result = aggregator;
+			if (result == null) {
+				synchronized (this) {
+					result = aggregator;
+					if (result == null) {
+						aggregator = result = new BucketAggregator(context, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+						result.start();
+					}
+				}
+			}
+			return result;
 		}
 	}
 
@@ -104,11 +203,11 @@ public class ImageFacade {
 	 */
 	public static class Image {
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
 
 		protected Image(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -122,7 +221,86 @@ public class ImageFacade {
 		 * Fetch all image metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable ImageCursor fetch(SortOrder order) {
-			return new ImageCursor(resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetch(Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected image metadata from {@link MediaStore}.
+		 * @see ImageCursor#LIST_ROW
+		 */
+		public @Nullable ImageCursor fetch(Projection projection) {
+			return fetch(projection, SortOrder.UNSPECIFIED);
+		}
+
+		/**
+		 * Fetch the projected image metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see ImageCursor#LIST_ROW
+		 */
+		public @Nullable ImageCursor fetch(Projection projection, SortOrder order) {
+			return fetch(projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected image metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see ImageCursor#LIST_ROW
+		 */
+		public @Nullable ImageCursor fetch(Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new ImageCursor(QueryCache.query(client, MediaStore.Images.Media.EXTERNAL_CONTENT_URI, projection.toArray(), null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected image metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<ImageCursor> fetchAsync(final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<ImageCursor>() {
+				@Override
+				public ImageCursor run(@Nullable CancellationSignal signal) {
+					return fetch(projection, order, signal);
+				}
+			}, signal);
+		}
+
+		/**
+		 * Fetch a page of image metadata from {@link MediaStore}.
+		 * @see PageRequest
+		 */
+		public @Nullable ImageCursor fetchPage(PageRequest page) {
+			return fetchPage(page, Projection.ALL);
+		}
+
+		/**
+		 * Fetch a page of the projected image metadata from {@link MediaStore}.
+		 * The projection is extended with the columns required to request the next page.
+		 * @see PageRequest
+		 */
+		public @Nullable ImageCursor fetchPage(PageRequest page, Projection projection) {
+			return fetchPage(page, projection, null);
+		}
+
+		/**
+		 * Fetch a page of the projected image metadata from {@link MediaStore}.
+		 * The projection is extended with the columns required to request the next page.
+		 * The query is aborted when the signal is cancelled.
+		 * @see PageRequest
+		 */
+		public @Nullable ImageCursor fetchPage(PageRequest page, Projection projection, @Nullable CancellationSignal signal) {
+			return new ImageCursor(QueryCache.query(client, MediaStore.Images.Media.EXTERNAL_CONTENT_URI, page.projection(projection).toArray(),
+					page.selection(null), page.selectionArgs(null), page.sortOrder(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch a page of the projected image metadata from {@link MediaStore}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<ImageCursor> fetchPageAsync(final PageRequest page, final Projection projection, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<ImageCursor>() {
+				@Override
+				public ImageCursor run(@Nullable CancellationSignal signal) {
+					return fetchPage(page, projection, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -136,8 +314,38 @@ public class ImageFacade {
 		 * Fetch image metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable ImageCursor fetchByBucket(long bucketId, SortOrder order) {
-			return new ImageCursor(resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, null,
-					MediaStore.Images.Media.BUCKET_ID + " = ?", new String[]{String.valueOf(bucketId)}, order.toSql()));
+			return fetchByBucket(bucketId, Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected image metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see ImageCursor#LIST_ROW
+		 */
+		public @Nullable ImageCursor fetchByBucket(long bucketId, Projection projection, SortOrder order) {
+			return fetchByBucket(bucketId, projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected image metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see ImageCursor#LIST_ROW
+		 */
+		public @Nullable ImageCursor fetchByBucket(long bucketId, Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new ImageCursor(QueryCache.query(client, MediaStore.Images.Media.EXTERNAL_CONTENT_URI, projection.toArray(),
+					MediaStore.Images.Media.BUCKET_ID + " = ?", new String[]{String.valueOf(bucketId)}, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected image metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<ImageCursor> fetchByBucketAsync(final long bucketId, final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<ImageCursor>() {
+				@Override
+				public ImageCursor run(@Nullable CancellationSignal signal) {
+					return fetchByBucket(bucketId, projection, order, signal);
+				}
+			}, signal);
 		}
 	}
 
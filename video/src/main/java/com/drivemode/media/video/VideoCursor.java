@@ -3,12 +3,45 @@ package com.drivemode.media.video;
 import android.database.Cursor;
 import android.provider.MediaStore;
 import com.drivemode.media.common.MediaCursor;
+import com.drivemode.media.common.Projection;
 
 /**
  * @author KeishinYokomaku
  */
 @SuppressWarnings("unused") // public API
 public class VideoCursor extends MediaCursor {
+	/**
+	 * Projection for a cell in the video grid.
+	 */
+	public static final Projection LIST_ROW = Projection.of(
+			MediaStore.Video.Media._ID,
+			MediaStore.Video.Media.TITLE,
+			MediaStore.Video.Media.DURATION,
+			MediaStore.Video.Media.BUCKET_ID,
+			MediaStore.Video.Media.BUCKET_DISPLAY_NAME,
+			MediaStore.Video.Media.DATE_TAKEN);
+	/**
+	 * Projection for the video detail, every column of the table.
+	 */
+	public static final Projection DETAIL = Projection.ALL;
+
+	private static final int COL_DURATION = column(MediaStore.Video.Media.DURATION);
+	private static final int COL_ARTIST = column(MediaStore.Video.Media.ARTIST);
+	private static final int COL_ALBUM = column(MediaStore.Video.Media.ALBUM);
+	private static final int COL_RESOLUTION = column(MediaStore.Video.Media.RESOLUTION);
+	private static final int COL_DESCRIPTION = column(MediaStore.Video.Media.DESCRIPTION);
+	private static final int COL_IS_PRIVATE = column(MediaStore.Video.Media.IS_PRIVATE);
+	private static final int COL_TAGS = column(MediaStore.Video.Media.TAGS);
+	private static final int COL_CATEGORY = column(MediaStore.Video.Media.CATEGORY);
+	private static final int COL_LANGUAGE = column(MediaStore.Video.Media.LANGUAGE);
+	private static final int COL_LATITUDE = column(MediaStore.Video.Media.LATITUDE);
+	private static final int COL_LONGITUDE = column(MediaStore.Video.Media.LONGITUDE);
+	private static final int COL_DATE_TAKEN = column(MediaStore.Video.Media.DATE_TAKEN);
+	private static final int COL_MINI_THUMB_MAGIC = column(MediaStore.Video.Media.MINI_THUMB_MAGIC);
+	private static final int COL_BUCKET_ID = column(MediaStore.Video.Media.BUCKET_ID);
+	private static final int COL_BUCKET_DISPLAY_NAME = column(MediaStore.Video.Media.BUCKET_DISPLAY_NAME);
+	private static final int COL_BOOKMARK = column(MediaStore.Video.Media.BOOKMARK);
+
 	public VideoCursor(Cursor cursor) {
 		super(cursor);
 	}
@@ -17,112 +50,112 @@ public class VideoCursor extends MediaCursor {
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#DURATION}
 	 */
 	public long duration() {
-		return getLong(MediaStore.Video.Media.DURATION);
+		return getLongAt(COL_DURATION);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#ARTIST}
 	 */
 	public String artist() {
-		return getString(MediaStore.Video.Media.ARTIST);
+		return getStringAt(COL_ARTIST);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#ALBUM}
 	 */
 	public String album() {
-		return getString(MediaStore.Video.Media.ALBUM);
+		return getStringAt(COL_ALBUM);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#RESOLUTION}
 	 */
 	public String resolution() {
-		return getString(MediaStore.Video.Media.RESOLUTION);
+		return getStringAt(COL_RESOLUTION);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#DESCRIPTION}
 	 */
 	public String description() {
-		return getString(MediaStore.Video.Media.DESCRIPTION);
+		return getStringAt(COL_DESCRIPTION);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#IS_PRIVATE}
 	 */
 	public boolean isPrivate() {
-		return getInt(MediaStore.Video.Media.IS_PRIVATE) != 0;
+		return getIntAt(COL_IS_PRIVATE) != 0;
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#TAGS}
 	 */
 	public String tags() {
-		return getString(MediaStore.Video.Media.TAGS);
+		return getStringAt(COL_TAGS);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#CATEGORY}
 	 */
 	public String category() {
-		return getString(MediaStore.Video.Media.CATEGORY);
+		return getStringAt(COL_CATEGORY);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#LANGUAGE}
 	 */
 	public String language() {
-		return getString(MediaStore.Video.Media.LANGUAGE);
+		return getStringAt(COL_LANGUAGE);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#LATITUDE}
 	 */
 	public double latitude() {
-		return getDouble(MediaStore.Video.Media.LATITUDE);
+		return getDoubleAt(COL_LATITUDE);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#LONGITUDE}
 	 */
 	public double longitude() {
-		return getDouble(MediaStore.Video.Media.LONGITUDE);
+		return getDoubleAt(COL_LONGITUDE);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#DATE_TAKEN}
 	 */
 	public long takenAt() {
-		return getLong(MediaStore.Video.Media.DATE_TAKEN);
+		return getLongAt(COL_DATE_TAKEN);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#MINI_THUMB_MAGIC}
 	 */
 	public int miniThumbId() {
-		return getInt(MediaStore.Video.Media.MINI_THUMB_MAGIC);
+		return getIntAt(COL_MINI_THUMB_MAGIC);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#BUCKET_ID}
 	 */
 	public String bucketId() {
-		return getString(MediaStore.Video.Media.BUCKET_ID);
+		return getStringAt(COL_BUCKET_ID);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#BUCKET_DISPLAY_NAME}
 	 */
 	public String bucketName() {
-		return getString(MediaStore.Video.Media.BUCKET_DISPLAY_NAME);
+		return getStringAt(COL_BUCKET_DISPLAY_NAME);
 	}
 
 	/**
 	 * @return Data for {@link android.provider.MediaStore.Video.Media#BOOKMARK}
 	 */
 	public long bookmatkedPosition() {
-		return getLong(MediaStore.Video.Media.BOOKMARK);
+		return getLongAt(COL_BOOKMARK);
 	}
 
 }
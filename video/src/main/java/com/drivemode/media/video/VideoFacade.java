@@ -4,10 +4,21 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.os.CancellationSignal;
 import android.provider.MediaStore;
 import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
+import com.drivemode.media.common.BucketAggregator;
+import com.drivemode.media.common.BucketSummary;
+import com.drivemode.media.common.PageRequest;
+import com.drivemode.media.common.Projection;
+import com.drivemode.media.common.QueryCache;
+import com.drivemode.media.common.QueryExecutor;
+import com.drivemode.media.common.QueryFuture;
+import com.drivemode.media.common.SharedProviderClient;
 import com.drivemode.media.common.SortOrder;
 
 import java.lang.annotation.Retention;
@@ -19,28 +30,40 @@ import java.lang.annotation.RetentionPolicy;
  */
 @SuppressWarnings("unused") // public API
 public class VideoFacade {
-	private static VideoFacade instance;
-	private final Bucket bucket;
-	private final Video video;
-	private final Thumbnail thumbnail;
+	private static volatile VideoFacade instance;
+	private final Context context;
+	private volatile Bucket bucket;
+	private volatile Video video;
+	private volatile Thumbnail thumbnail;
 
 	/**
 	 * Initialize the facade with the application context.
+	 * Modular classes are created on their first access.
 	 * Do not call this method directly.
 	 *
 	 * @param context the application context
 	 */
 	protected VideoFacade(Context context) {
-		this(new Bucket(context), new Video(context), new Thumbnail(context));
+		this.context = context;
 	}
 
 	/**
 	 * Convenient constructor to inject each modular class, especially for testing purpose.
+	 * A module given as null is created on demand with the context of the injected ones.
 	 * @param bucket the bucket class
 	 * @param video the video class
 	 * @param thumbnail the thumbnail class
+	 * @throws IllegalArgumentException if all modules are null.
 	 */
 	protected VideoFacade(Bucket bucket, Video video, Thumbnail thumbnail) {
+		if (bucket != null)
+			this.context = bucket.context;
+		else if (video != null)
+			this.context = video.context;
+		else if (thumbnail != null)
+			this.context = thumbnail.context;
+		else
+			throw new IllegalArgumentException("at least one module is required to take the context from");
 		this.bucket = bucket;
 		this.video = video;
 		this.thumbnail = thumbnail;
@@ -52,30 +75,60 @@ public class VideoFacade {
 	 * @return the singleton object of {@link VideoFacade}.
 	 */
 	public static VideoFacade getInstance(Context context) {
-		if (instance == null)
-			instance = new VideoFacade(context.getApplicationContext());
-		return instance;
+		VideoFacade result = instance;
+		if (result == null) {
+			synchronized (VideoFacade.class) {
+				result = instance;
+				if (result == null)
+					instance = result = new VideoFacade(context.getApplicationContext());
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for Bucket.
 	 */
 	public Bucket bucket() {
-		return bucket;
+		Bucket result = bucket;
+		if (result == null) {
+			synchronized (this) {
+				result = bucket;
+				if (result == null)
+					bucket = result = new Bucket(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for Video.
 	 */
 	public Video video() {
-		return video;
+		Video result = video;
+		if (result == null) {
+			synchronized (this) {
+				result = video;
+				if (result == null)
+					video = result = new Video(context);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * @return Modular class for Thumbnail.
 	 */
 	public Thumbnail thumbnail() {
-		return thumbnail;
+		Thumbnail result = thumbnail;
+		if (result == null) {
+			synchronized (this) {
+				result = thumbnail;
+				if (result == null)
+					thumbnail = result = new Thumbnail(context);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -89,11 +142,12 @@ public class VideoFacade {
 		};
 		private static final String BUCKET_GROUP_BY = "1) GROUP BY 1,(2";
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
+		private volatile BucketAggregator aggregator;
 
 		protected Bucket(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -107,7 +161,66 @@ public class VideoFacade {
 		 * Fetches all buckets in the specified {@link SortOrder}.
 		 */
 		public @Nullable VideoCursor fetch(SortOrder order) {
-			return new VideoCursor(resolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, BUCKET_PROJECTION, BUCKET_GROUP_BY, null, order.toSql()));
+			return fetch(order, null);
+		}
+
+		/**
+		 * Fetches all buckets in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 */
+		public @Nullable VideoCursor fetch(SortOrder order, @Nullable CancellationSignal signal) {
+			return new VideoCursor(QueryCache.query(client, MediaStore.Video.Media.EXTERNAL_CONTENT_URI, BUCKET_PROJECTION, BUCKET_GROUP_BY, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetches all buckets in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<VideoCursor> fetchAsync(final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<VideoCursor>() {
+				@Override
+				public VideoCursor run(@Nullable CancellationSignal signal) {
+					return fetch(order, signal);
+				}
+			}, signal);
+		}
+
+		/**
+		 * Summarizes all buckets in a single scan, with the number of videos, their total size and duration,
+		 * the newest video as the cover, and the longest video.
+		 * The summary is kept, and updated with only the videos inserted, modified or deleted since the previous call.
+		 * @see BucketSummary
+		 */
+		@WorkerThread
+		public @NonNull BucketSummary fetchSummary() {
+			return aggregator().getSummary();
+		}
+
+		/**
+		 * Asynchronously summarizes all buckets.
+		 * Cancel the returned future or the signal to abandon the result. The running queries are not aborted.
+		 */
+		public @NonNull QueryFuture<BucketSummary> fetchSummaryAsync(@Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<BucketSummary>() {
+				@Override
+				public BucketSummary run(@Nullable CancellationSignal signal) {
+					return fetchSummary();
+				}
+			}, signal);
+		}
+
+		private BucketAggregator aggregator() {
+			BucketAggregator result = aggregator;
+			if (result == null) {
+				synchronized (this) {
+					result = aggregator;
+					if (result == null) {
+						aggregator = result = new BucketAggregator(context, MediaStore.Video.Media.EXTERNAL_CONTENT_URI, MediaStore.Video.VideoColumns.DURATION);
+						result.start();
+					}
+				}
+			}
+			return result;
 		}
 	}
 
@@ -116,11 +229,11 @@ public class VideoFacade {
 	 */
 	public static class Video {
 		private final Context context;
-		private final ContentResolver resolver;
+		private final SharedProviderClient client;
 
 		protected Video(Context context) {
 			this.context = context;
-			this.resolver = context.getContentResolver();
+			this.client = SharedProviderClient.acquire(context, MediaStore.AUTHORITY);
 		}
 
 		/**
@@ -134,7 +247,86 @@ public class VideoFacade {
 		 * Fetch all video metadata from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable VideoCursor fetch(SortOrder order) {
-			return new VideoCursor(resolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, null, null, null, order.toSql()));
+			return fetch(Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected video metadata from {@link MediaStore}.
+		 * @see VideoCursor#LIST_ROW
+		 */
+		public @Nullable VideoCursor fetch(Projection projection) {
+			return fetch(projection, SortOrder.UNSPECIFIED);
+		}
+
+		/**
+		 * Fetch the projected video metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see VideoCursor#LIST_ROW
+		 */
+		public @Nullable VideoCursor fetch(Projection projection, SortOrder order) {
+			return fetch(projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected video metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see VideoCursor#LIST_ROW
+		 */
+		public @Nullable VideoCursor fetch(Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new VideoCursor(QueryCache.query(client, MediaStore.Video.Media.EXTERNAL_CONTENT_URI, projection.toArray(), null, null, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected video metadata from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<VideoCursor> fetchAsync(final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<VideoCursor>() {
+				@Override
+				public VideoCursor run(@Nullable CancellationSignal signal) {
+					return fetch(projection, order, signal);
+				}
+			}, signal);
+		}
+
+		/**
+		 * Fetch a page of video metadata from {@link MediaStore}.
+		 * @see PageRequest
+		 */
+		public @Nullable VideoCursor fetchPage(PageRequest page) {
+			return fetchPage(page, Projection.ALL);
+		}
+
+		/**
+		 * Fetch a page of the projected video metadata from {@link MediaStore}.
+		 * The projection is extended with the columns required to request the next page.
+		 * @see PageRequest
+		 */
+		public @Nullable VideoCursor fetchPage(PageRequest page, Projection projection) {
+			return fetchPage(page, projection, null);
+		}
+
+		/**
+		 * Fetch a page of the projected video metadata from {@link MediaStore}.
+		 * The projection is extended with the columns required to request the next page.
+		 * The query is aborted when the signal is cancelled.
+		 * @see PageRequest
+		 */
+		public @Nullable VideoCursor fetchPage(PageRequest page, Projection projection, @Nullable CancellationSignal signal) {
+			return new VideoCursor(QueryCache.query(client, MediaStore.Video.Media.EXTERNAL_CONTENT_URI, page.projection(projection).toArray(),
+					page.selection(null), page.selectionArgs(null), page.sortOrder(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch a page of the projected video metadata from {@link MediaStore}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<VideoCursor> fetchPageAsync(final PageRequest page, final Projection projection, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<VideoCursor>() {
+				@Override
+				public VideoCursor run(@Nullable CancellationSignal signal) {
+					return fetchPage(page, projection, signal);
+				}
+			}, signal);
 		}
 
 		/**
@@ -148,8 +340,38 @@ public class VideoFacade {
 		 * Fetch video metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
 		 */
 		public @Nullable VideoCursor fetchByBucket(long bucketId, SortOrder order) {
-			return new VideoCursor(resolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, null,
-					MediaStore.Video.Media.BUCKET_ID + " = ?", new String[]{String.valueOf(bucketId)}, order.toSql()));
+			return fetchByBucket(bucketId, Projection.ALL, order);
+		}
+
+		/**
+		 * Fetch the projected video metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
+		 * @see VideoCursor#LIST_ROW
+		 */
+		public @Nullable VideoCursor fetchByBucket(long bucketId, Projection projection, SortOrder order) {
+			return fetchByBucket(bucketId, projection, order, null);
+		}
+
+		/**
+		 * Fetch the projected video metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
+		 * The query is aborted when the signal is cancelled.
+		 * @see VideoCursor#LIST_ROW
+		 */
+		public @Nullable VideoCursor fetchByBucket(long bucketId, Projection projection, SortOrder order, @Nullable CancellationSignal signal) {
+			return new VideoCursor(QueryCache.query(client, MediaStore.Video.Media.EXTERNAL_CONTENT_URI, projection.toArray(),
+					MediaStore.Video.Media.BUCKET_ID + " = ?", new String[]{String.valueOf(bucketId)}, order.toSql(), signal));
+		}
+
+		/**
+		 * Asynchronously fetch the projected video metadata belongs to the specified bucket from {@link MediaStore} in the specified {@link SortOrder}.
+		 * Cancel the returned future or the signal to abort the query.
+		 */
+		public @NonNull QueryFuture<VideoCursor> fetchByBucketAsync(final long bucketId, final Projection projection, final SortOrder order, @Nullable CancellationSignal signal) {
+			return QueryExecutor.getDefault().submit(new QueryExecutor.Query<VideoCursor>() {
+				@Override
+				public VideoCursor run(@Nullable CancellationSignal signal) {
+					return fetchByBucket(bucketId, projection, order, signal);
+				}
+			}, signal);
 		}
 	}
 